@@ -61,6 +61,7 @@ CREATE TABLE `cart` (
   `product_id` bigint NOT NULL,
   `user_id` bigint NOT NULL,
   PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_cart_user_product` (`user_id`,`product_id`),
   KEY `FKpu4bcbluhsxagirmbdn7dilm5` (`product_id`),
   KEY `FKg5uhi8vpsuy0lgloxk2h4w5o6` (`user_id`),
   CONSTRAINT `FKg5uhi8vpsuy0lgloxk2h4w5o6` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`),
@@ -0,0 +1,18 @@
+-- Adds the (user_id, product_id) unique key that CartController.addToCart's upsert relies on.
+-- Existing duplicate rows are merged into the oldest row before the key is created.
+
+USE `harishma_sarees_zone`;
+
+UPDATE `cart` c
+JOIN (
+  SELECT `user_id`, `product_id`, MIN(`id`) AS keep_id, SUM(`quantity`) AS total_quantity
+  FROM `cart`
+  GROUP BY `user_id`, `product_id`
+  HAVING COUNT(*) > 1
+) d ON c.`id` = d.keep_id
+SET c.`quantity` = d.total_quantity;
+
+DELETE c FROM `cart` c
+JOIN `cart` k ON k.`user_id` = c.`user_id` AND k.`product_id` = c.`product_id` AND k.`id` < c.`id`;
+
+ALTER TABLE `cart` ADD UNIQUE KEY `uk_cart_user_product` (`user_id`, `product_id`);
@@ -0,0 +1,11 @@
+-- Reconcile watermark for the hot SKU stock journal. The row is updated in the same
+-- transaction as the stock it covers, so journal replay after a crash applies each entry once.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `inventory_journal_state` (
+  `name` varchar(50) NOT NULL,
+  `last_seq` bigint NOT NULL,
+  `updated_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
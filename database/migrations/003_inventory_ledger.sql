@@ -0,0 +1,24 @@
+-- Append-only inventory ledger and the per-product balance snapshots rebuilt on top of it.
+-- Balances for existing products are opened from products.stock by the application on first start.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `inventory_movements` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `product_id` bigint NOT NULL,
+  `type` varchar(20) NOT NULL,
+  `quantity` int NOT NULL,
+  `reference` varchar(100) DEFAULT NULL,
+  `note` varchar(255) DEFAULT NULL,
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_inventory_movements_product_time` (`product_id`, `created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE IF NOT EXISTS `inventory_snapshots` (
+  `product_id` bigint NOT NULL,
+  `balance` int NOT NULL,
+  `last_movement_id` bigint NOT NULL,
+  `taken_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`product_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
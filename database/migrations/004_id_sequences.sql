@@ -0,0 +1,33 @@
+-- Table-backed (pooled-lo) id generation for orders, order_items, cart, wishlist and reviews.
+-- Each next_val is the first id of the next block handed out, so seeding it past MAX(id)
+-- keeps new ids clear of every existing AUTO_INCREMENT row. The application re-runs the same
+-- GREATEST() seeding at startup, so running this script is optional but makes it explicit.
+-- Stop all instances still running the AUTO_INCREMENT build before starting the new one.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `id_sequences` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'orders', COALESCE(MAX(`id`), 0) + 1 FROM `orders`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'order_items', COALESCE(MAX(`id`), 0) + 1 FROM `order_items`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'cart', COALESCE(MAX(`id`), 0) + 1 FROM `cart`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'wishlist', COALESCE(MAX(`id`), 0) + 1 FROM `wishlist`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
+
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`)
+SELECT 'reviews', COALESCE(MAX(`id`), 0) + 1 FROM `reviews`
+ON DUPLICATE KEY UPDATE `next_val` = GREATEST(`next_val`, VALUES(`next_val`));
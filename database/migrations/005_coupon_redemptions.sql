@@ -0,0 +1,16 @@
+-- Per-order coupon redemptions. Rows are written with the order and folded into
+-- coupons.used_count in batches; counted marks the rows already included there.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `coupon_redemptions` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `order_id` bigint NOT NULL,
+  `coupon_id` bigint NOT NULL,
+  `user_id` bigint NOT NULL,
+  `counted` bit(1) NOT NULL DEFAULT b'0',
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_coupon_redemptions_order` (`order_id`),
+  KEY `idx_coupon_redemptions_counted` (`counted`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,19 @@
+-- Gateway payment events already applied to orders, keyed by the gateway's event id so a
+-- redelivered callback is recognised, plus the index settlement uses to find an order by
+-- its gateway order id.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `payment_events` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `event_id` varchar(100) NOT NULL,
+  `gateway_order_id` varchar(100) NOT NULL,
+  `payment_id` varchar(100) DEFAULT NULL,
+  `outcome` varchar(20) NOT NULL,
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_payment_events_event` (`event_id`),
+  KEY `idx_payment_events_gateway_order` (`gateway_order_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+ALTER TABLE `orders` ADD KEY `idx_orders_razorpay_order_id` (`razorpay_order_id`);
@@ -0,0 +1,13 @@
+-- Responses replayed for retried requests carrying an Idempotency-Key. key_hash is the
+-- SHA-256 of endpoint, user and key; expired rows are purged by the application.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+  `key_hash` char(64) NOT NULL,
+  `status_code` int NOT NULL,
+  `body` text,
+  `expires_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`key_hash`),
+  KEY `idx_idempotency_keys_expires` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
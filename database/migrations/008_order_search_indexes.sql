@@ -0,0 +1,13 @@
+-- Indexes behind the paged admin order search: newest-first listing, status and payment
+-- status filters with a date range, and per-customer history. The (user_id, order_date)
+-- key also serves the user_id foreign key.
+
+USE `harishma_sarees_zone`;
+
+ALTER TABLE `orders`
+  ADD KEY `idx_orders_order_date` (`order_date`),
+  ADD KEY `idx_orders_status_date` (`status`, `order_date`),
+  ADD KEY `idx_orders_payment_status_date` (`payment_status`, `order_date`),
+  ADD KEY `idx_orders_user_date` (`user_id`, `order_date`);
+
+ALTER TABLE `users` ADD KEY `idx_users_name` (`name`);
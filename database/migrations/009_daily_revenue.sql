@@ -0,0 +1,20 @@
+-- Paid revenue and order count per order day. The application backfills an empty table from
+-- orders at startup and keeps it current as payments settle; the INSERT below does the same
+-- backfill by hand.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `daily_revenue` (
+  `day` date NOT NULL,
+  `revenue` decimal(14,2) NOT NULL DEFAULT 0,
+  `order_count` bigint NOT NULL DEFAULT 0,
+  `updated_at` datetime(6) DEFAULT NULL,
+  PRIMARY KEY (`day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `daily_revenue` (`day`, `revenue`, `order_count`, `updated_at`)
+SELECT DATE(`order_date`), SUM(`total_price`), COUNT(*), NOW()
+FROM `orders`
+WHERE `payment_status` = 'SUCCESS' AND `order_date` IS NOT NULL
+GROUP BY DATE(`order_date`)
+ON DUPLICATE KEY UPDATE `revenue` = VALUES(`revenue`), `order_count` = VALUES(`order_count`), `updated_at` = VALUES(`updated_at`);
@@ -0,0 +1,15 @@
+-- Units taken from stock for a checkout whose order has not committed yet. The rows are
+-- written in the same transaction as the stock decrement and deleted in the same
+-- transaction as the order, so whatever is left behind by a crash or a failed checkout
+-- is given back by the claim sweep.
+
+USE `harishma_sarees_zone`;
+
+CREATE TABLE IF NOT EXISTS `stock_claims` (
+  `claim_id` varchar(36) NOT NULL,
+  `product_id` bigint NOT NULL,
+  `quantity` int NOT NULL,
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`claim_id`, `product_id`),
+  KEY `idx_stock_claims_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
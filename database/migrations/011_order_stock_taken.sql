@@ -0,0 +1,7 @@
+-- Whether an order's units have left products.stock. An order paid online only holds its
+-- units until the payment is captured, so it is inserted with 0 and set to 1 by the capture
+-- settlement; orders placed before this change took their stock at checkout.
+
+USE `harishma_sarees_zone`;
+
+ALTER TABLE `orders` ADD COLUMN `stock_taken` tinyint(1) NOT NULL DEFAULT 1;
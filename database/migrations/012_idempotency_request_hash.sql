@@ -0,0 +1,7 @@
+-- SHA-256 of the request body an Idempotency-Key was first used with, so a key reused for
+-- a different request is rejected instead of replaying the other response. Rows stored
+-- before this column existed keep NULL and are not checked.
+
+USE `harishma_sarees_zone`;
+
+ALTER TABLE `idempotency_keys` ADD COLUMN `request_hash` char(64) DEFAULT NULL AFTER `body`;
@@ -100,6 +100,25 @@ export const CartProvider = ({ children }) => {
     }
   };
 
+  // Applies several add/update/remove operations in one request, e.g. when merging a guest cart
+  const applyCartBatch = async (operations) => {
+    if (!user) {
+      toast.error('Please login to add items to cart');
+      return { success: false };
+    }
+
+    try {
+      const response = await axios.post('/api/cart/batch', { operations });
+      setCartItems(response.data);
+      setCartCount(response.data.length);
+      return { success: true };
+    } catch (error) {
+      const message = error.response?.data?.message || 'Failed to update cart';
+      toast.error(message);
+      return { success: false, message };
+    }
+  };
+
   const clearCart = async () => {
     try {
       await axios.delete('/api/cart/clear');
@@ -130,6 +149,7 @@ export const CartProvider = ({ children }) => {
     addToCart,
     updateCartItem,
     removeFromCart,
+    applyCartBatch,
     clearCart,
     getCartTotal,
     getCartItemCount,
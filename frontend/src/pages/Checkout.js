@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import axios from 'axios';
 import {
@@ -21,6 +21,7 @@ const Checkout = () => {
   
   // State management
   const [cartItems, setCartItems] = useState([]);
+  const [summary, setSummary] = useState(null);
   const [loading, setLoading] = useState(true);
   const [processing, setProcessing] = useState(false);
   const [currentStep, setCurrentStep] = useState(1); // 1: Address, 2: Payment, 3: Review
@@ -41,6 +42,9 @@ const Checkout = () => {
   const [paymentMethod, setPaymentMethod] = useState('razorpay'); // razorpay, cod
   const [orderNotes, setOrderNotes] = useState('');
 
+  // One key per checkout visit, so a retried submit replays the first result instead of ordering twice
+  const idempotencyKey = useRef(window.crypto.randomUUID());
+
   useEffect(() => {
     if (user) {
       fetchCartItems();
@@ -63,13 +67,25 @@ const Checkout = () => {
         }
       };
       
-      const response = await axios.get('/api/cart', config);
+      const [response, summaryResponse] = await Promise.all([
+        axios.get('/api/cart', config),
+        axios.get('/api/cart/summary', config)
+      ]);
       if (response.data.length === 0) {
         toast.error('Your cart is empty');
         navigate('/cart');
         return;
       }
       setCartItems(response.data);
+      setSummary(summaryResponse.data);
+
+      // Hold the stock while the buyer fills in address and payment details
+      try {
+        await axios.post('/api/reservations', {}, config);
+      } catch (reservationError) {
+        toast.error(reservationError.response?.data?.message || 'Some items are no longer available');
+        navigate('/cart');
+      }
     } catch (error) {
       console.error('Error fetching cart items:', error);
       toast.error('Failed to load cart items');
@@ -89,25 +105,14 @@ const Checkout = () => {
     }
   };
 
-  // Calculate totals
-  const calculateSubtotal = () => {
-    return cartItems.reduce((total, item) => total + (item.product.price * item.quantity), 0);
-  };
+  // Totals come from the server-side cart summary so they match what the order is charged
+  const calculateSubtotal = () => Number(summary?.subtotal ?? 0);
 
-  const calculateTax = (subtotal) => {
-    return subtotal * 0.18; // 18% GST
-  };
+  const calculateTax = () => Number(summary?.tax ?? 0);
 
-  const calculateShipping = (subtotal) => {
-    return subtotal > 500 ? 0 : 50; // Free shipping above ₹500
-  };
+  const calculateShipping = () => Number(summary?.shipping ?? 0);
 
-  const calculateTotal = () => {
-    const subtotal = calculateSubtotal();
-    const tax = calculateTax(subtotal);
-    const shipping = calculateShipping(subtotal);
-    return subtotal + tax + shipping;
-  };
+  const calculateTotal = () => Number(summary?.total ?? 0);
 
   const formatPrice = (price) => {
     return new Intl.NumberFormat('en-IN', {
@@ -166,7 +171,8 @@ const Checkout = () => {
       const config = {
         headers: {
           'Authorization': `Bearer ${token}`,
-          'Content-Type': 'application/json'
+          'Content-Type': 'application/json',
+          'Idempotency-Key': idempotencyKey.current
         }
       };
       
@@ -202,10 +208,8 @@ const Checkout = () => {
   // Razorpay integration
   const handleRazorpayPayment = async (orderData, config) => {
     try {
-      // Create Razorpay order
-      const razorpayResponse = await axios.post('/api/payment/create-order', {
-        amount: calculateTotal()
-      }, config);
+      // Place the order awaiting payment and create the Razorpay order for its total
+      const razorpayResponse = await axios.post('/api/payment/create-order', orderData, config);
       
       const options = {
         key: process.env.REACT_APP_RAZORPAY_KEY_ID, // You'll need to add this to .env
@@ -216,11 +220,10 @@ const Checkout = () => {
         order_id: razorpayResponse.data.id,
         handler: async function (response) {
           try {
-            // Verify payment and create order
-            const verifyResponse = await axios.post('/api/payment/verify', {
-              ...response,
-              orderData
-            }, config);
+            // Verify payment; the order is marked paid once the payment is settled
+            const verifyResponse = await axios.post('/api/payment/verify', response, {
+              headers: { ...config.headers, 'Idempotency-Key': `${idempotencyKey.current}-verify` }
+            });
             
             toast.success('Payment successful! Order placed.');
             navigate(`/orders/${verifyResponse.data.orderId}`);
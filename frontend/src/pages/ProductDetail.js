@@ -29,12 +29,12 @@ const ProductDetail = () => {
   const [quantity, setQuantity] = useState(1);
   const [selectedSize, setSelectedSize] = useState('');
   const [relatedProducts, setRelatedProducts] = useState([]);
+  const [relatedTitle, setRelatedTitle] = useState('Related Products');
   const [isWishlisted, setIsWishlisted] = useState(false);
 
   useEffect(() => {
     if (id) {
       fetchProduct();
-      fetchRelatedProducts();
     }
   }, [id]);
 
@@ -44,6 +44,7 @@ const ProductDetail = () => {
       const response = await axios.get(`/api/products/${id}`);
       setProduct(response.data);
       setSelectedSize(response.data.size || '');
+      fetchRelatedProducts(response.data);
     } catch (error) {
       console.error('Error fetching product:', error);
       if (error.response?.status === 404) {
@@ -57,10 +58,26 @@ const ProductDetail = () => {
     }
   };
 
-  const fetchRelatedProducts = async () => {
+  const fetchRelatedProducts = async (currentProduct) => {
     try {
-      // Fetch products from the same category
+      // Sold out: in-stock alternatives first
+      if (currentProduct.stock === 0) {
+        const similar = await axios.get(`/api/products/${id}/similar?limit=4`);
+        if (similar.data.length > 0) {
+          setRelatedTitle('Similar Sarees In Stock');
+          setRelatedProducts(similar.data);
+          return;
+        }
+      }
+      // Frequently bought together, falling back to the latest products
+      const related = await axios.get(`/api/products/${id}/related?limit=4`);
+      if (related.data.length > 0) {
+        setRelatedTitle('Frequently Bought Together');
+        setRelatedProducts(related.data);
+        return;
+      }
       const response = await axios.get(`/api/products?size=4&page=0`);
+      setRelatedTitle('Related Products');
       setRelatedProducts(response.data.content.filter(p => p.id !== parseInt(id)));
     } catch (error) {
       console.error('Error fetching related products:', error);
@@ -516,7 +533,7 @@ const ProductDetail = () => {
         {/* Related Products */}
         {relatedProducts.length > 0 && (
           <div className="mt-16">
-            <h2 className="text-2xl font-bold text-gray-900 mb-8">Related Products</h2>
+            <h2 className="text-2xl font-bold text-gray-900 mb-8">{relatedTitle}</h2>
             <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-4 gap-6">
               {relatedProducts.slice(0, 4).map((relatedProduct) => {
                 const relatedImagePaths = getImagePaths(relatedProduct);
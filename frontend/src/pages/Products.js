@@ -407,6 +407,7 @@ const Products = () => {
                   className="border border-gray-300 rounded-lg px-3 py-2 focus:ring-2 focus:ring-maroon-500 focus:border-transparent"
                 >
                   <option value="id-desc">Newest First</option>
+                  <option value="bestsellers-desc">Bestsellers</option>
                   <option value="id-asc">Oldest First</option>
                   <option value="price-asc">Price: Low to High</option>
                   <option value="price-desc">Price: High to Low</option>
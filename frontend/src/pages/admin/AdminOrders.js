@@ -24,7 +24,11 @@ import { toast } from 'react-toastify';
 
 const AdminOrders = () => {
   const [orders, setOrders] = useState([]);
+  const [page, setPage] = useState(0);
+  const [totalPages, setTotalPages] = useState(0);
+  const [totalOrders, setTotalOrders] = useState(0);
   const [loading, setLoading] = useState(true);
+  const [loaded, setLoaded] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
   const [filterStatus, setFilterStatus] = useState('all');
   const [showModal, setShowModal] = useState(false);
@@ -32,6 +36,8 @@ const AdminOrders = () => {
   const [selectedOrder, setSelectedOrder] = useState(null);
   const [showActions, setShowActions] = useState(null);
   const [statusUpdate, setStatusUpdate] = useState('');
+  const [selectedIds, setSelectedIds] = useState([]);
+  const [bulkStatus, setBulkStatus] = useState('');
 
   const orderStatuses = [
     { value: 'PENDING', label: 'Pending', color: 'bg-yellow-100 text-yellow-800' },
@@ -49,14 +55,25 @@ const AdminOrders = () => {
   ];
 
   useEffect(() => {
-    fetchOrders();
-  }, []);
+    setSelectedIds([]);
+  }, [page, filterStatus, searchTerm]);
+
+  useEffect(() => {
+    // Debounce typing in the search box; filters are applied by the server
+    const timer = setTimeout(fetchOrders, 300);
+    return () => clearTimeout(timer);
+  }, [page, filterStatus, searchTerm]);
 
   const fetchOrders = async () => {
     try {
       setLoading(true);
-      const response = await axios.get('/api/admin/orders');
-      setOrders(response.data);
+      const params = { page, size: 20 };
+      if (filterStatus !== 'all') params.status = filterStatus;
+      if (searchTerm.trim()) params.customer = searchTerm.trim();
+      const response = await axios.get('/api/admin/orders', { params });
+      setOrders(response.data.content);
+      setTotalPages(response.data.totalPages);
+      setTotalOrders(response.data.totalElements);
     } catch (error) {
       console.error('Error fetching orders:', error);
       toast.error('Failed to fetch orders');
@@ -79,13 +96,13 @@ const AdminOrders = () => {
           orderItems: [
             {
               id: 1,
-              product: { name: 'Elegant Silk Saree', category: 'Silk Sarees' },
+              productName: 'Elegant Silk Saree', category: 'Silk Sarees',
               quantity: 2,
               price: 2500.00
             },
             {
               id: 2,
-              product: { name: 'Designer Party Saree', category: 'Designer Sarees' },
+              productName: 'Designer Party Saree', category: 'Designer Sarees',
               quantity: 1,
               price: 2500.00
             }
@@ -108,7 +125,7 @@ const AdminOrders = () => {
           orderItems: [
             {
               id: 3,
-              product: { name: 'Designer Party Saree', category: 'Designer Sarees' },
+              productName: 'Designer Party Saree', category: 'Designer Sarees',
               quantity: 1,
               price: 4500.00
             }
@@ -131,7 +148,7 @@ const AdminOrders = () => {
           orderItems: [
             {
               id: 4,
-              product: { name: 'Cotton Casual Saree', category: 'Cotton Sarees' },
+              productName: 'Cotton Casual Saree', category: 'Cotton Sarees',
               quantity: 2,
               price: 800.00
             }
@@ -140,6 +157,7 @@ const AdminOrders = () => {
       ]);
     } finally {
       setLoading(false);
+      setLoaded(true);
     }
   };
 
@@ -170,6 +188,36 @@ const AdminOrders = () => {
     }
   };
 
+  const toggleSelected = (orderId) => {
+    setSelectedIds(selectedIds.includes(orderId)
+      ? selectedIds.filter(id => id !== orderId)
+      : [...selectedIds, orderId]);
+  };
+
+  const toggleSelectAll = () => {
+    setSelectedIds(selectedIds.length === orders.length ? [] : orders.map(order => order.id));
+  };
+
+  const handleBulkStatusUpdate = async () => {
+    if (!bulkStatus || selectedIds.length === 0) return;
+    try {
+      const response = await axios.put('/api/admin/orders/status', { orderIds: selectedIds, status: bulkStatus });
+      const { updated, results } = response.data;
+      const skipped = results.filter(result => result.outcome !== 'UPDATED' && result.outcome !== 'UNCHANGED').length;
+      if (skipped > 0) {
+        toast.warning(`${updated} order${updated !== 1 ? 's' : ''} updated, ${skipped} skipped (not allowed from current status)`);
+      } else {
+        toast.success(`${updated} order${updated !== 1 ? 's' : ''} updated`);
+      }
+      setSelectedIds([]);
+      setBulkStatus('');
+      fetchOrders();
+    } catch (error) {
+      console.error('Error updating order statuses:', error);
+      toast.error('Failed to update order statuses');
+    }
+  };
+
   const getStatusIcon = (status) => {
     switch (status) {
       case 'PENDING':
@@ -196,14 +244,6 @@ const AdminOrders = () => {
     return statusObj ? statusObj.color : 'bg-gray-100 text-gray-800';
   };
 
-  const filteredOrders = orders.filter(order => {
-    const matchesSearch = order.orderNumber.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                         order.user.name.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                         order.user.email.toLowerCase().includes(searchTerm.toLowerCase());
-    const matchesStatus = filterStatus === 'all' || order.status === filterStatus;
-    return matchesSearch && matchesStatus;
-  });
-
   const formatPrice = (price) => {
     return new Intl.NumberFormat('en-IN', {
       style: 'currency',
@@ -221,7 +261,8 @@ const AdminOrders = () => {
     });
   };
 
-  if (loading) {
+  // Full-page spinner only on first load, so the search box keeps focus while filtering
+  if (loading && !loaded) {
     return (
       <div className="min-h-screen bg-gray-50 flex items-center justify-center">
         <div className="loading-spinner"></div>
@@ -245,7 +286,7 @@ const AdminOrders = () => {
               <div className="flex items-center bg-blue-50 px-3 py-2 rounded-lg">
                 <ShoppingBag className="h-5 w-5 text-blue-600 mr-2" />
                 <span className="text-sm font-medium text-blue-600">
-                  {filteredOrders.length} Orders
+                  {totalOrders} Orders
                 </span>
               </div>
             </div>
@@ -262,9 +303,9 @@ const AdminOrders = () => {
                 <Search className="absolute left-3 top-1/2 transform -translate-y-1/2 text-gray-400 h-5 w-5" />
                 <input
                   type="text"
-                  placeholder="Search by order number, customer name, or email..."
+                  placeholder="Search by customer name or email..."
                   value={searchTerm}
-                  onChange={(e) => setSearchTerm(e.target.value)}
+                  onChange={(e) => { setSearchTerm(e.target.value); setPage(0); }}
                   className="input-field pl-10"
                 />
               </div>
@@ -274,7 +315,7 @@ const AdminOrders = () => {
                 <Filter className="absolute left-3 top-1/2 transform -translate-y-1/2 text-gray-400 h-5 w-5" />
                 <select
                   value={filterStatus}
-                  onChange={(e) => setFilterStatus(e.target.value)}
+                  onChange={(e) => { setFilterStatus(e.target.value); setPage(0); }}
                   className="input-field pl-10 appearance-none"
                 >
                   <option value="all">All Statuses</option>
@@ -285,6 +326,28 @@ const AdminOrders = () => {
               </div>
             </div>
           </div>
+          {selectedIds.length > 0 && (
+            <div className="flex flex-col sm:flex-row sm:items-center gap-4 mt-4 pt-4 border-t border-gray-200">
+              <span className="text-sm text-gray-700">{selectedIds.length} selected</span>
+              <select
+                value={bulkStatus}
+                onChange={(e) => setBulkStatus(e.target.value)}
+                className="input-field sm:w-48"
+              >
+                <option value="">Mark selected as...</option>
+                {orderStatuses.map(status => (
+                  <option key={status.value} value={status.value}>{status.label}</option>
+                ))}
+              </select>
+              <button
+                onClick={handleBulkStatusUpdate}
+                disabled={!bulkStatus}
+                className="btn-primary disabled:opacity-50"
+              >
+                Apply
+              </button>
+            </div>
+          )}
         </div>
 
         {/* Orders Table */}
@@ -293,6 +356,13 @@ const AdminOrders = () => {
             <table className="min-w-full divide-y divide-gray-200">
               <thead className="bg-gray-50">
                 <tr>
+                  <th className="px-6 py-3 text-left">
+                    <input
+                      type="checkbox"
+                      checked={orders.length > 0 && selectedIds.length === orders.length}
+                      onChange={toggleSelectAll}
+                    />
+                  </th>
                   <th className="px-6 py-3 text-left text-xs font-medium text-gray-500 uppercase tracking-wider">
                     Order Details
                   </th>
@@ -314,11 +384,18 @@ const AdminOrders = () => {
                 </tr>
               </thead>
               <tbody className="bg-white divide-y divide-gray-200">
-                {filteredOrders.map((order) => (
+                {orders.map((order) => (
                   <tr key={order.id} className="hover:bg-gray-50">
+                    <td className="px-6 py-4 whitespace-nowrap">
+                      <input
+                        type="checkbox"
+                        checked={selectedIds.includes(order.id)}
+                        onChange={() => toggleSelected(order.id)}
+                      />
+                    </td>
                     <td className="px-6 py-4 whitespace-nowrap">
                       <div>
-                        <div className="text-sm font-medium text-gray-900">#{order.orderNumber}</div>
+                        <div className="text-sm font-medium text-gray-900">#{order.id}</div>
                         <div className="text-sm text-gray-500">
                           {order.orderItems.length} item{order.orderItems.length !== 1 ? 's' : ''}
                         </div>
@@ -405,7 +482,29 @@ const AdminOrders = () => {
           </div>
         </div>
 
-        {filteredOrders.length === 0 && (
+        {totalPages > 1 && (
+          <div className="flex items-center justify-between mt-4">
+            <button
+              onClick={() => setPage(page - 1)}
+              disabled={page === 0}
+              className="btn-secondary disabled:opacity-50"
+            >
+              Previous
+            </button>
+            <span className="text-sm text-gray-500">
+              Page {page + 1} of {totalPages}
+            </span>
+            <button
+              onClick={() => setPage(page + 1)}
+              disabled={page + 1 >= totalPages}
+              className="btn-secondary disabled:opacity-50"
+            >
+              Next
+            </button>
+          </div>
+        )}
+
+        {orders.length === 0 && (
           <div className="text-center py-12">
             <ShoppingBag className="mx-auto h-12 w-12 text-gray-400" />
             <h3 className="mt-2 text-sm font-medium text-gray-900">No orders found</h3>
@@ -443,7 +542,7 @@ const AdminOrders = () => {
                         <div className="bg-gray-50 p-4 rounded-lg space-y-2">
                           <div className="flex justify-between">
                             <span className="text-sm text-gray-500">Order Number:</span>
-                            <span className="text-sm font-medium">#{selectedOrder.orderNumber}</span>
+                            <span className="text-sm font-medium">#{selectedOrder.id}</span>
                           </div>
                           <div className="flex justify-between">
                             <span className="text-sm text-gray-500">Date:</span>
@@ -479,7 +578,7 @@ const AdminOrders = () => {
                           </div>
                           <div className="flex items-center">
                             <Phone className="h-4 w-4 text-gray-400 mr-2" />
-                            <span className="text-sm">{selectedOrder.user.phone}</span>
+                            <span className="text-sm">{selectedOrder.phoneNumber}</span>
                           </div>
                           <div className="flex items-start">
                             <MapPin className="h-4 w-4 text-gray-400 mr-2 mt-0.5" />
@@ -508,8 +607,8 @@ const AdminOrders = () => {
                             <tr key={item.id}>
                               <td className="px-4 py-2">
                                 <div>
-                                  <div className="text-sm font-medium text-gray-900">{item.product.name}</div>
-                                  <div className="text-sm text-gray-500">{item.product.category}</div>
+                                  <div className="text-sm font-medium text-gray-900">{item.productName}</div>
+                                  <div className="text-sm text-gray-500">{item.category}</div>
                                 </div>
                               </td>
                               <td className="px-4 py-2 text-sm text-gray-900">{item.quantity}</td>
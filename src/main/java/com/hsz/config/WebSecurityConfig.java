@@ -67,6 +67,7 @@ public class WebSecurityConfig {
                     .requestMatchers("/api/products/**").permitAll()
                     .requestMatchers("/api/banners/**").permitAll()
                     .requestMatchers("/api/reviews/product/**").permitAll()
+                    .requestMatchers("/api/payment/webhook").permitAll()
                     .requestMatchers("/api/admin/**").hasRole("ADMIN")
                     .anyRequest().authenticated()
             );
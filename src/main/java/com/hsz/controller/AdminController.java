@@ -1,18 +1,30 @@
 package com.hsz.controller;
 
+import com.hsz.dto.MessageResponse;
 import com.hsz.model.Order;
+import com.hsz.model.Product;
 import com.hsz.model.User;
 import com.hsz.repository.UserRepository;
 import com.hsz.repository.ProductRepository;
 import com.hsz.repository.OrderRepository;
+import com.hsz.service.BestsellerTracker;
+import com.hsz.service.OrderFactStore;
+import com.hsz.service.OrderStatusCounts;
+import com.hsz.service.RevenueRollupService;
+import com.hsz.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -30,6 +42,18 @@ public class AdminController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderStatusCounts orderStatusCounts;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private OrderFactStore orderFactStore;
+
+    @Autowired
+    private BestsellerTracker bestsellerTracker;
+
     @GetMapping("/dashboard/stats")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -37,13 +61,9 @@ public class AdminController {
         // Get basic counts
         long totalUsers = userRepository.countByRole("USER");
         long totalProducts = productRepository.count();
-        long totalOrders = orderRepository.count();
+        long totalOrders = orderStatusCounts.total();
         
-        // Calculate total revenue (mock calculation)
-        BigDecimal totalRevenue = orderRepository.calculateTotalRevenue();
-        if (totalRevenue == null) {
-            totalRevenue = BigDecimal.valueOf(125000); // Mock data
-        }
+        BigDecimal totalRevenue = revenueRollupService.total().getRevenue();
         
         stats.put("totalUsers", totalUsers);
         stats.put("totalProducts", totalProducts);
@@ -80,47 +100,74 @@ public class AdminController {
 
     @GetMapping("/orders/count")
     public ResponseEntity<Long> getOrderCount() {
-        long orderCount = orderRepository.count();
+        long orderCount = orderStatusCounts.total();
         return ResponseEntity.ok(orderCount);
     }
 
 
     @GetMapping("/revenue/total")
     public ResponseEntity<BigDecimal> getTotalRevenue() {
-        BigDecimal totalRevenue = orderRepository.calculateTotalRevenue();
-        if (totalRevenue == null) {
-            totalRevenue = BigDecimal.valueOf(125000); // Mock data
-        }
-        return ResponseEntity.ok(totalRevenue);
+        return ResponseEntity.ok(revenueRollupService.total().getRevenue());
+    }
+
+    @GetMapping("/revenue/today")
+    public ResponseEntity<Map<String, Object>> getTodaysRevenue() {
+        LocalDate today = LocalDate.now();
+        RevenueRollupService.Totals totals = revenueRollupService.between(today, today.plusDays(1));
+        Map<String, Object> response = new HashMap<>();
+        response.put("revenue", totals.getRevenue());
+        response.put("orders", totals.getOrders());
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/revenue/monthly")
-    public ResponseEntity<Map<String, Object>> getMonthlyRevenue() {
-        Map<String, Object> monthlyData = new HashMap<>();
-        
-        // Mock monthly revenue data (replace with real calculation)
-        Map<String, BigDecimal> monthlyRevenue = new HashMap<>();
-        monthlyRevenue.put("January", BigDecimal.valueOf(45000));
-        monthlyRevenue.put("February", BigDecimal.valueOf(52000));
-        monthlyRevenue.put("March", BigDecimal.valueOf(48000));
-        monthlyRevenue.put("April", BigDecimal.valueOf(61000));
-        monthlyRevenue.put("May", BigDecimal.valueOf(55000));
-        monthlyRevenue.put("June", BigDecimal.valueOf(67000));
-        
-        monthlyData.put("monthlyRevenue", monthlyRevenue);
-        return ResponseEntity.ok(monthlyData);
+    public ResponseEntity<List<Map<String, Object>>> getMonthlyRevenue(@RequestParam(defaultValue = "12") int months) {
+        return ResponseEntity.ok(revenueRollupService.monthly(Math.max(1, Math.min(months, 60))));
+    }
+
+    @GetMapping("/revenue/weekly")
+    public ResponseEntity<List<Map<String, Object>>> getWeeklyRevenue(@RequestParam(defaultValue = "12") int weeks) {
+        return ResponseEntity.ok(revenueRollupService.weekly(Math.max(1, Math.min(weeks, 104))));
     }
 
+    // window is all, 7d or 30d
     @GetMapping("/products/top-selling")
-    public ResponseEntity<List<Map<String, Object>>> getTopSellingProducts() {
-        // Mock top selling products data
-        List<Map<String, Object>> topProducts = List.of(
-            Map.of("name", "Elegant Silk Saree", "sales", 45, "revenue", 112500),
-            Map.of("name", "Designer Party Saree", "sales", 32, "revenue", 144000),
-            Map.of("name", "Traditional Banarasi", "sales", 28, "revenue", 168000),
-            Map.of("name", "Cotton Casual Saree", "sales", 67, "revenue", 53600)
-        );
-        
+    public ResponseEntity<?> getTopSellingProducts(@RequestParam(defaultValue = "all") String window,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        BestsellerTracker.Window trackerWindow;
+        switch (window.toLowerCase(Locale.ROOT)) {
+            case "all":
+                trackerWindow = BestsellerTracker.Window.ALL_TIME;
+                break;
+            case "7d":
+                trackerWindow = BestsellerTracker.Window.LAST_7_DAYS;
+                break;
+            case "30d":
+                trackerWindow = BestsellerTracker.Window.LAST_30_DAYS;
+                break;
+            default:
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Unknown window"));
+        }
+
+        List<BestsellerTracker.Entry> top = bestsellerTracker.top(trackerWindow, Math.min(limit, BestsellerTracker.MAX_TOP));
+        List<Long> ids = new ArrayList<>();
+        for (BestsellerTracker.Entry entry : top) {
+            ids.add(entry.getProductId());
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            names.put(product.getId(), product.getName());
+        }
+
+        List<Map<String, Object>> topProducts = new ArrayList<>();
+        for (BestsellerTracker.Entry entry : top) {
+            Map<String, Object> product = new HashMap<>();
+            product.put("id", entry.getProductId());
+            product.put("name", names.get(entry.getProductId()));
+            product.put("sales", entry.getUnits());
+            product.put("revenue", Money.ofPaise(entry.getRevenuePaise()).toBigDecimal());
+            topProducts.add(product);
+        }
         return ResponseEntity.ok(topProducts);
     }
 
@@ -165,17 +212,66 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getAnalyticsOverview() {
         Map<String, Object> analytics = new HashMap<>();
         
-        // Growth percentages (mock data)
-        analytics.put("userGrowth", 12.5);
-        analytics.put("productGrowth", 8.3);
-        analytics.put("orderGrowth", 23.1);
-        analytics.put("revenueGrowth", 18.7);
+        // Last 30 days including today against the 30 days before
+        LocalDate end = LocalDate.now().plusDays(1);
+        LocalDate start = end.minusDays(30);
+        LocalDate previousStart = start.minusDays(30);
+        RevenueRollupService.Totals current = revenueRollupService.between(start, end);
+        RevenueRollupService.Totals previous = revenueRollupService.between(previousStart, start);
+        
+        analytics.put("userGrowth", growth(
+                userRepository.countByRoleAndCreatedAtGreaterThanEqualAndCreatedAtLessThan("USER", start.atStartOfDay(), end.atStartOfDay()),
+                userRepository.countByRoleAndCreatedAtGreaterThanEqualAndCreatedAtLessThan("USER", previousStart.atStartOfDay(), start.atStartOfDay())));
+        analytics.put("productGrowth", growth(
+                productRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(start.atStartOfDay(), end.atStartOfDay()),
+                productRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(previousStart.atStartOfDay(), start.atStartOfDay())));
+        analytics.put("orderGrowth", growth(BigDecimal.valueOf(current.getOrders()), BigDecimal.valueOf(previous.getOrders())));
+        analytics.put("revenueGrowth", growth(current.getRevenue(), previous.getRevenue()));
         
-        // Additional metrics
-        analytics.put("averageOrderValue", 2340);
-        analytics.put("conversionRate", 3.2);
-        analytics.put("customerRetentionRate", 68.5);
+        analytics.put("averageOrderValue", current.getOrders() == 0 ? BigDecimal.ZERO
+                : current.getRevenue().divide(BigDecimal.valueOf(current.getOrders()), 2, RoundingMode.HALF_UP));
         
         return ResponseEntity.ok(analytics);
     }
+
+    // Revenue, orders, items and average order value of order items grouped by one dimension;
+    // every filter is optional and dates are inclusive days
+    @GetMapping("/analytics/orders")
+    public ResponseEntity<?> getOrderAnalytics(@RequestParam(defaultValue = "none") String groupBy,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                               @RequestParam(required = false) String category,
+                                               @RequestParam(required = false) String status,
+                                               @RequestParam(required = false) String paymentStatus) {
+        OrderFactStore.Dimension dimension;
+        Order.OrderStatus orderStatus;
+        Order.PaymentStatus orderPaymentStatus;
+        try {
+            dimension = OrderFactStore.Dimension.valueOf(groupBy.toUpperCase(Locale.ROOT).replace('-', '_'));
+            orderStatus = status == null || status.isBlank() ? null : Order.OrderStatus.valueOf(status.toUpperCase(Locale.ROOT));
+            orderPaymentStatus = paymentStatus == null || paymentStatus.isBlank()
+                    ? null : Order.PaymentStatus.valueOf(paymentStatus.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Unknown grouping or status"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("groupBy", dimension.name());
+        response.put("facts", orderFactStore.size());
+        response.put("rows", orderFactStore.aggregate(dimension, from, to == null ? null : to.plusDays(1),
+                category == null || category.isBlank() ? null : category, orderStatus, orderPaymentStatus));
+        return ResponseEntity.ok(response);
+    }
+
+    private static BigDecimal growth(Long current, Long previous) {
+        return growth(BigDecimal.valueOf(current == null ? 0 : current), BigDecimal.valueOf(previous == null ? 0 : previous));
+    }
+
+    // Percentage change; null when there is nothing to compare against
+    private static BigDecimal growth(BigDecimal current, BigDecimal previous) {
+        if (previous.signum() == 0) {
+            return null;
+        }
+        return current.subtract(previous).multiply(BigDecimal.valueOf(100)).divide(previous, 1, RoundingMode.HALF_UP);
+    }
 }
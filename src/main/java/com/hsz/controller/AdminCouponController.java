@@ -0,0 +1,163 @@
+package com.hsz.controller;
+
+import com.hsz.dto.BulkCouponRequest;
+import com.hsz.dto.MessageResponse;
+import com.hsz.model.Coupon;
+import com.hsz.repository.CouponRepository;
+import com.hsz.service.CouponGenerationService;
+import com.hsz.service.CouponRedemptionService;
+import com.hsz.service.CouponRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/coupons")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminCouponController {
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponRegistry couponRegistry;
+
+    @Autowired
+    private CouponRedemptionService redemptionService;
+
+    @Autowired
+    private CouponGenerationService couponGenerationService;
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getAllCoupons() {
+        List<Map<String, Object>> coupons = new ArrayList<>();
+        for (Coupon coupon : couponRepository.findAll()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("coupon", coupon);
+            entry.put("state", couponRegistry.getState(coupon.getId()));
+            coupons.add(entry);
+        }
+        return ResponseEntity.ok(coupons);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Coupon> getCouponById(@PathVariable Long id) {
+        Optional<Coupon> coupon = couponRepository.findById(id);
+        return coupon.map(ResponseEntity::ok)
+                     .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createCoupon(@Valid @RequestBody Coupon coupon) {
+        coupon.setCode(CouponRegistry.normalize(coupon.getCode()));
+        if (couponRepository.existsByCode(coupon.getCode())) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Coupon code already exists!"));
+        }
+
+        coupon.setId(null);
+        coupon.setUsedCount(0);
+        Coupon savedCoupon = couponRepository.save(coupon);
+        couponRegistry.refresh(savedCoupon);
+        return ResponseEntity.ok(savedCoupon);
+    }
+
+    // Generates single-use codes and returns them as a CSV download
+    @PostMapping("/bulk")
+    public ResponseEntity<?> generateCoupons(@Valid @RequestBody BulkCouponRequest request) {
+        List<String> codes;
+        try {
+            codes = couponGenerationService.generate(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("code\n");
+            for (String code : codes) {
+                writer.write(code);
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"coupons.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateCoupon(@PathVariable Long id, @Valid @RequestBody Coupon couponDetails) {
+        Optional<Coupon> optionalCoupon = couponRepository.findById(id);
+        if (!optionalCoupon.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Coupon coupon = optionalCoupon.get();
+        String code = CouponRegistry.normalize(couponDetails.getCode());
+        if (!code.equals(coupon.getCode()) && couponRepository.existsByCode(code)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Coupon code already exists!"));
+        }
+
+        // usedCount is owned by redemptions and never taken from the request
+        coupon.setCode(code);
+        coupon.setDiscountPercent(couponDetails.getDiscountPercent());
+        coupon.setMinOrderAmount(couponDetails.getMinOrderAmount());
+        coupon.setMaxDiscountAmount(couponDetails.getMaxDiscountAmount());
+        coupon.setValidFrom(couponDetails.getValidFrom());
+        coupon.setValidTill(couponDetails.getValidTill());
+        coupon.setUsageLimit(couponDetails.getUsageLimit());
+        coupon.setIsActive(couponDetails.getIsActive());
+        coupon.setDescription(couponDetails.getDescription());
+
+        Coupon updatedCoupon = couponRepository.save(coupon);
+        redemptionService.onLimitChanged(updatedCoupon);
+        couponRegistry.refresh(updatedCoupon);
+        return ResponseEntity.ok(updatedCoupon);
+    }
+
+    @PutMapping("/{id}/toggle-active")
+    public ResponseEntity<Coupon> toggleActive(@PathVariable Long id) {
+        Optional<Coupon> optionalCoupon = couponRepository.findById(id);
+        if (!optionalCoupon.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Coupon coupon = optionalCoupon.get();
+        coupon.setIsActive(!Boolean.TRUE.equals(coupon.getIsActive()));
+        Coupon updatedCoupon = couponRepository.save(coupon);
+        couponRegistry.refresh(updatedCoupon);
+        return ResponseEntity.ok(updatedCoupon);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, String>> deleteCoupon(@PathVariable Long id) {
+        if (!couponRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        couponRepository.deleteById(id);
+        couponRegistry.remove(id);
+        redemptionService.forget(id);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Coupon deleted successfully");
+        return ResponseEntity.ok(response);
+    }
+}
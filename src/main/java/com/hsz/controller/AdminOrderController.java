@@ -1,14 +1,34 @@
 package com.hsz.controller;
 
+import com.hsz.dto.AdminOrderView;
+import com.hsz.dto.BulkOrderStatusRequest;
+import com.hsz.dto.MessageResponse;
 import com.hsz.model.Order;
+import com.hsz.repository.OrderItemRepository;
 import com.hsz.repository.OrderRepository;
+import com.hsz.service.AdminOrderService;
+import com.hsz.service.BulkOrderStatusService;
+import com.hsz.service.OrderStatusCounts;
+import com.hsz.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.Valid;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -18,13 +38,71 @@ import java.util.Optional;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminOrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderStatusCounts orderStatusCounts;
+
+    @Autowired
+    private AdminOrderService adminOrderService;
+
+    @Autowired
+    private BulkOrderStatusService bulkOrderStatusService;
+
+    // Newest first; every filter is optional, dates are inclusive days, customer is a name or email prefix
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderRepository.findAllOrdersByDateDesc();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getAllOrders(@RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "20") int size,
+                                          @RequestParam(required = false) String status,
+                                          @RequestParam(required = false) String paymentStatus,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) Long customerId,
+                                          @RequestParam(required = false) String customer) {
+        Order.OrderStatus orderStatus;
+        Order.PaymentStatus orderPaymentStatus;
+        try {
+            orderStatus = status == null || status.isBlank() ? null : Order.OrderStatus.valueOf(status.toUpperCase(Locale.ROOT));
+            orderPaymentStatus = paymentStatus == null || paymentStatus.isBlank()
+                    ? null : Order.PaymentStatus.valueOf(paymentStatus.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Unknown status"));
+        }
+        String customerPrefix = customer == null || customer.isBlank()
+                ? null : customer.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        Page<Object[]> rows = orderRepository.searchForAdmin(orderStatus, orderPaymentStatus,
+                from == null ? null : from.atStartOfDay(),
+                to == null ? null : to.plusDays(1).atStartOfDay(),
+                customerId, customerPrefix, pageable);
+
+        Map<Long, AdminOrderView> views = new LinkedHashMap<>();
+        for (Object[] row : rows.getContent()) {
+            AdminOrderView view = new AdminOrderView();
+            view.setId((Long) row[0]);
+            view.setOrderDate((LocalDateTime) row[1]);
+            view.setStatus((Order.OrderStatus) row[2]);
+            view.setPaymentStatus((Order.PaymentStatus) row[3]);
+            view.setTotalPrice((BigDecimal) row[4]);
+            view.setShippingAddress((String) row[5]);
+            view.setPhoneNumber((String) row[6]);
+            view.setUser(new AdminOrderView.Customer((Long) row[7], (String) row[8], (String) row[9]));
+            views.put(view.getId(), view);
+        }
+        if (!views.isEmpty()) {
+            for (Object[] line : orderItemRepository.findLinesByOrderIds(views.keySet())) {
+                views.get((Long) line[0]).getOrderItems().add(new AdminOrderView.Item((Long) line[1], (Long) line[2],
+                        (String) line[3], (String) line[4], (Integer) line[5], (Money) line[6]));
+            }
+        }
+        return ResponseEntity.ok(new PageImpl<>(new ArrayList<>(views.values()), pageable, rows.getTotalElements()));
     }
 
     @GetMapping("/{id}")
@@ -34,51 +112,73 @@ public class AdminOrderController {
                    .orElse(ResponseEntity.notFound().build());
     }
 
+    // Same transitions and side effects as the bulk endpoint, for one order
     @PutMapping("/{id}/status")
-    public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id, @RequestBody Map<String, String> request) {
+    public ResponseEntity<?> updateOrderStatus(@PathVariable Long id, @RequestBody Map<String, String> request) {
+        String newStatus = request.get("status");
+        if (newStatus == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        Order.OrderStatus status;
         try {
-            Optional<Order> optionalOrder = orderRepository.findById(id);
-            
-            if (!optionalOrder.isPresent()) {
+            status = Order.OrderStatus.valueOf(newStatus);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        BulkOrderStatusService.Result result = bulkOrderStatusService.apply(List.of(id), status).get(0);
+        switch (result.getOutcome()) {
+            case NOT_FOUND:
                 return ResponseEntity.notFound().build();
+            case INVALID_TRANSITION:
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(
+                        "Error: An order cannot move from " + result.getPreviousStatus() + " to " + status));
+            case CONFLICT:
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new MessageResponse("Error: Order status was changed by someone else, reload the order"));
+            case FAILED:
+                return ResponseEntity.internalServerError().body(new MessageResponse("Error: Could not update order status"));
+            default:
+                return orderRepository.findById(id)
+                        .<ResponseEntity<?>>map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+    }
+
+    // Moves a batch of orders to one status; transitions are validated and each id gets its own outcome
+    @PutMapping("/status")
+    public ResponseEntity<Map<String, Object>> updateOrderStatuses(@Valid @RequestBody BulkOrderStatusRequest request) {
+        List<BulkOrderStatusService.Result> results =
+                bulkOrderStatusService.apply(request.getOrderIds(), request.getStatus());
+        long updated = 0;
+        long failed = 0;
+        for (BulkOrderStatusService.Result result : results) {
+            if (result.getOutcome() == BulkOrderStatusService.Outcome.UPDATED) {
+                updated++;
+            } else if (result.getOutcome() == BulkOrderStatusService.Outcome.FAILED) {
+                failed++;
             }
-            
-            Order order = optionalOrder.get();
-            String newStatus = request.get("status");
-            
-            if (newStatus != null) {
-                try {
-                    Order.OrderStatus status = Order.OrderStatus.valueOf(newStatus);
-                    order.setStatus(status);
-                    
-                    Order updatedOrder = orderRepository.save(order);
-                    return ResponseEntity.ok(updatedOrder);
-                } catch (IllegalArgumentException e) {
-                    return ResponseEntity.badRequest().build();
-                }
-            } else {
-                return ResponseEntity.badRequest().build();
-            }
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
         }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", request.getStatus());
+        response.put("updated", updated);
+        response.put("failed", failed);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
     }
 
+    // Served from in-memory counters; no query per dashboard load
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getOrderStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        long totalOrders = orderRepository.count();
-        long pendingOrders = orderRepository.countOrdersByStatus(Order.OrderStatus.PENDING);
-        long processingOrders = orderRepository.countOrdersByStatus(Order.OrderStatus.PROCESSING);
-        long shippedOrders = orderRepository.countOrdersByStatus(Order.OrderStatus.SHIPPED);
-        long deliveredOrders = orderRepository.countOrdersByStatus(Order.OrderStatus.DELIVERED);
-        
-        stats.put("totalOrders", totalOrders);
-        stats.put("pendingOrders", pendingOrders);
-        stats.put("processingOrders", processingOrders);
-        stats.put("shippedOrders", shippedOrders);
-        stats.put("deliveredOrders", deliveredOrders);
+        stats.put("totalOrders", orderStatusCounts.total());
+        stats.put("pendingOrders", orderStatusCounts.get(Order.OrderStatus.PENDING));
+        stats.put("processingOrders", orderStatusCounts.get(Order.OrderStatus.PROCESSING));
+        stats.put("shippedOrders", orderStatusCounts.get(Order.OrderStatus.SHIPPED));
+        stats.put("deliveredOrders", orderStatusCounts.get(Order.OrderStatus.DELIVERED));
+        stats.put("byStatus", orderStatusCounts.snapshot());
         
         return ResponseEntity.ok(stats);
     }
@@ -98,12 +198,10 @@ public class AdminOrderController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, String>> deleteOrder(@PathVariable Long id) {
         try {
-            if (!orderRepository.existsById(id)) {
+            if (!adminOrderService.deleteOrder(id)) {
                 return ResponseEntity.notFound().build();
             }
             
-            orderRepository.deleteById(id);
-            
             Map<String, String> response = new HashMap<>();
             response.put("message", "Order deleted successfully");
             return ResponseEntity.ok(response);
@@ -115,24 +213,23 @@ public class AdminOrderController {
     }
 
     @PutMapping("/{id}/payment-status")
-    public ResponseEntity<Order> updatePaymentStatus(@PathVariable Long id, @RequestBody Map<String, String> request) {
+    public ResponseEntity<?> updatePaymentStatus(@PathVariable Long id, @RequestBody Map<String, String> request) {
         try {
-            Optional<Order> optionalOrder = orderRepository.findById(id);
-            
-            if (!optionalOrder.isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Order order = optionalOrder.get();
             String newPaymentStatus = request.get("paymentStatus");
             
             if (newPaymentStatus != null) {
                 try {
                     Order.PaymentStatus paymentStatus = Order.PaymentStatus.valueOf(newPaymentStatus);
-                    order.setPaymentStatus(paymentStatus);
-                    
-                    Order updatedOrder = orderRepository.save(order);
-                    return ResponseEntity.ok(updatedOrder);
+                    AdminOrderService.Result result = adminOrderService.updatePaymentStatus(id, paymentStatus);
+                    switch (result.getOutcome()) {
+                        case NOT_FOUND:
+                            return ResponseEntity.notFound().build();
+                        case CONFLICT:
+                            return ResponseEntity.status(HttpStatus.CONFLICT)
+                                    .body(new MessageResponse("Error: Payment status was changed by someone else, reload the order"));
+                        default:
+                            return ResponseEntity.ok(result.getOrder());
+                    }
                 } catch (IllegalArgumentException e) {
                     return ResponseEntity.badRequest().build();
                 }
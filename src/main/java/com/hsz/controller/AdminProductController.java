@@ -1,13 +1,21 @@
 package com.hsz.controller;
 
+import com.hsz.model.InventoryMovement;
 import com.hsz.model.Product;
 import com.hsz.repository.ProductRepository;
+import com.hsz.service.CartService;
+import com.hsz.service.HotSkuInventoryService;
+import com.hsz.service.InventoryLedgerService;
+import com.hsz.service.SimilarProductIndex;
+import com.hsz.service.StockWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +30,21 @@ public class AdminProductController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Autowired
+    private StockWriter stockWriter;
+
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService;
+
+    @Autowired
+    private SimilarProductIndex similarProductIndex;
+
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         List<Product> products = productRepository.findAll();
@@ -38,7 +61,8 @@ public class AdminProductController {
     @PostMapping
     public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
         try {
-            Product savedProduct = productRepository.save(product);
+            Product savedProduct = inventoryLedgerService.createProduct(product);
+            similarProductIndex.onProductChanged(savedProduct.getId());
             return ResponseEntity.ok(savedProduct);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -61,7 +85,6 @@ public class AdminProductController {
             product.setCategory(productDetails.getCategory());
             product.setDescription(productDetails.getDescription());
             product.setPrice(productDetails.getPrice());
-            product.setStock(productDetails.getStock());
             product.setColor(productDetails.getColor());
             product.setFabric(productDetails.getFabric());
             product.setSize(productDetails.getSize());
@@ -74,6 +97,13 @@ public class AdminProductController {
             }
             
             Product updatedProduct = productRepository.save(product);
+            // Stock goes through the ledger rather than the entity save
+            if (productDetails.getStock() != null && !productDetails.getStock().equals(updatedProduct.getStock())) {
+                inventoryLedgerService.setStock(id, productDetails.getStock(), "Product edit");
+                updatedProduct.setStock(productDetails.getStock());
+            }
+            cartService.onProductChanged(id);
+            similarProductIndex.onProductChanged(id);
             return ResponseEntity.ok(updatedProduct);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -88,6 +118,8 @@ public class AdminProductController {
             }
             
             productRepository.deleteById(id);
+            cartService.onProductChanged(id);
+            similarProductIndex.onProductChanged(id);
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Product deleted successfully");
@@ -131,6 +163,7 @@ public class AdminProductController {
             product.setIsActive(!product.getIsActive());
             
             Product updatedProduct = productRepository.save(product);
+            similarProductIndex.onProductChanged(id);
             return ResponseEntity.ok(updatedProduct);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -194,18 +227,95 @@ public class AdminProductController {
             }
             
             Product product = optionalProduct.get();
+            Integer delta = request.get("delta");
             Integer newStock = request.get("stock");
             
-            if (newStock != null && newStock >= 0) {
-                product.setStock(newStock);
-                
-                Product updatedProduct = productRepository.save(product);
-                return ResponseEntity.ok(updatedProduct);
+            if (delta != null) {
+                // Relative change: composes with orders placed while the admin was editing
+                if (!inventoryLedgerService.adjustStock(id, InventoryMovement.MovementType.ADJUSTMENT, delta, "Stock update")) {
+                    return ResponseEntity.badRequest().build();
+                }
+            } else if (newStock != null && newStock >= 0) {
+                inventoryLedgerService.setStock(id, newStock, "Stock update");
             } else {
                 return ResponseEntity.badRequest().build();
             }
+            
+            Integer hotStock = hotSkuInventoryService.getStock(id);
+            product.setStock(hotStock != null ? hotStock : productRepository.findStockById(id));
+            return ResponseEntity.ok(product);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/{id}/inventory/movements")
+    public ResponseEntity<Map<String, Object>> recordMovement(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        if (!productRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        InventoryMovement.MovementType type;
+        int quantity;
+        try {
+            type = InventoryMovement.MovementType.valueOf(String.valueOf(request.get("type")).toUpperCase());
+            quantity = ((Number) request.get("quantity")).intValue();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Receipts and returns add units, sales remove them; adjustments carry their own sign
+        if (type == InventoryMovement.MovementType.SALE) {
+            quantity = -Math.abs(quantity);
+        } else if (type != InventoryMovement.MovementType.ADJUSTMENT) {
+            quantity = Math.abs(quantity);
+        }
+        Object note = request.get("note");
+        if (quantity == 0 || !inventoryLedgerService.adjustStock(id, type, quantity, note == null ? null : note.toString())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("productId", id);
+        response.put("balance", inventoryLedgerService.getBalance(id));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}/inventory")
+    public ResponseEntity<Map<String, Object>> getInventoryHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("productId", id);
+        response.put("balance", inventoryLedgerService.getBalance(id));
+        response.put("movements", inventoryLedgerService.getHistory(id, start.atStartOfDay(), end.plusDays(1).atStartOfDay()));
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/{id}/hot-sku")
+    public ResponseEntity<Map<String, Object>> setHotSku(@PathVariable Long id, @RequestBody Map<String, Boolean> request) {
+        if (!productRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (Boolean.TRUE.equals(request.get("enabled"))) {
+            hotSkuInventoryService.enable(id);
+        } else {
+            hotSkuInventoryService.disable(id);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", id);
+        response.put("hotSku", hotSkuInventoryService.isHot(id));
+        response.put("stock", hotSkuInventoryService.getStock(id));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/stock-writer/metrics")
+    public ResponseEntity<Map<String, Object>> getStockWriterMetrics() {
+        return ResponseEntity.ok(stockWriter.getMetrics());
+    }
 }
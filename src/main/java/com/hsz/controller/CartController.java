@@ -1,21 +1,19 @@
 package com.hsz.controller;
 
 import com.hsz.config.UserPrincipal;
+import com.hsz.dto.CartBatchRequest;
+import com.hsz.dto.CartSummary;
 import com.hsz.dto.MessageResponse;
 import com.hsz.model.Cart;
-import com.hsz.model.Product;
-import com.hsz.model.User;
-import com.hsz.repository.CartRepository;
-import com.hsz.repository.ProductRepository;
-import com.hsz.repository.UserRepository;
+import com.hsz.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.Valid;
 import java.util.List;
-import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -24,138 +22,105 @@ import java.util.Optional;
 public class CartController {
 
     @Autowired
-    private CartRepository cartRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
-
-    @Autowired
-    private UserRepository userRepository;
+    private CartService cartService;
 
     @GetMapping
     public ResponseEntity<List<Cart>> getCartItems(Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
-        
-        if (user == null) {
-            return ResponseEntity.notFound().build();
-        }
-
-        List<Cart> cartItems = cartRepository.findByUser(user);
+        List<Cart> cartItems = cartService.getCartItems(userPrincipal.getId());
         return ResponseEntity.ok(cartItems);
     }
 
     @PostMapping("/add")
-    public ResponseEntity<?> addToCart(@RequestParam Long productId, 
+    public ResponseEntity<?> addToCart(@RequestParam Long productId,
                                      @RequestParam(defaultValue = "1") Integer quantity,
                                      Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
-        
-        if (user == null) {
-            return ResponseEntity.badRequest().body(new MessageResponse("User not found"));
-        }
 
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (!productOpt.isPresent() || !productOpt.get().getIsActive()) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Product not found"));
+        if (quantity == null || quantity < 1) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Quantity must be at least 1"));
         }
 
-        Product product = productOpt.get();
-        
-        if (product.getStock() < quantity) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Insufficient stock"));
-        }
-
-        Optional<Cart> existingCart = cartRepository.findByUserAndProduct(user, product);
-        
-        if (existingCart.isPresent()) {
-            Cart cart = existingCart.get();
-            int newQuantity = cart.getQuantity() + quantity;
-            
-            if (product.getStock() < newQuantity) {
+        switch (cartService.addItem(userPrincipal.getId(), productId, quantity)) {
+            case PRODUCT_NOT_FOUND:
+                return ResponseEntity.badRequest().body(new MessageResponse("Product not found"));
+            case INSUFFICIENT_STOCK:
                 return ResponseEntity.badRequest().body(new MessageResponse("Insufficient stock"));
-            }
-            
-            cart.setQuantity(newQuantity);
-            cartRepository.save(cart);
-        } else {
-            Cart cart = new Cart(user, product, quantity);
-            cartRepository.save(cart);
+            default:
+                return ResponseEntity.ok(new MessageResponse("Product added to cart successfully"));
         }
-
-        return ResponseEntity.ok(new MessageResponse("Product added to cart successfully"));
     }
 
     @PutMapping("/update/{cartId}")
-    public ResponseEntity<?> updateCartItem(@PathVariable Long cartId, 
+    public ResponseEntity<?> updateCartItem(@PathVariable Long cartId,
                                           @RequestParam Integer quantity,
                                           Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        
-        Optional<Cart> cartOpt = cartRepository.findById(cartId);
-        if (!cartOpt.isPresent()) {
-            return ResponseEntity.notFound().build();
-        }
 
-        Cart cart = cartOpt.get();
-        
-        if (!cart.getUser().getId().equals(userPrincipal.getId())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Unauthorized"));
+        if (quantity == null || quantity < 1) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Quantity must be at least 1"));
         }
 
-        if (cart.getProduct().getStock() < quantity) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Insufficient stock"));
+        switch (cartService.updateItem(userPrincipal.getId(), cartId, quantity)) {
+            case NOT_FOUND:
+                return ResponseEntity.notFound().build();
+            case PRODUCT_NOT_FOUND:
+                return ResponseEntity.badRequest().body(new MessageResponse("Product not found"));
+            case INSUFFICIENT_STOCK:
+                return ResponseEntity.badRequest().body(new MessageResponse("Insufficient stock"));
+            default:
+                return ResponseEntity.ok(new MessageResponse("Cart updated successfully"));
         }
-
-        cart.setQuantity(quantity);
-        cartRepository.save(cart);
-
-        return ResponseEntity.ok(new MessageResponse("Cart updated successfully"));
     }
 
     @DeleteMapping("/remove/{cartId}")
     public ResponseEntity<?> removeFromCart(@PathVariable Long cartId, Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        
-        Optional<Cart> cartOpt = cartRepository.findById(cartId);
-        if (!cartOpt.isPresent()) {
-            return ResponseEntity.notFound().build();
-        }
 
-        Cart cart = cartOpt.get();
-        
-        if (!cart.getUser().getId().equals(userPrincipal.getId())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Unauthorized"));
+        if (cartService.removeItem(userPrincipal.getId(), cartId) == CartService.Result.NOT_FOUND) {
+            return ResponseEntity.notFound().build();
         }
-
-        cartRepository.delete(cart);
         return ResponseEntity.ok(new MessageResponse("Product removed from cart"));
     }
 
     @DeleteMapping("/clear")
     public ResponseEntity<?> clearCart(Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
-        
-        if (user == null) {
-            return ResponseEntity.notFound().build();
+        cartService.clearCart(userPrincipal.getId());
+        return ResponseEntity.ok(new MessageResponse("Cart cleared successfully"));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@Valid @RequestBody CartBatchRequest request,
+                                        Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+        CartService.BatchOutcome outcome = cartService.applyBatch(userPrincipal.getId(), request.getOperations());
+        switch (outcome.getResult()) {
+            case INVALID_QUANTITY:
+                return ResponseEntity.badRequest().body(new MessageResponse(
+                        "Operation " + outcome.getFailedIndex() + ": quantity must be at least 1"));
+            case PRODUCT_NOT_FOUND:
+                return ResponseEntity.badRequest().body(new MessageResponse(
+                        "Operation " + outcome.getFailedIndex() + ": product not found"));
+            case INSUFFICIENT_STOCK:
+                return ResponseEntity.badRequest().body(new MessageResponse(
+                        "Operation " + outcome.getFailedIndex() + ": insufficient stock"));
+            default:
+                return ResponseEntity.ok(outcome.getItems());
         }
+    }
 
-        cartRepository.deleteByUser(user);
-        return ResponseEntity.ok(new MessageResponse("Cart cleared successfully"));
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummary> getCartSummary(@RequestParam(required = false) String couponCode,
+                                                      Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return ResponseEntity.ok(cartService.getSummary(userPrincipal.getId(), couponCode));
     }
 
     @GetMapping("/count")
     public ResponseEntity<Long> getCartItemCount(Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
-        
-        if (user == null) {
-            return ResponseEntity.ok(0L);
-        }
-
-        Long count = cartRepository.countByUser(user);
-        return ResponseEntity.ok(count);
+        return ResponseEntity.ok(cartService.countItems(userPrincipal.getId()));
     }
 }
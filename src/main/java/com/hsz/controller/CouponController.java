@@ -0,0 +1,61 @@
+package com.hsz.controller;
+
+import com.hsz.config.UserPrincipal;
+import com.hsz.dto.MessageResponse;
+import com.hsz.model.Coupon;
+import com.hsz.service.CartService;
+import com.hsz.service.CouponRegistry;
+import com.hsz.util.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/coupons")
+@PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+public class CouponController {
+
+    @Autowired
+    private CouponRegistry couponRegistry;
+
+    @Autowired
+    private CartService cartService;
+
+    // Best coupon for an explicit amount, or for the caller's cart subtotal when none is given
+    @GetMapping("/best")
+    public ResponseEntity<?> getBestCoupon(@RequestParam(required = false) BigDecimal cartTotal,
+                                           Authentication authentication) {
+        BigDecimal amount = cartTotal;
+        if (amount == null) {
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+            amount = cartService.getSummary(userPrincipal.getId(), null).getSubtotal().toBigDecimal();
+        }
+        if (amount.signum() < 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Cart total must not be negative"));
+        }
+        if (amount.compareTo(Money.MAX_AMOUNT) > 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Cart total is too large"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("cartTotal", amount);
+
+        Coupon best = couponRegistry.findBest(amount);
+        if (best == null) {
+            response.put("message", "No coupon applies to this cart");
+            return ResponseEntity.ok(response);
+        }
+        response.put("code", best.getCode());
+        response.put("description", best.getDescription());
+        response.put("discountPercent", best.getDiscountPercent());
+        response.put("discount", best.calculateDiscount(Money.of(amount)));
+        return ResponseEntity.ok(response);
+    }
+}
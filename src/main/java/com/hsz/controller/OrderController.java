@@ -0,0 +1,81 @@
+package com.hsz.controller;
+
+import com.hsz.config.UserPrincipal;
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.dto.MessageResponse;
+import com.hsz.model.Order;
+import com.hsz.model.User;
+import com.hsz.repository.OrderRepository;
+import com.hsz.repository.UserRepository;
+import com.hsz.service.CheckoutException;
+import com.hsz.service.CheckoutService;
+import com.hsz.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/orders")
+@PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+public class OrderController {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping("/create")
+    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+        return idempotencyService.execute("orders.create", userPrincipal.getId(), idempotencyKey, request, () -> {
+            try {
+                Order order = checkoutService.checkout(userPrincipal.getId(), request);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("id", order.getId());
+                response.put("totalPrice", order.getTotalPrice());
+                response.put("status", order.getStatus());
+                response.put("paymentStatus", order.getPaymentStatus());
+                return ResponseEntity.ok(response);
+            } catch (CheckoutException e) {
+                return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+            }
+        });
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Order>> getMyOrders(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        User user = userRepository.getReferenceById(userPrincipal.getId());
+        return ResponseEntity.ok(orderRepository.findByUserOrderByOrderDateDesc(user));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Order> getMyOrder(@PathVariable Long id, Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        Optional<Order> order = orderRepository.findById(id);
+        if (!order.isPresent() || !order.get().getUser().getId().equals(userPrincipal.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(order.get());
+    }
+}
@@ -0,0 +1,146 @@
+package com.hsz.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hsz.config.UserPrincipal;
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.dto.MessageResponse;
+import com.hsz.model.Order;
+import com.hsz.repository.OrderRepository;
+import com.hsz.service.CheckoutException;
+import com.hsz.service.IdempotencyService;
+import com.hsz.service.PaymentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/payment")
+public class PaymentController {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // Places the order awaiting payment and opens the gateway order the checkout widget pays
+    @PostMapping("/create-order")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return idempotencyService.execute("payment.create-order", userPrincipal.getId(), idempotencyKey, request, () -> {
+            try {
+                return ResponseEntity.ok(paymentService.startPayment(userPrincipal.getId(), request));
+            } catch (CheckoutException e) {
+                return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+            } catch (RuntimeException e) {
+                logger.error("Could not open a gateway order for user {}", userPrincipal.getId(), e);
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                        .body(new MessageResponse("Error: Payment could not be started"));
+            }
+        });
+    }
+
+    // Confirmation from the checkout widget; the order is settled asynchronously
+    @PostMapping("/verify")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<?> verifyPayment(@RequestBody Map<String, Object> request,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                           Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return idempotencyService.execute("payment.verify", userPrincipal.getId(), idempotencyKey, request,
+                () -> verify(request, userPrincipal.getId()));
+    }
+
+    // Gateway callback: verified, queued and acknowledged without touching the database
+    @PostMapping("/webhook")
+    public ResponseEntity<?> handleWebhook(@RequestBody String payload,
+                                           @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+                                           @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
+        if (signature == null || !paymentService.verifyCallback(payload, signature)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Invalid signature"));
+        }
+
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Malformed payload"));
+        }
+        String type = root.path("event").asText();
+        PaymentService.Outcome outcome;
+        if ("payment.captured".equals(type) || "order.paid".equals(type)) {
+            outcome = PaymentService.Outcome.CAPTURED;
+        } else if ("payment.failed".equals(type)) {
+            outcome = PaymentService.Outcome.FAILED;
+        } else {
+            return ResponseEntity.ok(new MessageResponse("Ignored"));
+        }
+
+        JsonNode payment = root.path("payload").path("payment").path("entity");
+        String paymentId = payment.path("id").asText(null);
+        String gatewayOrderId = payment.path("order_id").asText(null);
+        if (paymentId == null || gatewayOrderId == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Missing payment details"));
+        }
+        String key = eventId != null ? eventId : type + ":" + paymentId;
+
+        if (!paymentService.submit(new PaymentService.Event(key, gatewayOrderId, paymentId, outcome))) {
+            // Non-2xx makes the gateway redeliver once the backlog has drained
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageResponse("Busy"));
+        }
+        return ResponseEntity.ok(new MessageResponse("Accepted"));
+    }
+
+    private ResponseEntity<?> verify(Map<String, Object> request, Long userId) {
+        String gatewayOrderId = (String) request.get("razorpay_order_id");
+        String paymentId = (String) request.get("razorpay_payment_id");
+        String signature = (String) request.get("razorpay_signature");
+        if (gatewayOrderId == null || paymentId == null
+                || !paymentService.verifyPayment(gatewayOrderId, paymentId, signature)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Invalid payment signature"));
+        }
+
+        Optional<Order> order = orderRepository.findByRazorpayOrderId(gatewayOrderId);
+        if (!order.isPresent() || !order.get().getUser().getId().equals(userId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!paymentService.submit(new PaymentService.Event("verify:" + paymentId, gatewayOrderId, paymentId,
+                PaymentService.Outcome.CAPTURED))) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Error: Payment is being processed, please check your order shortly"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", order.get().getId());
+        response.put("message", "Payment received");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(paymentService.getMetrics());
+    }
+}
@@ -2,8 +2,14 @@ package com.hsz.controller;
 
 import com.hsz.model.Product;
 import com.hsz.repository.ProductRepository;
+import com.hsz.service.BestsellerTracker;
+import com.hsz.service.CoPurchaseIndex;
+import com.hsz.service.HotSkuInventoryService;
+import com.hsz.service.SimilarProductIndex;
+import com.hsz.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -11,7 +17,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -22,6 +31,21 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Autowired
+    private BestsellerTracker bestsellerTracker;
+
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Autowired
+    private SimilarProductIndex similarProductIndex;
+
     @GetMapping
     public ResponseEntity<Page<Product>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
@@ -34,6 +58,10 @@ public class ProductController {
             @RequestParam(required = false) String color,
             @RequestParam(required = false) String fabric) {
 
+        if ("bestsellers".equalsIgnoreCase(sortBy)) {
+            return ResponseEntity.ok(getBestsellers(page, size, category, minPrice, maxPrice, color, fabric));
+        }
+
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                    Sort.by(sortBy).descending() : 
                    Sort.by(sortBy).ascending();
@@ -50,6 +78,29 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Ranked in memory by the bestseller tracker; only the requested page is loaded
+    private Page<Product> getBestsellers(int page, int size, String category, BigDecimal minPrice,
+                                         BigDecimal maxPrice, String color, String fabric) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<Long> ranked = bestsellerTracker.sortByBestselling(
+                productRepository.findProductIdsWithFilters(category, minPrice, maxPrice, color, fabric));
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        List<Long> pageIds = ranked.subList(from, Math.min(from + size, ranked.size()));
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(pageIds)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Product product = byId.get(id);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return new PageImpl<>(content, pageable, ranked.size());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         Optional<Product> product = productRepository.findById(id);
@@ -59,6 +110,79 @@ public class ProductController {
         return ResponseEntity.notFound().build();
     }
 
+    // Frequently bought together with the product; empty until it has been ordered with others
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<Product>> getRelatedProducts(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "4") int limit) {
+        // Ask for every kept neighbour so inactive ones can be skipped
+        long[] neighbours = coPurchaseIndex.related(id, CoPurchaseIndex.TOP_N);
+        List<Long> ids = new ArrayList<>(neighbours.length);
+        for (long neighbour : neighbours) {
+            ids.add(neighbour);
+        }
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> related = new ArrayList<>();
+        for (Long neighbour : ids) {
+            Product product = byId.get(neighbour);
+            if (product != null && Boolean.TRUE.equals(product.getIsActive()) && related.size() < limit) {
+                related.add(product);
+            }
+        }
+        return ResponseEntity.ok(related);
+    }
+
+    // Closest active products by category, fabric, color and price; inStock drops sold-out ones
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<Product>> getSimilarProducts(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "4") int limit,
+                                                            @RequestParam(defaultValue = "true") boolean inStock) {
+        long[] neighbours = similarProductIndex.similar(id, SimilarProductIndex.TOP_K);
+        List<Long> ids = new ArrayList<>(neighbours.length);
+        for (long neighbour : neighbours) {
+            ids.add(neighbour);
+        }
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> similar = new ArrayList<>();
+        for (Long neighbour : ids) {
+            Product product = byId.get(neighbour);
+            if (product == null || !Boolean.TRUE.equals(product.getIsActive()) || similar.size() >= limit) {
+                continue;
+            }
+            Integer hotStock = hotSkuInventoryService.getStock(neighbour);
+            int stock = hotStock != null ? hotStock : product.getStock() == null ? 0 : product.getStock();
+            if (!inStock || stock > 0) {
+                similar.add(product);
+            }
+        }
+        return ResponseEntity.ok(similar);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Map<String, Object>> getAvailability(@PathVariable Long id) {
+        Optional<Integer> stock = productRepository.findActiveStockById(id);
+        if (!stock.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        Integer hotStock = hotSkuInventoryService.getStock(id);
+        if (hotStock != null) {
+            stock = Optional.of(hotStock);
+        }
+
+        Map<String, Object> availability = new HashMap<>();
+        availability.put("stock", stock.get());
+        availability.put("held", reservationService.getHeldQuantity(id));
+        availability.put("available", reservationService.getAvailableStock(id, stock.get()));
+        return ResponseEntity.ok(availability);
+    }
+
     @GetMapping("/featured")
     public ResponseEntity<List<Product>> getFeaturedProducts() {
         List<Product> products = productRepository.findByIsFeaturedTrueAndIsActiveTrue();
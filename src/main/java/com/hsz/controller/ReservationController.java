@@ -0,0 +1,72 @@
+package com.hsz.controller;
+
+import com.hsz.config.UserPrincipal;
+import com.hsz.dto.MessageResponse;
+import com.hsz.service.CartService;
+import com.hsz.service.CheckoutException;
+import com.hsz.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reservations")
+@PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+public class ReservationController {
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private CartService cartService;
+
+    @PostMapping
+    public ResponseEntity<?> reserveCart(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+        Map<Long, Integer> quantities = cartService.getQuantities(userPrincipal.getId());
+        if (quantities.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Your cart is empty"));
+        }
+
+        try {
+            return ResponseEntity.ok(toResponse(reservationService.reserve(userPrincipal.getId(), quantities)));
+        } catch (CheckoutException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getReservation(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        StockReservationService.Reservation reservation = reservationService.getActiveReservation(userPrincipal.getId());
+        if (reservation == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toResponse(reservation));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> releaseReservation(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        StockReservationService.Reservation reservation = reservationService.getActiveReservation(userPrincipal.getId());
+        if (reservation != null) {
+            reservationService.release(reservation.getId());
+        }
+        return ResponseEntity.ok(new MessageResponse("Reservation released"));
+    }
+
+    private Map<String, Object> toResponse(StockReservationService.Reservation reservation) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("reservationId", reservation.getId());
+        response.put("expiresAt", reservation.getExpiresAt());
+        response.put("items", reservation.getQuantities());
+        return response;
+    }
+}
@@ -0,0 +1,110 @@
+package com.hsz.dto;
+
+import com.hsz.model.Order;
+import com.hsz.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// One row of the admin order list: order columns, customer and item lines without entities
+public class AdminOrderView {
+    private Long id;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private BigDecimal totalPrice;
+    private String shippingAddress;
+    private String phoneNumber;
+    private Customer user;
+    private List<Item> orderItems = new ArrayList<>();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getOrderDate() { return orderDate; }
+    public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
+
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+
+    public Order.PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(Order.PaymentStatus paymentStatus) { this.paymentStatus = paymentStatus; }
+
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public String getShippingAddress() { return shippingAddress; }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
+
+    public String getPhoneNumber() { return phoneNumber; }
+    public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
+
+    public Customer getUser() { return user; }
+    public void setUser(Customer user) { this.user = user; }
+
+    public List<Item> getOrderItems() { return orderItems; }
+    public void setOrderItems(List<Item> orderItems) { this.orderItems = orderItems; }
+
+    public static class Customer {
+        private Long id;
+        private String name;
+        private String email;
+
+        public Customer() {}
+
+        public Customer(Long id, String name, String email) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+        }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getEmail() { return email; }
+        public void setEmail(String email) { this.email = email; }
+    }
+
+    public static class Item {
+        private Long id;
+        private Long productId;
+        private String productName;
+        private String category;
+        private int quantity;
+        private Money price;
+
+        public Item() {}
+
+        public Item(Long id, Long productId, String productName, String category, int quantity, Money price) {
+            this.id = id;
+            this.productId = productId;
+            this.productName = productName;
+            this.category = category;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public String getProductName() { return productName; }
+        public void setProductName(String productName) { this.productName = productName; }
+
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+
+        public Money getPrice() { return price; }
+        public void setPrice(Money price) { this.price = price; }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hsz.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class BulkCouponRequest {
+    @NotNull
+    @Min(1)
+    private Integer count;
+
+    @Size(max = 20)
+    private String prefix = "";
+
+    // Random part only; prefix + length must fit the 50-character code column
+    @NotNull
+    @Min(4)
+    @Max(30)
+    private Integer length = 8;
+
+    // Defaults to upper-case letters and digits without the look-alikes 0/O and 1/I
+    @NotNull
+    @Size(min = 2, max = 64)
+    private String alphabet = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+
+    @NotNull
+    @DecimalMin(value = "0.0")
+    @DecimalMax(value = "100.0")
+    private BigDecimal discountPercent;
+
+    private BigDecimal minOrderAmount;
+
+    private BigDecimal maxDiscountAmount;
+
+    private LocalDateTime validFrom;
+
+    private LocalDateTime validTill;
+
+    @Size(max = 500)
+    private String description;
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public Integer getLength() {
+        return length;
+    }
+
+    public void setLength(Integer length) {
+        this.length = length;
+    }
+
+    public String getAlphabet() {
+        return alphabet;
+    }
+
+    public void setAlphabet(String alphabet) {
+        this.alphabet = alphabet;
+    }
+
+    public BigDecimal getDiscountPercent() {
+        return discountPercent;
+    }
+
+    public void setDiscountPercent(BigDecimal discountPercent) {
+        this.discountPercent = discountPercent;
+    }
+
+    public BigDecimal getMinOrderAmount() {
+        return minOrderAmount;
+    }
+
+    public void setMinOrderAmount(BigDecimal minOrderAmount) {
+        this.minOrderAmount = minOrderAmount;
+    }
+
+    public BigDecimal getMaxDiscountAmount() {
+        return maxDiscountAmount;
+    }
+
+    public void setMaxDiscountAmount(BigDecimal maxDiscountAmount) {
+        this.maxDiscountAmount = maxDiscountAmount;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDateTime validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public LocalDateTime getValidTill() {
+        return validTill;
+    }
+
+    public void setValidTill(LocalDateTime validTill) {
+        this.validTill = validTill;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
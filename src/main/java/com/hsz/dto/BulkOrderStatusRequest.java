@@ -0,0 +1,33 @@
+package com.hsz.dto;
+
+import com.hsz.model.Order;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkOrderStatusRequest {
+    @NotEmpty
+    @Size(max = 5000)
+    private List<@NotNull Long> orderIds;
+
+    @NotNull
+    private Order.OrderStatus status;
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+}
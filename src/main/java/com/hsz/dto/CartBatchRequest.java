@@ -0,0 +1,62 @@
+package com.hsz.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class CartBatchRequest {
+    @NotEmpty
+    @Size(max = 200)
+    @Valid
+    private List<Operation> operations;
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    public enum OperationType {
+        ADD, UPDATE, REMOVE
+    }
+
+    public static class Operation {
+        @NotNull
+        private OperationType type;
+
+        @NotNull
+        private Long productId;
+
+        // ADD: quantity to add (default 1), UPDATE: new absolute quantity, REMOVE: ignored
+        private Integer quantity;
+
+        public OperationType getType() {
+            return type;
+        }
+
+        public void setType(OperationType type) {
+            this.type = type;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.hsz.dto;
+
+import com.hsz.util.Money;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CartSummary {
+    private List<Line> items = new ArrayList<>();
+    private int itemCount;
+    private Money subtotal = Money.ZERO;
+    private String couponCode;
+    private String couponMessage;
+    private Money discount = Money.ZERO;
+    private Money shipping = Money.ZERO;
+    private Money tax = Money.ZERO;
+    private Money total = Money.ZERO;
+
+    public List<Line> getItems() { return items; }
+    public void setItems(List<Line> items) { this.items = items; }
+
+    public int getItemCount() { return itemCount; }
+    public void setItemCount(int itemCount) { this.itemCount = itemCount; }
+
+    public Money getSubtotal() { return subtotal; }
+    public void setSubtotal(Money subtotal) { this.subtotal = subtotal; }
+
+    public String getCouponCode() { return couponCode; }
+    public void setCouponCode(String couponCode) { this.couponCode = couponCode; }
+
+    public String getCouponMessage() { return couponMessage; }
+    public void setCouponMessage(String couponMessage) { this.couponMessage = couponMessage; }
+
+    public Money getDiscount() { return discount; }
+    public void setDiscount(Money discount) { this.discount = discount; }
+
+    public Money getShipping() { return shipping; }
+    public void setShipping(Money shipping) { this.shipping = shipping; }
+
+    public Money getTax() { return tax; }
+    public void setTax(Money tax) { this.tax = tax; }
+
+    public Money getTotal() { return total; }
+    public void setTotal(Money total) { this.total = total; }
+
+    public static class Line {
+        private Long cartId;
+        private Long productId;
+        private String productName;
+        private Money unitPrice;
+        private int quantity;
+        private Money lineTotal;
+
+        public Line() {}
+
+        public Line(Long cartId, Long productId, String productName, BigDecimal unitPrice, int quantity) {
+            this(cartId, productId, productName, Money.of(unitPrice), quantity);
+        }
+
+        public Line(Long cartId, Long productId, String productName, Money unitPrice, int quantity) {
+            this.cartId = cartId;
+            this.productId = productId;
+            this.productName = productName;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+            this.lineTotal = unitPrice.times(quantity);
+        }
+
+        public Long getCartId() { return cartId; }
+        public void setCartId(Long cartId) { this.cartId = cartId; }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public String getProductName() { return productName; }
+        public void setProductName(String productName) { this.productName = productName; }
+
+        public Money getUnitPrice() { return unitPrice; }
+        public void setUnitPrice(Money unitPrice) { this.unitPrice = unitPrice; }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+
+        public Money getLineTotal() { return lineTotal; }
+        public void setLineTotal(Money lineTotal) { this.lineTotal = lineTotal; }
+    }
+}
@@ -0,0 +1,53 @@
+package com.hsz.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.Map;
+
+public class CreateOrderRequest {
+    // fullName, phone, addressLine1, addressLine2, landmark, city, state, pincode
+    @NotNull
+    private Map<String, String> shippingAddress;
+
+    @Size(max = 20)
+    private String paymentMethod;
+
+    @Size(max = 500)
+    private String orderNotes;
+
+    @Size(max = 50)
+    private String couponCode;
+
+    public Map<String, String> getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public void setShippingAddress(Map<String, String> shippingAddress) {
+        this.shippingAddress = shippingAddress;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public String getOrderNotes() {
+        return orderNotes;
+    }
+
+    public void setOrderNotes(String orderNotes) {
+        this.orderNotes = orderNotes;
+    }
+
+    public String getCouponCode() {
+        return couponCode;
+    }
+
+    public void setCouponCode(String couponCode) {
+        this.couponCode = couponCode;
+    }
+}
@@ -0,0 +1,21 @@
+package com.hsz.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Takes the entity's id from {@link com.hsz.service.IdAllocator}, the same in-memory blocks the
+ * JDBC batch writers use, instead of a Hibernate table generator that reserves its blocks in a
+ * separate transaction of its own while the caller's is open.
+ */
+@IdGeneratorType(AllocatedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface AllocatedId {
+    // Sequence name in id_sequences, which is the table name
+    String value();
+}
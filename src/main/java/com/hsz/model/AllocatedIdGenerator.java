@@ -0,0 +1,21 @@
+package com.hsz.model;
+
+import com.hsz.service.IdAllocator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+public class AllocatedIdGenerator implements IdentifierGenerator {
+    private final String sequence;
+
+    public AllocatedIdGenerator(AllocatedId config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequence = config.value();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return IdAllocator.getInstance().next(sequence);
+    }
+}
@@ -8,10 +8,12 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart")
+@Table(name = "cart", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_cart_user_product", columnNames = {"user_id", "product_id"})
+})
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AllocatedId("cart")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
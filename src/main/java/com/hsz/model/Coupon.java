@@ -6,11 +6,15 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.DynamicUpdate;
+import com.hsz.util.Money;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Only changed columns are written, so admin edits never overwrite used_count maintained by redemptions
 @Entity
+@DynamicUpdate
 @Table(name = "coupons")
 public class Coupon {
     @Id
@@ -119,17 +123,18 @@ public class Coupon {
                (usageLimit == null || usedCount < usageLimit);
     }
 
-    public BigDecimal calculateDiscount(BigDecimal orderAmount) {
-        if (!isValid() || (minOrderAmount != null && orderAmount.compareTo(minOrderAmount) < 0)) {
-            return BigDecimal.ZERO;
+    // Validity window and usage limit are checked by CouponRegistry before a coupon reaches pricing
+    public Money calculateDiscount(Money orderAmount) {
+        if (minOrderAmount != null && orderAmount.isLessThan(Money.of(minOrderAmount))) {
+            return Money.ZERO;
         }
-        
-        BigDecimal discount = orderAmount.multiply(discountPercent).divide(BigDecimal.valueOf(100));
-        
-        if (maxDiscountAmount != null && discount.compareTo(maxDiscountAmount) > 0) {
-            discount = maxDiscountAmount;
+
+        Money discount = orderAmount.percent(discountPercent);
+
+        if (maxDiscountAmount != null) {
+            discount = discount.min(Money.of(maxDiscountAmount));
         }
-        
+
         return discount;
     }
 }
@@ -0,0 +1,52 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// One coupon use, written in the order's transaction; counted flips once used_count includes it
+@Entity
+@Table(name = "coupon_redemptions", indexes = {
+    @Index(name = "idx_coupon_redemptions_counted", columnList = "counted")
+})
+public class CouponRedemption {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, unique = true)
+    private Long orderId;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Boolean counted = false;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public CouponRedemption() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Long getCouponId() { return couponId; }
+    public void setCouponId(Long couponId) { this.couponId = couponId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Boolean getCounted() { return counted; }
+    public void setCounted(Boolean counted) { this.counted = counted; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,47 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Stored response for an Idempotency-Key, keyed by the SHA-256 of endpoint, user and key
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "key_hash", length = 64)
+    private String keyHash;
+
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    // SHA-256 of the request body the key was first used with
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public IdempotencyRecord() {}
+
+    // Getters and Setters
+    public String getKeyHash() { return keyHash; }
+    public void setKeyHash(String keyHash) { this.keyHash = keyHash; }
+
+    public Integer getStatusCode() { return statusCode; }
+    public void setStatusCode(Integer statusCode) { this.statusCode = statusCode; }
+
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
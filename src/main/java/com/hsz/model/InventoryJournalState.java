@@ -0,0 +1,37 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Highest hot-SKU journal sequence whose stock change is committed to the products table
+@Entity
+@Table(name = "inventory_journal_state")
+public class InventoryJournalState {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public InventoryJournalState() {}
+
+    public InventoryJournalState(String name, Long lastSeq) {
+        this.name = name;
+        this.lastSeq = lastSeq;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getLastSeq() { return lastSeq; }
+    public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
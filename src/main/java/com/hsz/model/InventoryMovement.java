@@ -0,0 +1,72 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// One append-only stock change; rows are never updated or deleted
+@Entity
+@Table(name = "inventory_movements", indexes = {
+    @Index(name = "idx_inventory_movements_product_time", columnList = "product_id, created_at")
+})
+public class InventoryMovement {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private MovementType type;
+
+    // Signed change in units: positive for receipts and returns, negative for sales
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(length = 255)
+    private String note;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public enum MovementType {
+        RECEIPT, SALE, RETURN, ADJUSTMENT
+    }
+
+    public InventoryMovement() {}
+
+    public InventoryMovement(Long productId, MovementType type, Integer quantity, String reference, String note) {
+        this.productId = productId;
+        this.type = type;
+        this.quantity = quantity;
+        this.reference = reference;
+        this.note = note;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public MovementType getType() { return type; }
+    public void setType(MovementType type) { this.type = type; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+
+    public String getNote() { return note; }
+    public void setNote(String note) { this.note = note; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,38 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Ledger balance of one product as of movement lastMovementId; later movements are added on top
+@Entity
+@Table(name = "inventory_snapshots")
+public class InventorySnapshot {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer balance;
+
+    @Column(name = "last_movement_id", nullable = false)
+    private Long lastMovementId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt = LocalDateTime.now();
+
+    public InventorySnapshot() {}
+
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Integer getBalance() { return balance; }
+    public void setBalance(Integer balance) { this.balance = balance; }
+
+    public Long getLastMovementId() { return lastMovementId; }
+    public void setLastMovementId(Long lastMovementId) { this.lastMovementId = lastMovementId; }
+
+    public LocalDateTime getTakenAt() { return takenAt; }
+    public void setTakenAt(LocalDateTime takenAt) { this.takenAt = takenAt; }
+}
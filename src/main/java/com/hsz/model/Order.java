@@ -11,10 +11,16 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_razorpay_order_id", columnList = "razorpay_order_id"),
+    @Index(name = "idx_orders_order_date", columnList = "order_date"),
+    @Index(name = "idx_orders_status_date", columnList = "status, order_date"),
+    @Index(name = "idx_orders_payment_status_date", columnList = "payment_status, order_date"),
+    @Index(name = "idx_orders_user_date", columnList = "user_id, order_date")
+})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AllocatedId("orders")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -44,6 +50,11 @@ public class Order {
     @Column(name = "razorpay_order_id")
     private String razorpayOrderId;
 
+    // False while an order paid online only holds its units; capture takes them from stock
+    @JsonIgnore
+    @Column(name = "stock_taken", nullable = false, columnDefinition = "TINYINT(1) NOT NULL DEFAULT 1")
+    private boolean stockTaken = true;
+
     @Column(name = "shipping_address", length = 500)
     private String shippingAddress;
 
@@ -54,7 +65,23 @@ public class Order {
     private Set<OrderItem> orderItems = new HashSet<>();
 
     public enum OrderStatus {
-        PENDING, CONFIRMED, PROCESSING, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, PROCESSING, SHIPPED, DELIVERED, CANCELLED;
+
+        // Forward through fulfilment; cancellable until shipped; DELIVERED and CANCELLED are final
+        public boolean canTransitionTo(OrderStatus next) {
+            switch (this) {
+                case PENDING:
+                    return next == CONFIRMED || next == PROCESSING || next == CANCELLED;
+                case CONFIRMED:
+                    return next == PROCESSING || next == SHIPPED || next == CANCELLED;
+                case PROCESSING:
+                    return next == SHIPPED || next == CANCELLED;
+                case SHIPPED:
+                    return next == DELIVERED;
+                default:
+                    return false;
+            }
+        }
     }
 
     public enum PaymentStatus {
@@ -95,6 +122,9 @@ public class Order {
     public String getRazorpayOrderId() { return razorpayOrderId; }
     public void setRazorpayOrderId(String razorpayOrderId) { this.razorpayOrderId = razorpayOrderId; }
 
+    public boolean isStockTaken() { return stockTaken; }
+    public void setStockTaken(boolean stockTaken) { this.stockTaken = stockTaken; }
+
     public String getShippingAddress() { return shippingAddress; }
     public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
 
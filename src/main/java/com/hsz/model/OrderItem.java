@@ -2,17 +2,16 @@ package com.hsz.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-
-import java.math.BigDecimal;
+import com.hsz.util.Money;
+import com.hsz.util.MoneyConverter;
 
 @Entity
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AllocatedId("order_items")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,13 +28,13 @@ public class OrderItem {
     private Integer quantity;
 
     @NotNull
-    @DecimalMin(value = "0.0", inclusive = false)
+    @Convert(converter = MoneyConverter.class)
     @Column(precision = 10, scale = 2)
-    private BigDecimal price;
+    private Money price;
 
     public OrderItem() {}
 
-    public OrderItem(Order order, Product product, Integer quantity, BigDecimal price) {
+    public OrderItem(Order order, Product product, Integer quantity, Money price) {
         this.order = order;
         this.product = product;
         this.quantity = quantity;
@@ -55,10 +54,10 @@ public class OrderItem {
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
 
-    public BigDecimal getPrice() { return price; }
-    public void setPrice(BigDecimal price) { this.price = price; }
+    public Money getPrice() { return price; }
+    public void setPrice(Money price) { this.price = price; }
 
-    public BigDecimal getSubtotal() {
-        return price.multiply(BigDecimal.valueOf(quantity));
+    public Money getSubtotal() {
+        return price.times(quantity);
     }
 }
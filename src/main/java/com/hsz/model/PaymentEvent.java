@@ -0,0 +1,52 @@
+package com.hsz.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// One applied gateway event; the unique event id makes redelivered callbacks no-ops
+@Entity
+@Table(name = "payment_events", indexes = {
+    @Index(name = "idx_payment_events_gateway_order", columnList = "gateway_order_id")
+})
+public class PaymentEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 100)
+    private String eventId;
+
+    @Column(name = "gateway_order_id", nullable = false, length = 100)
+    private String gatewayOrderId;
+
+    @Column(name = "payment_id", length = 100)
+    private String paymentId;
+
+    @Column(nullable = false, length = 20)
+    private String outcome;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public PaymentEvent() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+
+    public String getGatewayOrderId() { return gatewayOrderId; }
+    public void setGatewayOrderId(String gatewayOrderId) { this.gatewayOrderId = gatewayOrderId; }
+
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public String getOutcome() { return outcome; }
+    public void setOutcome(String outcome) { this.outcome = outcome; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,7 +15,9 @@ import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
 
+// Only changed columns are written, so entity saves never overwrite stock moved by orders meanwhile
 @Entity
+@DynamicUpdate
 @Table(name = "products")
 public class Product {
     @Id
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Table(name = "reviews")
 public class Review {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AllocatedId("reviews")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -11,7 +11,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_name", columnList = "name")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
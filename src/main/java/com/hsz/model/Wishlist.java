@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 @Table(name = "wishlist")
 public class Wishlist {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AllocatedId("wishlist")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,7 +27,11 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     Long countByUser(@Param("user") User user);
     
     @Query("SELECT SUM(c.quantity * c.product.price) FROM Cart c WHERE c.user = :user")
-    Double getTotalAmountByUser(@Param("user") User user);
+    BigDecimal getTotalAmountByUser(@Param("user") User user);
     
     boolean existsByUserAndProduct(User user, Product product);
+    
+    // Slim projection for CartService: id, product id, quantity, addedAt (no product join)
+    @Query("SELECT c.id, c.product.id, c.quantity, c.addedAt FROM Cart c WHERE c.user.id = :userId ORDER BY c.addedAt")
+    List<Object[]> findLinesByUserId(@Param("userId") Long userId);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,8 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
     Optional<Coupon> findValidCouponByCode(@Param("code") String code, @Param("now") LocalDateTime now);
     
     boolean existsByCode(String code);
+
+    List<Coupon> findByCodeIn(Collection<String> codes);
     
     @Query("SELECT COUNT(c) FROM Coupon c WHERE c.isActive = true")
     Long countActiveCoupons();
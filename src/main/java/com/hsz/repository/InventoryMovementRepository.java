@@ -0,0 +1,22 @@
+package com.hsz.repository;
+
+import com.hsz.model.InventoryMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+
+    List<InventoryMovement> findByProductIdAndCreatedAtBetweenOrderByIdAsc(Long productId, LocalDateTime from, LocalDateTime to);
+
+    // Per-product net change after each product's snapshot (or the whole ledger when it has none)
+    @Query(value = "SELECT m.product_id, SUM(m.quantity) FROM inventory_movements m " +
+                   "LEFT JOIN inventory_snapshots s ON s.product_id = m.product_id " +
+                   "WHERE m.id > COALESCE(s.last_movement_id, 0) GROUP BY m.product_id", nativeQuery = true)
+    List<Object[]> sumMovementsAfterSnapshots();
+}
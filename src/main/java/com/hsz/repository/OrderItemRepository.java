@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -28,4 +29,9 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.product.id = :productId " +
            "AND oi.order.paymentStatus = 'SUCCESS'")
     Long getTotalSoldQuantityByProduct(@Param("productId") Long productId);
+
+    // Item lines for a page of orders in one query; product columns only, no Product entities
+    @Query("SELECT oi.order.id, oi.id, p.id, p.name, p.category, oi.quantity, oi.price FROM OrderItem oi " +
+           "JOIN oi.product p WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<Object[]> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
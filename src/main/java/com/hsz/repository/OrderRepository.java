@@ -34,6 +34,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countOrdersByStatus(@Param("status") Order.OrderStatus status);
+
+    // Whole status distribution in one pass
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countGroupedByStatus();
     
     @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.paymentStatus = 'SUCCESS'")
     BigDecimal getTotalRevenue();
@@ -48,12 +52,6 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findOrdersByDateRange(@Param("startDate") LocalDateTime startDate, 
                                     @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT COUNT(o) FROM Order o WHERE DATE(o.orderDate) = CURRENT_DATE")
-    Long countTodaysOrders();
-    
-    @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE DATE(o.orderDate) = CURRENT_DATE AND o.paymentStatus = 'SUCCESS'")
-    BigDecimal getTodaysRevenue();
-    
     // New methods for admin dashboard
     @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.paymentStatus = 'SUCCESS'")
     BigDecimal calculateTotalRevenue();
@@ -64,4 +62,29 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC")
     List<Order> findAllOrdersByDateDesc();
+
+    // Admin order search: one page of scalar order columns and customer, no entities loaded
+    @Query(value = "SELECT o.id, o.orderDate, o.status, o.paymentStatus, o.totalPrice, o.shippingAddress, " +
+           "o.phoneNumber, u.id, u.name, u.email FROM Order o JOIN o.user u WHERE " +
+           "(:status IS NULL OR o.status = :status) AND " +
+           "(:paymentStatus IS NULL OR o.paymentStatus = :paymentStatus) AND " +
+           "(:from IS NULL OR o.orderDate >= :from) AND " +
+           "(:to IS NULL OR o.orderDate < :to) AND " +
+           "(:customerId IS NULL OR u.id = :customerId) AND " +
+           "(:customer IS NULL OR u.email LIKE :customer OR u.name LIKE :customer) " +
+           "ORDER BY o.orderDate DESC, o.id DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o JOIN o.user u WHERE " +
+           "(:status IS NULL OR o.status = :status) AND " +
+           "(:paymentStatus IS NULL OR o.paymentStatus = :paymentStatus) AND " +
+           "(:from IS NULL OR o.orderDate >= :from) AND " +
+           "(:to IS NULL OR o.orderDate < :to) AND " +
+           "(:customerId IS NULL OR u.id = :customerId) AND " +
+           "(:customer IS NULL OR u.email LIKE :customer OR u.name LIKE :customer)")
+    Page<Object[]> searchForAdmin(@Param("status") Order.OrderStatus status,
+                                  @Param("paymentStatus") Order.PaymentStatus paymentStatus,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to,
+                                  @Param("customerId") Long customerId,
+                                  @Param("customer") String customer,
+                                  Pageable pageable);
 }
@@ -9,7 +9,10 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -37,6 +40,21 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         Pageable pageable
     );
     
+    // Ids only, for listings ordered outside the database
+    @Query("SELECT p.id FROM Product p WHERE p.isActive = true AND " +
+           "(:category IS NULL OR p.category = :category) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:color IS NULL OR p.color = :color) AND " +
+           "(:fabric IS NULL OR p.fabric = :fabric)")
+    List<Long> findProductIdsWithFilters(
+        @Param("category") String category,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        @Param("color") String color,
+        @Param("fabric") String fabric
+    );
+    
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -68,8 +86,24 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Long countByStockLessThan(Integer threshold);
     
+    Long countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(LocalDateTime from, LocalDateTime to);
+    
     List<Product> findByStockLessThanAndIsActiveTrue(Integer threshold);
     
     @Query("SELECT COUNT(p) FROM Product p WHERE p.isActive = true")
     Long countActiveProducts();
+    
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id AND p.isActive = true")
+    Optional<Integer> findActiveStockById(@Param("id") Long id);
+    
+    // Reads the row rather than a possibly stale entity from the persistence context
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id")
+    Integer findStockById(@Param("id") Long id);
+    
+    // id, name, price, isActive only: enough to price a cart without loading full entities
+    @Query("SELECT p.id, p.name, p.price, p.isActive FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPricingByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, p.stock FROM Product p WHERE p.id IN :ids AND p.isActive = true")
+    List<Object[]> findStockByIds(@Param("ids") Collection<Long> ids);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
 
@@ -21,6 +22,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // New methods for admin dashboard
     Long countByRole(String role);
     
+    Long countByRoleAndCreatedAtGreaterThanEqualAndCreatedAtLessThan(String role, LocalDateTime from, LocalDateTime to);
+    
     List<User> findByRole(String role);
     
     @Query("SELECT u FROM User u WHERE u.role = :role ORDER BY u.createdAt DESC")
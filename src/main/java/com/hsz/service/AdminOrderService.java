@@ -0,0 +1,132 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import com.hsz.model.OrderItem;
+import com.hsz.repository.OrderItemRepository;
+import com.hsz.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Admin edits of a single order that also move revenue. The order row and its daily_revenue
+ * adjustment are written in one transaction, so a failure after the row changed cannot leave
+ * the rollup out of step, and listeners hear of the change only once it has committed.
+ */
+@Service
+public class AdminOrderService {
+
+    // Null-safe compare, so an edit only applies to the payment status it was decided on
+    private static final String UPDATE_PAYMENT_STATUS_SQL =
+            "UPDATE orders SET payment_status = ? WHERE id = ? AND payment_status <=> ?";
+
+    private static final String LOCK_SQL = "SELECT id FROM orders WHERE id = ? FOR UPDATE";
+
+    public enum Outcome { UPDATED, NOT_FOUND, CONFLICT }
+
+    public static final class Result {
+        private final Outcome outcome;
+        private final Order order;
+
+        private Result(Outcome outcome, Order order) {
+            this.outcome = outcome;
+            this.order = order;
+        }
+
+        public Outcome getOutcome() { return outcome; }
+        public Order getOrder() { return order; }
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Sets the payment status of order {@code id}. Returns CONFLICT when the status changed
+     * between the read and the update, in which case nothing is written.
+     */
+    @Transactional
+    public Result updatePaymentStatus(Long id, Order.PaymentStatus paymentStatus) {
+        Optional<Order> found = orderRepository.findById(id);
+        if (!found.isPresent()) {
+            return new Result(Outcome.NOT_FOUND, null);
+        }
+        Order order = found.get();
+        Order.PaymentStatus previous = order.getPaymentStatus();
+        if (previous == paymentStatus) {
+            return new Result(Outcome.UPDATED, order);
+        }
+
+        int updated = jdbcTemplate.update(UPDATE_PAYMENT_STATUS_SQL, paymentStatus.name(), id,
+                previous == null ? null : previous.name());
+        if (updated == 0) {
+            return new Result(Outcome.CONFLICT, null);
+        }
+        revenueRollupService.onPaymentStatusChanged(order.getOrderDate(), order.getTotalPrice(), previous, paymentStatus);
+        if ((previous == Order.PaymentStatus.SUCCESS) != (paymentStatus == Order.PaymentStatus.SUCCESS)) {
+            eventPublisher.publishEvent(new SalesChangedEvent(
+                    sales(order, paymentStatus == Order.PaymentStatus.SUCCESS ? 1 : -1)));
+        }
+        // The row was written with JDBC; reload it rather than letting a flush write the stale entity back
+        entityManager.refresh(order);
+        return new Result(Outcome.UPDATED, order);
+    }
+
+    // Returns false when there is no such order
+    @Transactional
+    public boolean deleteOrder(Long id) {
+        // Lock first, so the payment status the revenue is taken back on cannot change before the delete
+        if (jdbcTemplate.queryForList(LOCK_SQL, Long.class, id).isEmpty()) {
+            return false;
+        }
+        Optional<Order> found = orderRepository.findById(id);
+        if (!found.isPresent()) {
+            return false;
+        }
+        Order order = found.get();
+        List<SalesChangedEvent.Line> sales = order.getPaymentStatus() == Order.PaymentStatus.SUCCESS
+                ? sales(order, -1) : null;
+        orderRepository.delete(order);
+        revenueRollupService.onPaymentStatusChanged(order.getOrderDate(), order.getTotalPrice(),
+                order.getPaymentStatus(), null);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(id, order.getStatus(), null));
+        if (sales != null) {
+            eventPublisher.publishEvent(new SalesChangedEvent(sales));
+        }
+        return true;
+    }
+
+    // The order's items as sales, negated when the order stops counting as paid
+    private List<SalesChangedEvent.Line> sales(Order order, int sign) {
+        LocalDate day = order.getOrderDate() == null ? LocalDate.now() : order.getOrderDate().toLocalDate();
+        List<SalesChangedEvent.Line> lines = new ArrayList<>();
+        for (OrderItem item : orderItemRepository.findByOrderId(order.getId())) {
+            lines.add(new SalesChangedEvent.Line(order.getId(), item.getProduct().getId(), day,
+                    sign * item.getQuantity(), sign * item.getSubtotal().getPaise()));
+        }
+        return lines;
+    }
+}
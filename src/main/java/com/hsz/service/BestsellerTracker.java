@@ -0,0 +1,281 @@
+package com.hsz.service;
+
+import com.hsz.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Units sold and revenue per product over paid orders, all time and over rolling 7 and 30
+ * day windows, with the top sellers of each window kept ready. Sales are attributed to the
+ * order's day, as in the revenue rollups.
+ *
+ * The rolling windows are running totals over 30 day buckets; when the day advances, the
+ * buckets that fall out of a window are subtracted from it. The top list of a window is
+ * picked with a bounded heap and cached until the window next changes. Counters are seeded
+ * from orders at startup, follow {@link SalesChangedEvent}s, and are periodically rebuilt.
+ * Events that arrive while a rebuild reads orders are replayed onto its result, so a sale
+ * committed after the queries read their rows is not lost with the replaced counters.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class BestsellerTracker {
+    private static final Logger logger = LoggerFactory.getLogger(BestsellerTracker.class);
+
+    private static final String ALL_TIME_SQL =
+            "SELECT oi.product_id, SUM(oi.quantity), SUM(oi.price * oi.quantity) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.payment_status = 'SUCCESS' GROUP BY oi.product_id";
+
+    private static final String DAILY_SQL =
+            "SELECT oi.product_id, DATE(o.order_date), SUM(oi.quantity), SUM(oi.price * oi.quantity) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.payment_status = 'SUCCESS' AND o.order_date >= ? GROUP BY oi.product_id, DATE(o.order_date)";
+
+    private static final int BUCKETS = 30;
+
+    // Longest top list kept per window
+    public static final int MAX_TOP = 50;
+
+    public enum Window {
+        ALL_TIME(0), LAST_7_DAYS(7), LAST_30_DAYS(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+    }
+
+    public static final class Entry {
+        private final Long productId;
+        private final long units;
+        private final long revenuePaise;
+
+        private Entry(Long productId, long units, long revenuePaise) {
+            this.productId = productId;
+            this.units = units;
+            this.revenuePaise = revenuePaise;
+        }
+
+        public Long getProductId() { return productId; }
+        public long getUnits() { return units; }
+        public long getRevenuePaise() { return revenuePaise; }
+    }
+
+    // Best first: more units, then more revenue, then the lower product id
+    private static final Comparator<Entry> RANK = Comparator.comparingLong((Entry e) -> e.units).reversed()
+            .thenComparing(Comparator.comparingLong((Entry e) -> e.revenuePaise).reversed())
+            .thenComparingLong(e -> e.productId);
+
+    // Counters are {units, revenue paise}
+    private static final class State {
+        private final Map<Window, Map<Long, long[]>> windows = new EnumMap<>(Window.class);
+        private final List<Map<Long, long[]>> buckets = new ArrayList<>(BUCKETS);
+        private final long[] bucketDays = new long[BUCKETS];
+        private final Map<Window, List<Entry>> top = new EnumMap<>(Window.class);
+        private long today;
+
+        private State(long today) {
+            this.today = today;
+            for (Window window : Window.values()) {
+                windows.put(window, new HashMap<>());
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.add(new HashMap<>());
+            }
+            for (long day = today - BUCKETS + 1; day <= today; day++) {
+                bucketDays[slot(day)] = day;
+            }
+        }
+
+        private void advance(long day) {
+            while (today < day) {
+                today++;
+                expire(Window.LAST_7_DAYS, today - Window.LAST_7_DAYS.days);
+                expire(Window.LAST_30_DAYS, today - Window.LAST_30_DAYS.days);
+                int slot = slot(today);
+                buckets.get(slot).clear();
+                bucketDays[slot] = today;
+                top.clear();
+            }
+        }
+
+        private void expire(Window window, long day) {
+            int slot = slot(day);
+            if (bucketDays[slot] != day) {
+                return;
+            }
+            Map<Long, long[]> counters = windows.get(window);
+            buckets.get(slot).forEach((productId, counter) -> add(counters, productId, -counter[0], -counter[1]));
+        }
+
+        private void record(Long productId, long day, long units, long paise) {
+            add(windows.get(Window.ALL_TIME), productId, units, paise);
+            // An order dated ahead of this clock counts as today
+            day = Math.min(day, today);
+            if (day > today - BUCKETS) {
+                add(buckets.get(slot(day)), productId, units, paise);
+                add(windows.get(Window.LAST_30_DAYS), productId, units, paise);
+                if (day > today - Window.LAST_7_DAYS.days) {
+                    add(windows.get(Window.LAST_7_DAYS), productId, units, paise);
+                }
+            }
+            top.clear();
+        }
+
+        private static void add(Map<Long, long[]> counters, Long productId, long units, long paise) {
+            long[] counter = counters.computeIfAbsent(productId, id -> new long[2]);
+            counter[0] += units;
+            counter[1] += paise;
+            if (counter[0] == 0 && counter[1] == 0) {
+                counters.remove(productId);
+            }
+        }
+
+        private static int slot(long day) {
+            return (int) Math.floorMod(day, (long) BUCKETS);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarded by this
+    private State state = new State(LocalDate.now().toEpochDay());
+
+    // Guarded by this; events that arrive while a rebuild reads orders, replayed onto its result
+    private List<SalesChangedEvent> pendingEvents;
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.bestsellers.reconcile-ms:900000}",
+               initialDelayString = "${app.bestsellers.reconcile-ms:900000}")
+    public void reconcile() {
+        synchronized (this) {
+            pendingEvents = new ArrayList<>();
+        }
+        State fresh;
+        try {
+            fresh = load();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingEvents = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            List<SalesChangedEvent> missed = pendingEvents;
+            pendingEvents = null;
+            for (SalesChangedEvent event : missed) {
+                apply(fresh, event);
+            }
+            state = fresh;
+        }
+        logger.debug("Bestseller counters rebuilt for {} products", fresh.windows.get(Window.ALL_TIME).size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSalesChanged(SalesChangedEvent event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+        apply(state, event);
+    }
+
+    private State load() {
+        long today = LocalDate.now().toEpochDay();
+        State fresh = new State(today);
+        jdbcTemplate.query(ALL_TIME_SQL, rs -> {
+            State.add(fresh.windows.get(Window.ALL_TIME), rs.getLong(1), rs.getLong(2),
+                    Money.of(rs.getBigDecimal(3)).getPaise());
+        });
+        jdbcTemplate.query(DAILY_SQL, rs -> {
+            long day = rs.getDate(2).toLocalDate().toEpochDay();
+            long units = rs.getLong(3);
+            long paise = Money.of(rs.getBigDecimal(4)).getPaise();
+            Long productId = rs.getLong(1);
+            State.add(fresh.buckets.get(State.slot(day)), productId, units, paise);
+            State.add(fresh.windows.get(Window.LAST_30_DAYS), productId, units, paise);
+            if (day > today - Window.LAST_7_DAYS.days) {
+                State.add(fresh.windows.get(Window.LAST_7_DAYS), productId, units, paise);
+            }
+        }, Date.valueOf(LocalDate.ofEpochDay(today - BUCKETS + 1)));
+        return fresh;
+    }
+
+    // Caller holds the lock
+    private static void apply(State target, SalesChangedEvent event) {
+        target.advance(LocalDate.now().toEpochDay());
+        for (SalesChangedEvent.Line line : event.getLines()) {
+            target.record(line.getProductId(), line.getOrderDay().toEpochDay(), line.getQuantity(), line.getAmountPaise());
+        }
+    }
+
+    // The best sellers of the window, best first; at most MAX_TOP
+    public synchronized List<Entry> top(Window window, int limit) {
+        state.advance(LocalDate.now().toEpochDay());
+        List<Entry> ranked = state.top.get(window);
+        if (ranked == null) {
+            ranked = select(state.windows.get(window));
+            state.top.put(window, ranked);
+        }
+        return new ArrayList<>(ranked.subList(0, Math.min(Math.max(limit, 0), ranked.size())));
+    }
+
+    /**
+     * Orders {@code productIds} for a bestsellers listing: units sold over the last 30 days,
+     * then all time, then newest product first.
+     */
+    public synchronized List<Long> sortByBestselling(Collection<Long> productIds) {
+        state.advance(LocalDate.now().toEpochDay());
+        Map<Long, long[]> recent = state.windows.get(Window.LAST_30_DAYS);
+        Map<Long, long[]> allTime = state.windows.get(Window.ALL_TIME);
+        List<Long> sorted = new ArrayList<>(productIds);
+        sorted.sort(Comparator.comparingLong((Long id) -> units(recent, id)).reversed()
+                .thenComparing(Comparator.comparingLong((Long id) -> units(allTime, id)).reversed())
+                .thenComparing(Comparator.<Long>reverseOrder()));
+        return sorted;
+    }
+
+    // Bounded min-heap of the best MAX_TOP: the root is the weakest entry kept
+    private static List<Entry> select(Map<Long, long[]> counters) {
+        PriorityQueue<Entry> heap = new PriorityQueue<>(MAX_TOP + 1, RANK.reversed());
+        counters.forEach((productId, counter) -> {
+            if (counter[0] <= 0) {
+                return;
+            }
+            Entry entry = new Entry(productId, counter[0], counter[1]);
+            if (heap.size() < MAX_TOP) {
+                heap.add(entry);
+            } else if (RANK.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        });
+        List<Entry> ranked = new ArrayList<>(heap);
+        ranked.sort(RANK);
+        return ranked;
+    }
+
+    private static long units(Map<Long, long[]> counters, Long productId) {
+        long[] counter = counters.get(productId);
+        return counter == null ? 0 : counter[0];
+    }
+}
@@ -0,0 +1,184 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves many orders to one status at once, for warehouse batches. Each chunk of ids is
+ * handled in one transaction: the orders are read and locked in one query, every requested
+ * transition is checked against {@link Order.OrderStatus#canTransitionTo}, and the valid ones
+ * are applied with one {@code UPDATE ... WHERE id IN (...) AND status = ?} per status they
+ * leave. Listeners get a single {@link OrderStatusBatchChangedEvent} for the whole request.
+ * A chunk that fails is rolled back and its ids reported FAILED; the other chunks still apply.
+ *
+ * Cancelling an online order that has not been paid (stock_taken = 0) also gives back what
+ * checkout set aside for it: the coupon use is revoked in the chunk's transaction and the
+ * stock hold released once that commits, as a failed payment does.
+ */
+@Service
+public class BulkOrderStatusService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkOrderStatusService.class);
+
+    private static final String LOCK_SQL = "SELECT id, status, stock_taken FROM orders WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String UPDATE_SQL =
+            "UPDATE orders SET status = :to WHERE id IN (:ids) AND status = :from";
+
+    private static final String STATUS_SQL = "SELECT id FROM orders WHERE id IN (:ids) AND status = :to";
+
+    public enum Outcome { UPDATED, UNCHANGED, NOT_FOUND, INVALID_TRANSITION, CONFLICT, FAILED }
+
+    public static final class Result {
+        private final Long orderId;
+        private final Outcome outcome;
+        private final Order.OrderStatus previousStatus;
+
+        private Result(Long orderId, Outcome outcome, Order.OrderStatus previousStatus) {
+            this.orderId = orderId;
+            this.outcome = outcome;
+            this.previousStatus = previousStatus;
+        }
+
+        public Long getOrderId() { return orderId; }
+        public Outcome getOutcome() { return outcome; }
+        public Order.OrderStatus getPreviousStatus() { return previousStatus; }
+    }
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private CouponRedemptionService redemptionService;
+
+    @Value("${app.orders.bulk-status.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Moves {@code orderIds} to {@code target} and returns one result per distinct id, in the
+     * order given. Chunks commit independently, so a failed chunk leaves the others applied.
+     */
+    public List<Result> apply(List<Long> orderIds, Order.OrderStatus target) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        Map<Long, Result> results = new HashMap<>();
+        Map<Order.OrderStatus, List<Long>> moved = new EnumMap<>(Order.OrderStatus.class);
+
+        try {
+            for (int start = 0; start < ids.size(); start += chunkSize) {
+                List<Long> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+                Map<Order.OrderStatus, List<Long>> chunkMoved = new EnumMap<>(Order.OrderStatus.class);
+                List<Long> chunkHeld = new ArrayList<>();
+                try {
+                    results.putAll(transactionTemplate.execute(status -> applyChunk(chunk, target, chunkMoved, chunkHeld)));
+                } catch (RuntimeException e) {
+                    logger.warn("Bulk status update to {} failed for {} orders from id {}", target, chunk.size(), chunk.get(0), e);
+                    for (Long id : chunk) {
+                        results.put(id, new Result(id, Outcome.FAILED, null));
+                    }
+                    continue;
+                }
+                // Committed; only now do the moves count and the holds of cancelled orders go back
+                chunkHeld.forEach(reservationService::releaseForOrder);
+                chunkMoved.forEach((from, fromIds) ->
+                        moved.computeIfAbsent(from, key -> new ArrayList<>()).addAll(fromIds));
+            }
+        } finally {
+            // Whatever committed before a failure still has to reach the counters and caches
+            if (!moved.isEmpty()) {
+                eventPublisher.publishEvent(new OrderStatusBatchChangedEvent(target, moved));
+            }
+        }
+
+        List<Result> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ordered.add(results.get(id));
+        }
+        return ordered;
+    }
+
+    // Returns the result of every id in the chunk, adds the moved ones to chunkMoved and the
+    // cancelled orders that only held their stock to chunkHeld
+    private Map<Long, Result> applyChunk(List<Long> chunk, Order.OrderStatus target,
+                                         Map<Order.OrderStatus, List<Long>> chunkMoved, List<Long> chunkHeld) {
+        Map<Long, Order.OrderStatus> current = new HashMap<>();
+        Set<Long> holding = new HashSet<>();
+        namedParameterJdbcTemplate.query(LOCK_SQL, new MapSqlParameterSource("ids", chunk), rs -> {
+            String status = rs.getString("status");
+            current.put(rs.getLong("id"), status == null ? null : Order.OrderStatus.valueOf(status));
+            if (!rs.getBoolean("stock_taken")) {
+                holding.add(rs.getLong("id"));
+            }
+        });
+
+        Map<Long, Result> chunkResults = new LinkedHashMap<>();
+        Map<Order.OrderStatus, List<Long>> byFrom = new EnumMap<>(Order.OrderStatus.class);
+        for (Long id : chunk) {
+            if (!current.containsKey(id)) {
+                chunkResults.put(id, new Result(id, Outcome.NOT_FOUND, null));
+                continue;
+            }
+            Order.OrderStatus from = current.get(id);
+            if (from == target) {
+                chunkResults.put(id, new Result(id, Outcome.UNCHANGED, from));
+            } else if (from == null || !from.canTransitionTo(target)) {
+                chunkResults.put(id, new Result(id, Outcome.INVALID_TRANSITION, from));
+            } else {
+                byFrom.computeIfAbsent(from, status -> new ArrayList<>()).add(id);
+            }
+        }
+
+        byFrom.forEach((from, fromIds) -> {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", fromIds)
+                    .addValue("to", target.name())
+                    .addValue("from", from.name());
+            int updated = namedParameterJdbcTemplate.update(UPDATE_SQL, params);
+            Set<Long> applied;
+            if (updated == fromIds.size()) {
+                applied = new LinkedHashSet<>(fromIds);
+            } else {
+                // The rows are locked, so this only happens if something bypassed the lock
+                logger.warn("Bulk status update to {} changed {} of {} {} orders", target, updated, fromIds.size(), from);
+                applied = new LinkedHashSet<>(namedParameterJdbcTemplate.queryForList(STATUS_SQL, params, Long.class));
+            }
+            for (Long id : fromIds) {
+                if (applied.contains(id)) {
+                    chunkResults.put(id, new Result(id, Outcome.UPDATED, from));
+                    chunkMoved.computeIfAbsent(from, status -> new ArrayList<>()).add(id);
+                    if (target == Order.OrderStatus.CANCELLED && holding.contains(id)) {
+                        chunkHeld.add(id);
+                    }
+                } else {
+                    chunkResults.put(id, new Result(id, Outcome.CONFLICT, from));
+                }
+            }
+        });
+        redemptionService.revokeForOrders(chunkHeld);
+        return chunkResults;
+    }
+}
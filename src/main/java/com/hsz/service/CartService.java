@@ -0,0 +1,695 @@
+package com.hsz.service;
+
+import com.hsz.dto.CartBatchRequest;
+import com.hsz.dto.CartSummary;
+import com.hsz.model.Cart;
+import com.hsz.model.Coupon;
+import com.hsz.model.Product;
+import com.hsz.repository.CartRepository;
+import com.hsz.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind cart store. Each active user's cart lives in memory and serves all
+ * reads and counts; mutations only mark lines dirty and are flushed to the cart
+ * table in JDBC batches on a fixed delay and at shutdown. Idle, clean carts are
+ * evicted and reloaded lazily from {@link CartRepository} on next access.
+ *
+ * <p>This replaces the guarded single-statement add-to-cart upsert: with the cart held
+ * in memory, concurrent adds for one user are serialized on that user's cart and checked
+ * against stock there, so the database statement no longer guards anything. The
+ * uk_cart_user_product key it introduced is still what the flush upsert keys on.
+ */
+@Service
+public class CartService {
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO cart (id, user_id, product_id, quantity, added_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE user_id = ? AND product_id = ?";
+
+    public enum Result {
+        OK, NOT_FOUND, PRODUCT_NOT_FOUND, INSUFFICIENT_STOCK, INVALID_QUANTITY
+    }
+
+    public static class BatchOutcome {
+        private final Result result;
+        private final int failedIndex;
+        private final List<Cart> items;
+
+        private BatchOutcome(Result result, int failedIndex, List<Cart> items) {
+            this.result = result;
+            this.failedIndex = failedIndex;
+            this.items = items;
+        }
+
+        static BatchOutcome ok(List<Cart> items) {
+            return new BatchOutcome(Result.OK, -1, items);
+        }
+
+        static BatchOutcome failed(int index, Result result) {
+            return new BatchOutcome(result, index, null);
+        }
+
+        public Result getResult() { return result; }
+
+        public int getFailedIndex() { return failedIndex; }
+
+        public List<Cart> getItems() { return items; }
+    }
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CouponRegistry couponRegistry;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Value("${app.cart.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    private final ConcurrentHashMap<Long, UserCart> carts = new ConcurrentHashMap<>();
+
+    // Monotonic stamp so a flush only clears marks that no later mutation has overwritten
+    private final AtomicLong mutationStamp = new AtomicLong();
+
+    // Bumped on admin product writes; cached cart pricing is only valid for the version it was built at
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public List<Cart> getCartItems(Long userId) {
+        List<CartLine> lines = copyLines(acquire(userId));
+        if (lines.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            productIds.add(line.productId);
+        }
+        return toItems(userId, lines, loadProducts(productIds));
+    }
+
+    /**
+     * Priced view of the cart. Per-line prices come from one projection query and are cached
+     * on the cart until the cart or the catalog changes; the coupon is applied per call.
+     */
+    public CartSummary getSummary(Long userId, String couponCode) {
+        UserCart cart = acquire(userId);
+        long catalog = catalogVersion.get();
+        List<CartSummary.Line> priced = null;
+        List<CartLine> lines = null;
+        long version;
+        synchronized (cart) {
+            version = cart.version;
+            if (cart.pricedLines != null && cart.pricedVersion == version && cart.pricedCatalogVersion == catalog) {
+                priced = cart.pricedLines;
+            } else {
+                lines = copyLines(cart);
+            }
+        }
+
+        if (priced == null) {
+            List<Long> productIds = new ArrayList<>(lines.size());
+            for (CartLine line : lines) {
+                productIds.add(line.productId);
+            }
+            Map<Long, Object[]> pricing = new HashMap<>();
+            if (!productIds.isEmpty()) {
+                for (Object[] row : productRepository.findPricingByIds(productIds)) {
+                    pricing.put((Long) row[0], row);
+                }
+            }
+
+            priced = new ArrayList<>(lines.size());
+            for (CartLine line : lines) {
+                Object[] row = pricing.get(line.productId);
+                if (row != null) {
+                    priced.add(new CartSummary.Line(line.id, line.productId, (String) row[1], (BigDecimal) row[2], line.quantity));
+                }
+            }
+            synchronized (cart) {
+                if (cart.version == version) {
+                    cart.pricedLines = priced;
+                    cart.pricedVersion = version;
+                    cart.pricedCatalogVersion = catalog;
+                }
+            }
+        }
+
+        String code = couponCode == null || couponCode.isBlank() ? null : couponCode.trim();
+        Coupon coupon = code == null ? null : couponRegistry.findValid(code);
+        return pricingService.price(new ArrayList<>(priced), coupon, code);
+    }
+
+    // productId -> quantity in cart order; checkout's view of the cart
+    public Map<Long, Integer> getQuantities(Long userId) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartLine line : copyLines(acquire(userId))) {
+            quantities.put(line.productId, line.quantity);
+        }
+        return quantities;
+    }
+
+    public void onProductChanged(Long productId) {
+        catalogVersion.incrementAndGet();
+    }
+
+    public long countItems(Long userId) {
+        UserCart cart = acquire(userId);
+        synchronized (cart) {
+            return cart.lines.size();
+        }
+    }
+
+    public Result addItem(Long userId, Long productId, int quantity) {
+        Optional<Integer> stock = productRepository.findActiveStockById(productId);
+        if (!stock.isPresent()) {
+            return Result.PRODUCT_NOT_FOUND;
+        }
+
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                CartLine line = cart.lines.get(productId);
+                int newQuantity = (line == null ? 0 : line.quantity) + quantity;
+                if (stock.get() < newQuantity) {
+                    return Result.INSUFFICIENT_STOCK;
+                }
+                if (line == null) {
+                    line = newLine(cart, productId, newQuantity);
+                    cart.lines.put(productId, line);
+                } else {
+                    line.quantity = newQuantity;
+                }
+                markDirty(cart, line);
+                return Result.OK;
+            }
+        }
+    }
+
+    public Result updateItem(Long userId, Long cartId, int quantity) {
+        UserCart cart = acquire(userId);
+        Long productId;
+        synchronized (cart) {
+            CartLine line = cart.resolve(cartId);
+            if (line == null) {
+                return Result.NOT_FOUND;
+            }
+            productId = line.productId;
+        }
+
+        Optional<Integer> stock = productRepository.findActiveStockById(productId);
+        if (!stock.isPresent()) {
+            return Result.PRODUCT_NOT_FOUND;
+        }
+        if (stock.get() < quantity) {
+            return Result.INSUFFICIENT_STOCK;
+        }
+
+        synchronized (cart) {
+            CartLine line = cart.evicted ? null : cart.lines.get(productId);
+            if (line == null) {
+                return Result.NOT_FOUND;
+            }
+            line.quantity = quantity;
+            markDirty(cart, line);
+            return Result.OK;
+        }
+    }
+
+    public Result removeItem(Long userId, Long cartId) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                CartLine line = cart.resolve(cartId);
+                if (line == null) {
+                    return Result.NOT_FOUND;
+                }
+                removeLine(cart, line.productId);
+                return Result.OK;
+            }
+        }
+    }
+
+    public void clearCart(Long userId) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                for (Long productId : new ArrayList<>(cart.lines.keySet())) {
+                    removeLine(cart, productId);
+                }
+                return;
+            }
+        }
+    }
+
+    // Drops just these products' lines, e.g. once the order paid online for them is captured
+    public void removeProducts(Long userId, Collection<Long> productIds) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                for (Long productId : productIds) {
+                    removeLine(cart, productId);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies all operations atomically against the in-memory cart: every operation is
+     * validated first against a working copy, so one failure leaves the cart untouched.
+     * Products referenced by the operations and the existing lines are loaded with a
+     * single findAllById, and the resulting changes are written out as one JDBC batch.
+     */
+    public BatchOutcome applyBatch(Long userId, List<CartBatchRequest.Operation> operations) {
+        Set<Long> productIds = new HashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            productIds.add(operation.getProductId());
+        }
+        for (CartLine line : copyLines(acquire(userId))) {
+            productIds.add(line.productId);
+        }
+        Map<Long, Product> products = loadProducts(productIds);
+
+        CartSnapshot snapshot;
+        List<CartLine> lines;
+        while (true) {
+            UserCart cart = acquire(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                Map<Long, Integer> working = new LinkedHashMap<>();
+                for (CartLine line : cart.lines.values()) {
+                    working.put(line.productId, line.quantity);
+                }
+
+                for (int i = 0; i < operations.size(); i++) {
+                    CartBatchRequest.Operation operation = operations.get(i);
+                    Long productId = operation.getProductId();
+                    if (operation.getType() == CartBatchRequest.OperationType.REMOVE) {
+                        working.remove(productId);
+                        continue;
+                    }
+
+                    int quantity = operation.getQuantity() == null ? 1 : operation.getQuantity();
+                    if (quantity < 1) {
+                        return BatchOutcome.failed(i, Result.INVALID_QUANTITY);
+                    }
+                    if (operation.getType() == CartBatchRequest.OperationType.ADD) {
+                        quantity += working.getOrDefault(productId, 0);
+                    }
+
+                    Product product = products.get(productId);
+                    if (product == null || !product.getIsActive()) {
+                        return BatchOutcome.failed(i, Result.PRODUCT_NOT_FOUND);
+                    }
+                    if (product.getStock() < quantity) {
+                        return BatchOutcome.failed(i, Result.INSUFFICIENT_STOCK);
+                    }
+                    working.put(productId, quantity);
+                }
+
+                for (Long productId : new ArrayList<>(cart.lines.keySet())) {
+                    if (!working.containsKey(productId)) {
+                        removeLine(cart, productId);
+                    }
+                }
+                for (Map.Entry<Long, Integer> entry : working.entrySet()) {
+                    CartLine line = cart.lines.get(entry.getKey());
+                    if (line == null) {
+                        line = newLine(cart, entry.getKey(), entry.getValue());
+                        cart.lines.put(line.productId, line);
+                        markDirty(cart, line);
+                    } else if (line.quantity != entry.getValue()) {
+                        line.quantity = entry.getValue();
+                        markDirty(cart, line);
+                    }
+                }
+                snapshot = cart.snapshot();
+                lines = copyLines(cart);
+                break;
+            }
+        }
+
+        if (snapshot != null) {
+            try {
+                write(List.of(snapshot));
+            } catch (DataAccessException e) {
+                // The in-memory cart is already authoritative; the scheduled flush will retry
+                logger.warn("Immediate flush of cart batch for user {} failed: {}", userId, e.getMessage());
+            }
+        }
+        return BatchOutcome.ok(toItems(userId, lines, products));
+    }
+
+    private void remove(Long userId, Long productId) {
+        UserCart cart = acquire(userId);
+        synchronized (cart) {
+            if (!cart.evicted) {
+                removeLine(cart, productId);
+            }
+        }
+    }
+
+    private void removeLine(UserCart cart, Long productId) {
+        // Recorded even for lines never flushed: their insert may already be in flight
+        CartLine line = cart.lines.remove(productId);
+        if (line != null) {
+            cart.removed.put(productId, mutationStamp.incrementAndGet());
+            cart.releasedIds.put(productId, line.id);
+            cart.version++;
+        }
+    }
+
+    // Re-adding a product whose row may still exist reuses that row's id: the flush upsert
+    // only updates the quantity of an existing row, so a fresh id would never reach the table
+    private CartLine newLine(UserCart cart, Long productId, int quantity) {
+        Long id = cart.releasedIds.remove(productId);
+        return new CartLine(id != null ? id : idAllocator.next(IdAllocator.CART), productId, quantity, LocalDateTime.now());
+    }
+
+    private void markDirty(UserCart cart, CartLine line) {
+        line.dirtyStamp = mutationStamp.incrementAndGet();
+        cart.removed.remove(line.productId);
+        cart.version++;
+    }
+
+    private List<CartLine> copyLines(UserCart cart) {
+        List<CartLine> lines = new ArrayList<>();
+        synchronized (cart) {
+            for (CartLine line : cart.lines.values()) {
+                lines.add(line.copy());
+            }
+        }
+        return lines;
+    }
+
+    private Map<Long, Product> loadProducts(Collection<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+
+    private List<Cart> toItems(Long userId, List<CartLine> lines, Map<Long, Product> products) {
+        List<Cart> items = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            Product product = products.get(line.productId);
+            if (product == null) {
+                // Product was deleted underneath the cart; drop the stale line
+                remove(userId, line.productId);
+                continue;
+            }
+            Cart item = new Cart(null, product, line.quantity);
+            item.setId(line.id);
+            item.setAddedAt(line.addedAt);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private UserCart acquire(Long userId) {
+        UserCart cart = carts.get(userId);
+        if (cart == null) {
+            // Loaded outside the map so the query never runs under a map bin lock; a racing
+            // load of the same cart is discarded in favour of the first one published
+            UserCart loaded = load(userId);
+            cart = carts.putIfAbsent(userId, loaded);
+            if (cart == null) {
+                cart = loaded;
+            }
+        }
+        cart.lastAccess = System.currentTimeMillis();
+        return cart;
+    }
+
+    private UserCart load(Long userId) {
+        UserCart cart = new UserCart(userId);
+        for (Object[] row : cartRepository.findLinesByUserId(userId)) {
+            CartLine line = new CartLine((Long) row[0], (Long) row[1], (Integer) row[2], (LocalDateTime) row[3]);
+            cart.lines.put(line.productId, line);
+        }
+        return cart;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public void flushDirtyCarts() {
+        List<CartSnapshot> snapshots = new ArrayList<>();
+        long idleBefore = System.currentTimeMillis() - idleEvictionMs;
+
+        for (UserCart cart : carts.values()) {
+            synchronized (cart) {
+                CartSnapshot snapshot = cart.snapshot();
+                if (snapshot != null) {
+                    snapshots.add(snapshot);
+                } else if (cart.lastAccess < idleBefore) {
+                    cart.evicted = true;
+                    carts.remove(cart.userId, cart);
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        try {
+            write(snapshots);
+        } catch (DataIntegrityViolationException e) {
+            // One bad cart (e.g. a deleted product or user) must not hold back everyone else
+            logger.warn("Batched cart flush hit a constraint violation, retrying per user: {}", e.getMessage());
+            for (CartSnapshot snapshot : snapshots) {
+                try {
+                    write(List.of(snapshot));
+                } catch (DataIntegrityViolationException single) {
+                    writeLineByLine(snapshot);
+                } catch (DataAccessException single) {
+                    logger.warn("Cart flush for user {} failed, retrying next cycle: {}", snapshot.cart.userId, single.getMessage());
+                }
+            }
+        } catch (DataAccessException e) {
+            // Database unavailable or similar: every cart stays dirty and is retried next cycle
+            logger.warn("Cart flush of {} carts failed, retrying next cycle: {}", snapshots.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Last resort for a cart whose batch violates a constraint. Each change is written on its
+     * own; only lines that are themselves rejected by a constraint are dropped from the cart.
+     * A non-constraint failure stops the pass and leaves the remaining changes dirty.
+     */
+    private void writeLineByLine(CartSnapshot snapshot) {
+        UserCart cart = snapshot.cart;
+        try {
+            for (CartLine line : snapshot.dirty) {
+                CartSnapshot single = new CartSnapshot(cart, List.of(line), new HashMap<>());
+                try {
+                    jdbcTemplate.update(UPSERT_SQL, line.id, cart.userId, line.productId, line.quantity, Timestamp.valueOf(line.addedAt));
+                } catch (DataIntegrityViolationException e) {
+                    logger.error("Dropping cart line for user {} product {}: {}", cart.userId, line.productId, e.getMessage());
+                    synchronized (cart) {
+                        CartLine current = cart.lines.get(line.productId);
+                        if (current != null && current.dirtyStamp == line.dirtyStamp) {
+                            cart.lines.remove(line.productId);
+                            cart.version++;
+                        }
+                    }
+                    continue;
+                }
+                synchronized (cart) {
+                    cart.acknowledge(single);
+                }
+            }
+            for (Map.Entry<Long, Long> removal : snapshot.removed.entrySet()) {
+                jdbcTemplate.update(DELETE_SQL, cart.userId, removal.getKey());
+                Map<Long, Long> removed = new HashMap<>();
+                removed.put(removal.getKey(), removal.getValue());
+                synchronized (cart) {
+                    cart.acknowledge(new CartSnapshot(cart, new ArrayList<>(), removed));
+                }
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Cart flush for user {} failed, retrying next cycle: {}", cart.userId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirtyCarts();
+    }
+
+    private void write(List<CartSnapshot> snapshots) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (CartSnapshot snapshot : snapshots) {
+            for (CartLine line : snapshot.dirty) {
+                upserts.add(new Object[] {line.id, snapshot.cart.userId, line.productId, line.quantity, Timestamp.valueOf(line.addedAt)});
+            }
+            for (Long productId : snapshot.removed.keySet()) {
+                deletes.add(new Object[] {snapshot.cart.userId, productId});
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+            }
+        });
+
+        for (CartSnapshot snapshot : snapshots) {
+            synchronized (snapshot.cart) {
+                snapshot.cart.acknowledge(snapshot);
+            }
+        }
+    }
+
+    static class CartLine {
+        // Allocated up front from the cart id sequence, so the line's id is stable before its first flush
+        final Long id;
+        final Long productId;
+        int quantity;
+        final LocalDateTime addedAt;
+        long dirtyStamp;
+
+        CartLine(Long id, Long productId, int quantity, LocalDateTime addedAt) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.addedAt = addedAt;
+        }
+
+        CartLine copy() {
+            CartLine copy = new CartLine(id, productId, quantity, addedAt);
+            copy.dirtyStamp = dirtyStamp;
+            return copy;
+        }
+    }
+
+    static class CartSnapshot {
+        final UserCart cart;
+        final List<CartLine> dirty;
+        final Map<Long, Long> removed;
+
+        CartSnapshot(UserCart cart, List<CartLine> dirty, Map<Long, Long> removed) {
+            this.cart = cart;
+            this.dirty = dirty;
+            this.removed = removed;
+        }
+    }
+
+    static class UserCart {
+        final Long userId;
+        final Map<Long, CartLine> lines = new LinkedHashMap<>();
+        final Map<Long, Long> removed = new HashMap<>();
+        // productId -> id of a removed line, reused if the product is added back
+        final Map<Long, Long> releasedIds = new HashMap<>();
+        volatile long lastAccess = System.currentTimeMillis();
+        boolean evicted;
+        long version;
+        List<CartSummary.Line> pricedLines;
+        long pricedVersion;
+        long pricedCatalogVersion;
+
+        UserCart(Long userId) {
+            this.userId = userId;
+        }
+
+        CartLine resolve(Long cartId) {
+            if (cartId == null) {
+                return null;
+            }
+            for (CartLine line : lines.values()) {
+                if (cartId.equals(line.id)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        CartSnapshot snapshot() {
+            List<CartLine> dirty = new ArrayList<>();
+            for (CartLine line : lines.values()) {
+                if (line.dirtyStamp != 0) {
+                    dirty.add(line.copy());
+                }
+            }
+            if (dirty.isEmpty() && removed.isEmpty()) {
+                return null;
+            }
+            return new CartSnapshot(this, dirty, new HashMap<>(removed));
+        }
+
+        void acknowledge(CartSnapshot snapshot) {
+            for (CartLine written : snapshot.dirty) {
+                CartLine line = lines.get(written.productId);
+                if (line == null) {
+                    continue;
+                }
+                if (line.dirtyStamp == written.dirtyStamp) {
+                    line.dirtyStamp = 0;
+                }
+            }
+            for (Map.Entry<Long, Long> entry : snapshot.removed.entrySet()) {
+                removed.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
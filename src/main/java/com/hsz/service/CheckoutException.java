@@ -0,0 +1,11 @@
+package com.hsz.service;
+
+/**
+ * Raised when a checkout cannot complete (empty cart, unavailable product, stock or coupon
+ * exhausted). Thrown before or inside the order transaction, so every write is rolled back.
+ */
+public class CheckoutException extends RuntimeException {
+    public CheckoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,328 @@
+package com.hsz.service;
+
+import com.hsz.dto.CartSummary;
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.model.Coupon;
+import com.hsz.model.Order;
+import com.hsz.model.User;
+import com.hsz.repository.OrderRepository;
+import com.hsz.repository.ProductRepository;
+import com.hsz.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Turns the user's cart into an Order. Stock is taken first, outside any transaction, per
+ * product through {@link StockWriter}, which merges concurrent buyers of the same product
+ * into one conditional decrement that rejects rather than going negative; hot SKUs come from
+ * their in-memory counter instead. Every unit taken is recorded as a {@link StockClaimService}
+ * claim, and the order transaction consumes the claim, so a checkout that fails or dies
+ * before its order commits has its units given back. Availability against other buyers'
+ * checkout holds is enforced up front through {@link StockReservationService}.
+ *
+ * An order paid online takes no stock here: the buyer's hold moves to the order and keeps
+ * its units aside until {@link PaymentService} settles the payment.
+ */
+@Service
+public class CheckoutService {
+
+    private static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String CLEAR_CART_SQL = "DELETE FROM cart WHERE user_id = ?";
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Autowired
+    private StockWriter stockWriter;
+
+    @Autowired
+    private StockClaimService stockClaimService;
+
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CouponRegistry couponRegistry;
+
+    @Autowired
+    private CouponRedemptionService redemptionService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.stock-writer.timeout-ms:5000}")
+    private long stockTimeoutMillis;
+
+    /**
+     * Not transactional itself: the stock claim commits on the stock writer's connections
+     * before the order transaction opens, so no request holds a pooled connection while it
+     * waits for a group commit.
+     */
+    public Order checkout(Long userId, CreateOrderRequest request) {
+        return placeOrder(userId, request, false);
+    }
+
+    /**
+     * Places an order that waits for online payment. Its stock is not taken and the cart is
+     * left as it is; the buyer's hold is attached to the order in the order transaction
+     * instead, and the capture settlement takes the units and clears the lines.
+     */
+    public Order checkoutForPayment(Long userId, CreateOrderRequest request) {
+        return placeOrder(userId, request, true);
+    }
+
+    private Order placeOrder(Long userId, CreateOrderRequest request, boolean online) {
+        // TreeMap gives the deterministic product-id order used for reservations and stock writes
+        TreeMap<Long, Integer> quantities = new TreeMap<>(cartService.getQuantities(userId));
+        if (quantities.isEmpty()) {
+            throw new CheckoutException("Your cart is empty");
+        }
+
+        // Reuse the hold taken when checkout started; take one now if it is gone or too small
+        StockReservationService.Reservation reservation = reservationService.getActiveReservation(userId);
+        boolean reservedHere = reservation == null || !reservation.covers(quantities);
+        if (reservedHere) {
+            reservation = reservationService.reserve(userId, quantities);
+        }
+        String reservationId = reservation.getId();
+
+        Coupon coupon = null;
+        boolean couponReserved = false;
+        boolean committed = false;
+        try {
+            Map<Long, Object[]> pricing = new HashMap<>();
+            for (Object[] row : productRepository.findPricingByIds(quantities.keySet())) {
+                pricing.put((Long) row[0], row);
+            }
+
+            List<CartSummary.Line> lines = new ArrayList<>(quantities.size());
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Object[] row = pricing.get(entry.getKey());
+                if (row == null || !Boolean.TRUE.equals(row[3])) {
+                    throw new CheckoutException("A product in your cart is no longer available");
+                }
+                lines.add(new CartSummary.Line(null, entry.getKey(), (String) row[1], (BigDecimal) row[2], entry.getValue()));
+            }
+
+            String code = request.getCouponCode() == null || request.getCouponCode().isBlank()
+                    ? null : request.getCouponCode().trim();
+            coupon = couponRegistry.findValid(code);
+            CartSummary summary = pricingService.price(lines, coupon, code);
+            if (summary.getCouponMessage() != null) {
+                throw new CheckoutException(summary.getCouponMessage());
+            }
+            if (coupon != null) {
+                if (!redemptionService.tryReserve(coupon)) {
+                    throw new CheckoutException("Coupon usage limit reached");
+                }
+                couponReserved = true;
+            }
+
+            String claimId = online ? null : claimStock(lines);
+            String heldFor = online ? reservationId : null;
+            Coupon redeemed = coupon;
+            Order order;
+            try {
+                order = transactionTemplate.execute(status ->
+                        createOrder(userId, request, lines, summary, redeemed, claimId, heldFor));
+            } catch (RuntimeException e) {
+                if (claimId != null) {
+                    stockClaimService.release(claimId);
+                }
+                throw e;
+            }
+            committed = true;
+
+            if (!online) {
+                reservationService.convert(reservationId);
+                // Also drops the in-memory cart and masks any flush that was in flight
+                cartService.clearCart(userId);
+            }
+            return order;
+        } finally {
+            if (!committed) {
+                if (couponReserved) {
+                    redemptionService.release(coupon);
+                }
+                // An online checkout may have attached the hold already, which took it from the user
+                if (reservedHere || online) {
+                    reservationService.release(reservationId);
+                }
+            }
+        }
+    }
+
+    // Either consumes the stock claim or, for an online order, attaches the hold heldFor
+    private Order createOrder(Long userId, CreateOrderRequest request, List<CartSummary.Line> lines,
+                              CartSummary summary, Coupon coupon, String claimId, String heldFor) {
+        if (claimId != null && !stockClaimService.consume(claimId, lines.size())) {
+            throw new CheckoutException("Checkout took too long, please try again");
+        }
+
+        User user = userRepository.getReferenceById(userId);
+        Map<String, String> address = request.getShippingAddress();
+        Order order = new Order(user, summary.getTotal().toBigDecimal(), formatAddress(address), address.get("phone"));
+        order.setStockTaken(heldFor == null);
+        order = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), null, order.getStatus()));
+        if (coupon != null) {
+            redemptionService.recordRedemption(order.getId(), coupon, userId);
+        }
+
+        List<Object[]> items = new ArrayList<>(lines.size());
+        Map<Long, Integer> sold = new LinkedHashMap<>();
+        for (CartSummary.Line line : lines) {
+            items.add(new Object[] {idAllocator.next(IdAllocator.ORDER_ITEMS), order.getId(),
+                    line.getProductId(), line.getQuantity(), line.getUnitPrice().toBigDecimal()});
+            sold.put(line.getProductId(), line.getQuantity());
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, items);
+        if (heldFor != null) {
+            reservationService.attach(heldFor, order.getId());
+            return order;
+        }
+        inventoryLedgerService.recordSales(sold, order.getId());
+
+        jdbcTemplate.update(CLEAR_CART_SQL, userId);
+
+        return order;
+    }
+
+    /**
+     * Takes every line's units under one claim id and returns it. All-or-nothing: on a
+     * shortfall or error whatever was already taken is given back before throwing.
+     */
+    private String claimStock(List<CartSummary.Line> lines) {
+        String claimId = StockClaimService.newClaimId();
+
+        // Hot SKUs first: a counter decrement is cheap to undo before anything is durable
+        Map<Long, Integer> hotTaken = new HashMap<>();
+        List<CartSummary.Line> rowLines = new ArrayList<>(lines.size());
+        try {
+            for (CartSummary.Line line : lines) {
+                if (!hotSkuInventoryService.isHot(line.getProductId())) {
+                    rowLines.add(line);
+                } else if (hotSkuInventoryService.tryDecrement(line.getProductId(), line.getQuantity())) {
+                    hotTaken.put(line.getProductId(), line.getQuantity());
+                } else {
+                    throw new CheckoutException("Insufficient stock for " + line.getProductName());
+                }
+            }
+            if (!hotTaken.isEmpty()) {
+                // A crash between the counter decrement and this insert strands the units
+                // unsold rather than oversold; the next reseed corrects the counter
+                stockClaimService.recordHot(claimId, hotTaken);
+            }
+        } catch (RuntimeException e) {
+            hotTaken.forEach(hotSkuInventoryService::restore);
+            throw e;
+        }
+
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>(rowLines.size());
+        for (CartSummary.Line line : rowLines) {
+            pending.add(stockWriter.decrement(claimId, line.getProductId(), line.getQuantity()));
+        }
+
+        // Wait for every row decrement before failing, so the release covers each granted one.
+        // The wait is bounded: a decrement still queued past the deadline is released when it lands.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stockTimeoutMillis);
+        String shortOf = null;
+        RuntimeException failure = null;
+        boolean timedOut = false;
+        for (int i = 0; i < rowLines.size(); i++) {
+            CompletableFuture<Boolean> future = pending.get(i);
+            try {
+                if (!future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS) && shortOf == null) {
+                    shortOf = rowLines.get(i).getProductName();
+                }
+            } catch (TimeoutException e) {
+                timedOut = true;
+                future.thenAcceptAsync(granted -> {
+                    if (granted) {
+                        stockClaimService.release(claimId);
+                    }
+                });
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new CheckoutException("Checkout was interrupted, please try again");
+            }
+        }
+        if (failure != null || shortOf != null || timedOut) {
+            stockClaimService.release(claimId);
+            if (failure != null) {
+                throw failure;
+            }
+            if (timedOut) {
+                throw new CheckoutException("Checkout is busy right now, please try again");
+            }
+            throw new CheckoutException("Insufficient stock for " + shortOf);
+        }
+        return claimId;
+    }
+
+    private static String formatAddress(Map<String, String> address) {
+        StringBuilder formatted = new StringBuilder();
+        for (String field : new String[] {"fullName", "addressLine1", "addressLine2", "landmark", "city", "state"}) {
+            String value = address.get(field);
+            if (value != null && !value.isBlank()) {
+                if (formatted.length() > 0) {
+                    formatted.append(", ");
+                }
+                formatted.append(value.trim());
+            }
+        }
+        String pincode = address.get("pincode");
+        if (pincode != null && !pincode.isBlank()) {
+            formatted.append(" - ").append(pincode.trim());
+        }
+        return formatted.length() > 500 ? formatted.substring(0, 500) : formatted.toString();
+    }
+}
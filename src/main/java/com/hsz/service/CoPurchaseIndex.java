@@ -0,0 +1,253 @@
+package com.hsz.service;
+
+import com.hsz.util.LongIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * "Frequently bought together": for each product, how many paid orders also contained each
+ * other product, with the best neighbours precomputed so a lookup is a single map read.
+ *
+ * Rebuilt from order_items grouped by order, counting the baskets in parallel on the common
+ * fork/join pool, at startup and periodically. Orders that become paid or stop being paid in
+ * between are applied from {@link SalesChangedEvent}s, refreshing only the neighbour lists of
+ * the products they contain. Events that arrive while a rebuild reads the baskets are replayed
+ * onto its result, so an order paid after its rows were read is not lost with the replaced counts.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class CoPurchaseIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CoPurchaseIndex.class);
+
+    private static final String BASKETS_SQL =
+            "SELECT oi.order_id, oi.product_id FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.payment_status = 'SUCCESS' ORDER BY oi.order_id";
+
+    // Neighbours kept per product
+    public static final int TOP_N = 12;
+
+    // Larger orders are bulk purchases rather than a cross-sell signal, and cost n^2 pairs
+    private static final int MAX_BASKET = 50;
+
+    // Baskets below this are counted by one task rather than split further
+    private static final int LEAF_BASKETS = 4096;
+
+    private static final long[] NONE = new long[0];
+
+    // Pair counts of a slice of the baskets, keyed by product
+    private static final class CountTask extends RecursiveTask<Map<Long, LongIntHashMap>> {
+        private final List<long[]> baskets;
+        private final int start;
+        private final int end;
+
+        private CountTask(List<long[]> baskets, int start, int end) {
+            this.baskets = baskets;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Map<Long, LongIntHashMap> compute() {
+            if (end - start > LEAF_BASKETS) {
+                int mid = (start + end) >>> 1;
+                CountTask left = new CountTask(baskets, start, mid);
+                left.fork();
+                Map<Long, LongIntHashMap> right = new CountTask(baskets, mid, end).compute();
+                return merge(left.join(), right);
+            }
+            Map<Long, LongIntHashMap> counts = new HashMap<>();
+            for (int i = start; i < end; i++) {
+                count(counts, baskets.get(i), 1);
+            }
+            return counts;
+        }
+
+        private static Map<Long, LongIntHashMap> merge(Map<Long, LongIntHashMap> into, Map<Long, LongIntHashMap> from) {
+            from.forEach((productId, neighbours) -> {
+                LongIntHashMap existing = into.putIfAbsent(productId, neighbours);
+                if (existing != null) {
+                    existing.addAll(neighbours);
+                }
+            });
+            return into;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarded by this
+    private Map<Long, LongIntHashMap> counts = new HashMap<>();
+
+    // Read without locking; entries are replaced, never modified
+    private volatile ConcurrentHashMap<Long, long[]> related = new ConcurrentHashMap<>();
+
+    // Guarded by this; events that arrive while a rebuild reads baskets, replayed onto its result
+    private List<SalesChangedEvent> pendingEvents;
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.related.rebuild-ms:3600000}", initialDelayString = "${app.related.rebuild-ms:3600000}")
+    public void rebuild() {
+        synchronized (this) {
+            pendingEvents = new ArrayList<>();
+        }
+        List<long[]> baskets;
+        Map<Long, LongIntHashMap> fresh;
+        ConcurrentHashMap<Long, long[]> freshRelated = new ConcurrentHashMap<>();
+        try {
+            baskets = loadBaskets();
+            fresh = baskets.isEmpty()
+                    ? new HashMap<>() : ForkJoinPool.commonPool().invoke(new CountTask(baskets, 0, baskets.size()));
+            fresh.forEach((productId, neighbours) -> freshRelated.put(productId, top(neighbours)));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingEvents = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            List<SalesChangedEvent> missed = pendingEvents;
+            pendingEvents = null;
+            for (SalesChangedEvent event : missed) {
+                apply(fresh, freshRelated, event);
+            }
+            counts = fresh;
+            related = freshRelated;
+        }
+        logger.info("Co-purchase index built from {} orders covering {} products", baskets.size(), fresh.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSalesChanged(SalesChangedEvent event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+        apply(counts, related, event);
+    }
+
+    // Caller holds the lock
+    private static void apply(Map<Long, LongIntHashMap> counts, ConcurrentHashMap<Long, long[]> related,
+                              SalesChangedEvent event) {
+        Map<Long, Set<Long>> products = new LinkedHashMap<>();
+        Map<Long, Integer> signs = new HashMap<>();
+        for (SalesChangedEvent.Line line : event.getLines()) {
+            products.computeIfAbsent(line.getOrderId(), id -> new HashSet<>()).add(line.getProductId());
+            signs.put(line.getOrderId(), line.getQuantity() < 0 ? -1 : 1);
+        }
+
+        Set<Long> touched = new HashSet<>();
+        products.forEach((orderId, productIds) -> {
+            long[] basket = basket(productIds);
+            if (basket != null) {
+                count(counts, basket, signs.get(orderId));
+                for (long productId : basket) {
+                    touched.add(productId);
+                }
+            }
+        });
+        for (Long productId : touched) {
+            LongIntHashMap neighbours = counts.get(productId);
+            if (neighbours == null || neighbours.size() == 0) {
+                counts.remove(productId);
+                related.remove(productId);
+            } else {
+                related.put(productId, top(neighbours));
+            }
+        }
+    }
+
+    // Products most often bought with productId, best first
+    public long[] related(Long productId, int limit) {
+        long[] neighbours = related.getOrDefault(productId, NONE);
+        return Arrays.copyOf(neighbours, Math.min(Math.max(limit, 0), neighbours.length));
+    }
+
+    private List<long[]> loadBaskets() {
+        List<long[]> baskets = new ArrayList<>();
+        Set<Long> current = new HashSet<>();
+        long[] currentOrder = {Long.MIN_VALUE};
+        jdbcTemplate.query(BASKETS_SQL, (RowCallbackHandler) rs -> {
+            long orderId = rs.getLong(1);
+            if (orderId != currentOrder[0]) {
+                addBasket(baskets, current);
+                current.clear();
+                currentOrder[0] = orderId;
+            }
+            current.add(rs.getLong(2));
+        });
+        addBasket(baskets, current);
+        return baskets;
+    }
+
+    private static void addBasket(List<long[]> baskets, Set<Long> productIds) {
+        long[] basket = basket(productIds);
+        if (basket != null) {
+            baskets.add(basket);
+        }
+    }
+
+    // The order's distinct products, or null when it yields no usable pairs
+    private static long[] basket(Set<Long> productIds) {
+        if (productIds.size() < 2 || productIds.size() > MAX_BASKET) {
+            return null;
+        }
+        long[] basket = new long[productIds.size()];
+        int i = 0;
+        for (Long productId : productIds) {
+            basket[i++] = productId;
+        }
+        return basket;
+    }
+
+    private static void count(Map<Long, LongIntHashMap> counts, long[] basket, int delta) {
+        for (long productId : basket) {
+            LongIntHashMap neighbours = counts.computeIfAbsent(productId, id -> new LongIntHashMap());
+            for (long other : basket) {
+                if (other != productId) {
+                    neighbours.add(other, delta);
+                }
+            }
+        }
+    }
+
+    // Bounded min-heap of {count, product id}: the root is the weakest neighbour kept
+    private static long[] top(LongIntHashMap neighbours) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(TOP_N + 1, (a, b) ->
+                a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+        neighbours.forEach((productId, count) -> {
+            if (count <= 0) {
+                return;
+            }
+            heap.add(new long[] {count, productId});
+            if (heap.size() > TOP_N) {
+                heap.poll();
+            }
+        });
+        long[] best = new long[heap.size()];
+        for (int i = best.length - 1; i >= 0; i--) {
+            best[i] = heap.poll()[1];
+        }
+        return best;
+    }
+}
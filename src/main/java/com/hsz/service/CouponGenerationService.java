@@ -0,0 +1,131 @@
+package com.hsz.service;
+
+import com.hsz.dto.BulkCouponRequest;
+import com.hsz.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates large batches of single-use coupon codes. Existing codes sharing the prefix are
+ * loaded once into a hash set, so uniqueness is checked in memory instead of one
+ * existsByCode round-trip per code. Codes are written as they are generated, in JDBC batches
+ * of {@link #BATCH_SIZE} within one transaction, where the unique key on code still guards
+ * against concurrent writers; only the code strings are kept for the response. After commit
+ * the new coupons are read back a batch at a time and added to the registry.
+ */
+@Service
+public class CouponGenerationService {
+    private static final Logger logger = LoggerFactory.getLogger(CouponGenerationService.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Give up on a request whose code space is too small to fill without endless retries
+    private static final int MIN_SPACE_PER_CODE = 10;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO coupons (code, discount_percent, min_order_amount, max_discount_amount, valid_from, " +
+            "valid_till, usage_limit, used_count, is_active, description, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 1, 0, TRUE, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CouponRegistry couponRegistry;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Value("${app.coupons.bulk.max-count:100000}")
+    private int maxCount;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates {@code request.getCount()} new single-use coupons and returns their codes.
+     *
+     * @throws IllegalArgumentException if the request is invalid or its code space too small
+     */
+    public List<String> generate(BulkCouponRequest request) {
+        String prefix = CouponRegistry.normalize(request.getPrefix() == null ? "" : request.getPrefix());
+        if (!prefix.matches("[A-Z0-9-]*")) {
+            throw new IllegalArgumentException("Prefix may only contain letters, digits and '-'");
+        }
+        char[] alphabet = distinctChars(CouponRegistry.normalize(request.getAlphabet()));
+        if (alphabet.length < 2 || !new String(alphabet).matches("[A-Z0-9]+")) {
+            throw new IllegalArgumentException("Alphabet needs at least two distinct letters or digits");
+        }
+        int count = request.getCount();
+        int length = request.getLength();
+        if (count > maxCount) {
+            throw new IllegalArgumentException("At most " + maxCount + " codes can be generated at once");
+        }
+        if (Math.pow(alphabet.length, length) < (double) count * MIN_SPACE_PER_CODE) {
+            throw new IllegalArgumentException("Code length or alphabet too small for " + count + " unique codes");
+        }
+
+        Set<String> taken = new HashSet<>();
+        jdbcTemplate.query("SELECT code FROM coupons WHERE code LIKE ?",
+                rs -> { taken.add(CouponRegistry.normalize(rs.getString(1))); }, prefix + "%");
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp validFrom = request.getValidFrom() == null ? now : Timestamp.valueOf(request.getValidFrom());
+        Timestamp validTill = request.getValidTill() == null ? null : Timestamp.valueOf(request.getValidTill());
+
+        List<String> codes = new ArrayList<>(count);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>(Math.min(count, BATCH_SIZE));
+            char[] buffer = new char[length];
+            while (codes.size() < count) {
+                for (int i = 0; i < length; i++) {
+                    buffer[i] = alphabet[random.nextInt(alphabet.length)];
+                }
+                String code = prefix + new String(buffer);
+                // taken also collects this run's codes, so it is the only uniqueness check
+                if (!taken.add(code)) {
+                    continue;
+                }
+                codes.add(code);
+                rows.add(new Object[] {code, request.getDiscountPercent(), request.getMinOrderAmount(),
+                        request.getMaxDiscountAmount(), validFrom, validTill, request.getDescription(), now, now});
+                if (rows.size() == BATCH_SIZE || codes.size() == count) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                    rows.clear();
+                }
+            }
+        });
+
+        for (int from = 0; from < codes.size(); from += BATCH_SIZE) {
+            List<String> batch = codes.subList(from, Math.min(from + BATCH_SIZE, codes.size()));
+            couponRegistry.register(couponRepository.findByCodeIn(batch));
+        }
+        logger.info("Generated {} coupon codes with prefix '{}'", codes.size(), prefix);
+        return codes;
+    }
+
+    private static char[] distinctChars(String value) {
+        StringBuilder distinct = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (distinct.indexOf(String.valueOf(c)) < 0) {
+                distinct.append(c);
+            }
+        }
+        return distinct.toString().toCharArray();
+    }
+}
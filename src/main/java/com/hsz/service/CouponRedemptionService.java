@@ -0,0 +1,231 @@
+package com.hsz.service;
+
+import com.hsz.model.Coupon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coupon usage limits without a hot row. Uses of a limited coupon are reserved from an
+ * in-memory permit counter seeded from usage_limit - used_count, so checkouts never lock the
+ * coupons row and can never take more uses than the limit allows.
+ *
+ * Each redemption is written to coupon_redemptions in the order's own transaction (one row per
+ * order, so a retried order cannot count twice). A scheduled flush folds uncounted rows into
+ * coupons.used_count with one UPDATE per coupon, marking them counted in the same transaction.
+ * Seeding subtracts rows not yet counted, so permits stay exact across restarts.
+ *
+ * Cancelling an order gives its use back: the redemption row is deleted, and used_count is
+ * lowered if the flush had already counted it, in the cancelling transaction; the permit is
+ * returned once that commits.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class CouponRedemptionService {
+    private static final Logger logger = LoggerFactory.getLogger(CouponRedemptionService.class);
+
+    private static final String SEED_SQL =
+            "SELECT c.usage_limit - COALESCE(c.used_count, 0) - " +
+            "(SELECT COUNT(*) FROM coupon_redemptions r WHERE r.coupon_id = c.id AND r.counted = FALSE) " +
+            "FROM coupons c WHERE c.id = ?";
+
+    private static final String INSERT_REDEMPTION_SQL =
+            "INSERT INTO coupon_redemptions (order_id, coupon_id, user_id, counted, created_at) VALUES (?, ?, ?, FALSE, ?)";
+
+    private static final String UNCOUNTED_SQL =
+            "SELECT id, coupon_id FROM coupon_redemptions WHERE counted = FALSE ORDER BY id LIMIT 1000 FOR UPDATE";
+
+    private static final String ADD_USED_COUNT_SQL =
+            "UPDATE coupons SET used_count = COALESCE(used_count, 0) + ? WHERE id = ?";
+
+    private static final String MARK_COUNTED_SQL = "UPDATE coupon_redemptions SET counted = TRUE WHERE id = ?";
+
+    private static final String ORDER_REDEMPTIONS_SQL =
+            "SELECT id, coupon_id, counted FROM coupon_redemptions WHERE order_id IN (:ids) FOR UPDATE";
+
+    private static final String DELETE_REDEMPTIONS_SQL = "DELETE FROM coupon_redemptions WHERE id IN (:ids)";
+
+    private static final String SUBTRACT_USED_COUNT_SQL =
+            "UPDATE coupons SET used_count = GREATEST(COALESCE(used_count, 0) - ?, 0) WHERE id = ?";
+
+    private static final class Permits {
+        private int limit;
+        private final AtomicInteger remaining;
+
+        private Permits(int limit, int remaining) {
+            this.limit = limit;
+            this.remaining = new AtomicInteger(remaining);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Limited coupons only; coupons without a usage limit never get an entry
+    private final ConcurrentHashMap<Long, Permits> permits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Fold in redemptions left uncounted by the previous run before anything is seeded
+        flushCounts();
+    }
+
+    public boolean hasRemaining(Coupon coupon) {
+        Permits entry = permitsFor(coupon);
+        return entry == null || entry.remaining.get() > 0;
+    }
+
+    public boolean tryReserve(Coupon coupon) {
+        Permits entry = permitsFor(coupon);
+        if (entry == null) {
+            return true;
+        }
+        while (true) {
+            int current = entry.remaining.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (entry.remaining.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Returns a reserved use whose order did not commit
+    public void release(Coupon coupon) {
+        Permits entry = permits.get(coupon.getId());
+        if (entry != null) {
+            entry.remaining.incrementAndGet();
+        }
+    }
+
+    // Must run inside the order's transaction; the unique order_id rejects a second redemption
+    public void recordRedemption(Long orderId, Coupon coupon, Long userId) {
+        jdbcTemplate.update(INSERT_REDEMPTION_SQL, orderId, coupon.getId(), userId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Takes back the coupon uses of cancelled orders. Must run inside the cancelling
+     * transaction; the permits are returned after it commits.
+     */
+    public void revokeForOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> redemptionIds = new ArrayList<>();
+        Map<Long, Integer> countedPerCoupon = new HashMap<>();
+        Map<Long, Integer> usesPerCoupon = new HashMap<>();
+        namedParameterJdbcTemplate.query(ORDER_REDEMPTIONS_SQL, new MapSqlParameterSource("ids", orderIds), rs -> {
+            long couponId = rs.getLong("coupon_id");
+            redemptionIds.add(rs.getLong("id"));
+            usesPerCoupon.merge(couponId, 1, Integer::sum);
+            if (rs.getBoolean("counted")) {
+                countedPerCoupon.merge(couponId, 1, Integer::sum);
+            }
+        });
+        if (redemptionIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update(DELETE_REDEMPTIONS_SQL, new MapSqlParameterSource("ids", redemptionIds));
+        if (!countedPerCoupon.isEmpty()) {
+            List<Object[]> decrements = new ArrayList<>(countedPerCoupon.size());
+            countedPerCoupon.forEach((couponId, uses) -> decrements.add(new Object[] {uses, couponId}));
+            jdbcTemplate.batchUpdate(SUBTRACT_USED_COUNT_SQL, decrements);
+        }
+
+        // Only counters seeded before this commit; one seeded later already sees the deleted rows
+        Map<Permits, Integer> returned = new HashMap<>();
+        usesPerCoupon.forEach((couponId, uses) -> {
+            Permits entry = permits.get(couponId);
+            if (entry != null) {
+                returned.merge(entry, uses, Integer::sum);
+            }
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                returned.forEach((entry, uses) -> entry.remaining.addAndGet(uses));
+            }
+        });
+    }
+
+    // Applies an admin change of usage_limit to the permits already handed out
+    public void onLimitChanged(Coupon coupon) {
+        Permits entry = permits.get(coupon.getId());
+        if (entry == null) {
+            return;
+        }
+        if (coupon.getUsageLimit() == null) {
+            permits.remove(coupon.getId(), entry);
+            return;
+        }
+        synchronized (entry) {
+            entry.remaining.addAndGet(coupon.getUsageLimit() - entry.limit);
+            entry.limit = coupon.getUsageLimit();
+        }
+    }
+
+    public void forget(Long couponId) {
+        permits.remove(couponId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.coupons.redemption-flush-ms:1000}")
+    public void flushCounts() {
+        Integer counted = transactionTemplate.execute(status -> {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(UNCOUNTED_SQL);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            Map<Long, Integer> perCoupon = new HashMap<>();
+            List<Object[]> ids = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                perCoupon.merge(((Number) row.get("coupon_id")).longValue(), 1, Integer::sum);
+                ids.add(new Object[] {row.get("id")});
+            }
+            List<Object[]> increments = new ArrayList<>(perCoupon.size());
+            perCoupon.forEach((couponId, uses) -> increments.add(new Object[] {uses, couponId}));
+            jdbcTemplate.batchUpdate(ADD_USED_COUNT_SQL, increments);
+            jdbcTemplate.batchUpdate(MARK_COUNTED_SQL, ids);
+            return rows.size();
+        });
+        if (counted != null && counted > 0) {
+            logger.debug("Counted {} coupon redemptions", counted);
+        }
+    }
+
+    private Permits permitsFor(Coupon coupon) {
+        if (coupon.getUsageLimit() == null) {
+            return null;
+        }
+        return permits.computeIfAbsent(coupon.getId(), id -> {
+            Integer remaining = jdbcTemplate.queryForObject(SEED_SQL, Integer.class, id);
+            return new Permits(coupon.getUsageLimit(), remaining == null ? 0 : remaining);
+        });
+    }
+}
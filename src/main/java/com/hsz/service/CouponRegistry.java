@@ -0,0 +1,264 @@
+package com.hsz.service;
+
+import com.hsz.model.Coupon;
+import com.hsz.repository.CouponRepository;
+import com.hsz.util.CouponDiscountIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory coupon index keyed by normalized code. Each coupon sits in exactly one of the
+ * pending, active or expired sets, and a schedule of activation/expiry boundaries sorted by
+ * time moves it between them when the clock crosses a boundary. Validating a code is then a
+ * hash lookup in the active set plus a usage counter comparison, with no SQL and no
+ * per-check clock arithmetic.
+ *
+ * Admin coupon writes refresh single entries; a periodic full reload picks up writes made
+ * by other instances.
+ */
+@Service
+public class CouponRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(CouponRegistry.class);
+
+    public enum State {
+        PENDING, ACTIVE, EXPIRED
+    }
+
+    private static final class Entry {
+        private final Coupon coupon;
+        private final String code;
+        private final long generation;
+        private volatile State state;
+
+        private Entry(Coupon coupon, String code, long generation) {
+            this.coupon = coupon;
+            this.code = code;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Boundary implements Comparable<Boundary> {
+        private final long at;
+        private final Long couponId;
+        private final long generation;
+        private final State next;
+
+        private Boundary(long at, Long couponId, long generation, State next) {
+            this.at = at;
+            this.couponId = couponId;
+            this.generation = generation;
+            this.next = next;
+        }
+
+        @Override
+        public int compareTo(Boundary other) {
+            return Long.compare(at, other.at);
+        }
+    }
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponRedemptionService redemptionService;
+
+    // Swapped whole on reload so lookups never see a half-built index
+    private volatile ConcurrentHashMap<Long, Entry> byId = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<String, Entry> active = new ConcurrentHashMap<>();
+
+    // Guarded by this; nextBoundary mirrors its head so lookups can skip the lock
+    private final PriorityQueue<Boundary> schedule = new PriorityQueue<>();
+    private volatile long nextBoundary = Long.MAX_VALUE;
+    private long generations;
+
+    // Best-discount index over the active set, rebuilt lazily after the set changes
+    private volatile CouponDiscountIndex discountIndex;
+
+    public static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.coupons.reload-ms:300000}", initialDelayString = "${app.coupons.reload-ms:300000}")
+    public synchronized void reload() {
+        List<Coupon> coupons = couponRepository.findAll();
+        ConcurrentHashMap<Long, Entry> newById = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Entry> newActive = new ConcurrentHashMap<>();
+        schedule.clear();
+        for (Coupon coupon : coupons) {
+            index(coupon, newById, newActive);
+        }
+        byId = newById;
+        active = newActive;
+        discountIndex = null;
+        nextBoundary = schedule.isEmpty() ? Long.MAX_VALUE : schedule.peek().at;
+        logger.debug("Loaded {} coupons ({} active)", coupons.size(), active.size());
+    }
+
+    /**
+     * The coupon for {@code code} if it is active now and still has uses left, otherwise null.
+     * The returned instance is shared and must be treated as read-only.
+     */
+    public Coupon findValid(String code) {
+        if (code == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= nextBoundary) {
+            advance(System.currentTimeMillis());
+        }
+        Entry entry = active.get(normalize(code));
+        if (entry == null) {
+            return null;
+        }
+        return redemptionService.hasRemaining(entry.coupon) ? entry.coupon : null;
+    }
+
+    public State getState(Long couponId) {
+        Entry entry = byId.get(couponId);
+        return entry == null ? null : entry.state;
+    }
+
+    public List<Coupon> getActiveCoupons() {
+        if (System.currentTimeMillis() >= nextBoundary) {
+            advance(System.currentTimeMillis());
+        }
+        List<Coupon> coupons = new ArrayList<>(active.size());
+        for (Entry entry : active.values()) {
+            coupons.add(entry.coupon);
+        }
+        return coupons;
+    }
+
+    /**
+     * The active coupon giving the largest discount on {@code amount}, or null if none applies.
+     * Coupons out of uses and single-use coupons are left out; the index is rebuilt when one
+     * runs out after indexing.
+     */
+    public Coupon findBest(BigDecimal amount) {
+        if (System.currentTimeMillis() >= nextBoundary) {
+            advance(System.currentTimeMillis());
+        }
+        while (true) {
+            CouponDiscountIndex index = discountIndex;
+            if (index == null) {
+                List<Coupon> usable = new ArrayList<>();
+                for (Coupon coupon : getActiveCoupons()) {
+                    // Single-use codes are handed to one customer each and never suggested
+                    if (!Integer.valueOf(1).equals(coupon.getUsageLimit()) && redemptionService.hasRemaining(coupon)) {
+                        usable.add(coupon);
+                    }
+                }
+                index = new CouponDiscountIndex(usable);
+                discountIndex = index;
+            }
+            Coupon best = index.best(amount);
+            if (best == null || redemptionService.hasRemaining(best)) {
+                return best;
+            }
+            discountIndex = null;
+        }
+    }
+
+    // Re-indexes one coupon after an admin write
+    public synchronized void refresh(Coupon coupon) {
+        unindex(coupon.getId());
+        index(coupon, byId, active);
+        discountIndex = null;
+        nextBoundary = schedule.isEmpty() ? Long.MAX_VALUE : schedule.peek().at;
+    }
+
+    // Indexes coupons created in bulk without reloading the rest
+    public synchronized void register(List<Coupon> coupons) {
+        for (Coupon coupon : coupons) {
+            unindex(coupon.getId());
+            index(coupon, byId, active);
+        }
+        discountIndex = null;
+        nextBoundary = schedule.isEmpty() ? Long.MAX_VALUE : schedule.peek().at;
+    }
+
+    public synchronized void remove(Long couponId) {
+        unindex(couponId);
+        discountIndex = null;
+    }
+
+    @Scheduled(fixedRateString = "${app.coupons.tick-ms:1000}")
+    public void tick() {
+        if (System.currentTimeMillis() >= nextBoundary) {
+            advance(System.currentTimeMillis());
+        }
+    }
+
+    private synchronized void advance(long now) {
+        while (!schedule.isEmpty() && schedule.peek().at <= now) {
+            Boundary boundary = schedule.poll();
+            Entry entry = byId.get(boundary.couponId);
+            // Boundaries of a replaced or removed version are dropped here
+            if (entry == null || entry.generation != boundary.generation) {
+                continue;
+            }
+            entry.state = boundary.next;
+            if (boundary.next == State.ACTIVE) {
+                active.put(entry.code, entry);
+            } else {
+                active.remove(entry.code, entry);
+            }
+            discountIndex = null;
+        }
+        nextBoundary = schedule.isEmpty() ? Long.MAX_VALUE : schedule.peek().at;
+    }
+
+    private void index(Coupon coupon, Map<Long, Entry> byId, Map<String, Entry> active) {
+        if (coupon.getCode() == null) {
+            return;
+        }
+        Entry entry = new Entry(coupon, normalize(coupon.getCode()), ++generations);
+        byId.put(coupon.getId(), entry);
+
+        long now = System.currentTimeMillis();
+        long from = coupon.getValidFrom() == null ? Long.MIN_VALUE : toMillis(coupon.getValidFrom());
+        // Valid through validTill inclusive, matching the previous SQL predicate
+        long till = coupon.getValidTill() == null ? Long.MAX_VALUE : toMillis(coupon.getValidTill()) + 1;
+
+        if (!Boolean.TRUE.equals(coupon.getIsActive()) || now >= till || till <= from) {
+            entry.state = State.EXPIRED;
+        } else if (now < from) {
+            entry.state = State.PENDING;
+            schedule.add(new Boundary(from, coupon.getId(), entry.generation, State.ACTIVE));
+            if (till != Long.MAX_VALUE) {
+                schedule.add(new Boundary(till, coupon.getId(), entry.generation, State.EXPIRED));
+            }
+        } else {
+            entry.state = State.ACTIVE;
+            active.put(entry.code, entry);
+            if (till != Long.MAX_VALUE) {
+                schedule.add(new Boundary(till, coupon.getId(), entry.generation, State.EXPIRED));
+            }
+        }
+    }
+
+    private void unindex(Long couponId) {
+        Entry entry = byId.remove(couponId);
+        if (entry != null) {
+            active.remove(entry.code, entry);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
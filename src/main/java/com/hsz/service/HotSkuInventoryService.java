@@ -0,0 +1,500 @@
+package com.hsz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Flash-sale ("hot SKU") inventory. For opted-in products the sellable stock lives in an
+ * in-memory atomic counter seeded from products.stock; checkouts take units with a CAS
+ * decrement that never goes below zero, so buyers never queue on the product row lock.
+ *
+ * Every change is fsynced to a local journal before it is acknowledged, with group commit:
+ * entries are appended to an in-memory buffer, and whichever caller finds no force in
+ * progress writes everything buffered so far and forces it once for the whole group, while
+ * later callers buffer behind it. One fsync therefore covers every sale that arrived during
+ * the previous one, so throughput follows the buyers rather than the disk's fsync rate. If the
+ * write fails, the units of a sale go back to the counter and the sale is refused. The net
+ * change per product is reconciled to MySQL in batches. The reconcile transaction
+ * also records the highest journal sequence it covered, so recovery after a crash replays
+ * exactly the journal entries that never reached the database. An admin re-seed records
+ * its own sequence per product in the same transaction as the stock it writes, so entries
+ * it superseded are never replayed over it.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class HotSkuInventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(HotSkuInventoryService.class);
+
+    private static final String JOURNAL_NAME = "hot-sku";
+
+    // Per-product re-seed markers: "hot-sku:reseed:<productId>"
+    private static final String RESEED_PREFIX = JOURNAL_NAME + ":reseed:";
+
+    private static final String RESEED_MARKERS_SQL =
+            "SELECT name, last_seq FROM inventory_journal_state WHERE name LIKE '" + RESEED_PREFIX + "%'";
+
+    // A marker at or below the watermark covers nothing that could still be replayed
+    private static final String PURGE_RESEED_MARKERS_SQL =
+            "DELETE FROM inventory_journal_state WHERE name LIKE '" + RESEED_PREFIX + "%' AND last_seq <= ?";
+
+    private static final String RESEED_SQL = "UPDATE products SET stock = ? WHERE id = ?";
+
+    private static final String RESTORE_SQL = "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+    private static final String APPLY_SQL = "UPDATE products SET stock = stock - ? WHERE id = ?";
+
+    private static final String WATERMARK_SQL =
+            "INSERT INTO inventory_journal_state (name, last_seq, updated_at) VALUES (?, ?, NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE last_seq = VALUES(last_seq), updated_at = VALUES(updated_at)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.inventory.hot-sku.journal-path:data/hot-sku.journal}")
+    private String journalPath;
+
+    @Value("${app.inventory.hot-sku.compact-bytes:1048576}")
+    private long compactBytes;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    // Net units taken from each hot product since the last reconcile
+    private final Map<Long, Integer> pending = new HashMap<>();
+
+    // Guards buffered journal entries, sequence numbers and the pending map together
+    private final Object journalLock = new Object();
+
+    // Held by the caller writing and forcing the buffer; taken before journalLock, never inside it
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    // Held across a reconcile so re-seeding cannot interleave with a batch in flight
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    private FileChannel journal;
+    private long sequence;
+
+    // Journal text not yet written and how many entries were buffered in all; guarded by journalLock
+    private final StringBuilder unwritten = new StringBuilder();
+    private long appended;
+
+    // Entries known to be on disk
+    private volatile long durable;
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Path path = Paths.get(journalPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        List<Long> watermark = jdbcTemplate.queryForList(
+                "SELECT last_seq FROM inventory_journal_state WHERE name = ?", Long.class, JOURNAL_NAME);
+        long applied = watermark.isEmpty() ? 0 : watermark.get(0);
+
+        long maxSeq = applied;
+        Map<Long, Long> reseeded = new HashMap<>();
+        for (Map<String, Object> marker : jdbcTemplate.queryForList(RESEED_MARKERS_SQL)) {
+            long seq = ((Number) marker.get("last_seq")).longValue();
+            reseeded.put(Long.parseLong(((String) marker.get("name")).substring(RESEED_PREFIX.length())), seq);
+            maxSeq = Math.max(maxSeq, seq);
+        }
+
+        Set<Long> hot = new HashSet<>();
+        Map<Long, Integer> unapplied = new HashMap<>();
+        long lastEntry = Long.MIN_VALUE;
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(" ");
+                try {
+                    switch (parts[0]) {
+                        case "E":
+                            hot.add(Long.parseLong(parts[1]));
+                            break;
+                        case "X":
+                            hot.remove(Long.parseLong(parts[1]));
+                            break;
+                        case "S":
+                            // A re-seed wrote products.stock directly; earlier entries no longer apply
+                            unapplied.remove(Long.parseLong(parts[1]));
+                            break;
+                        case "C":
+                            maxSeq = Math.max(maxSeq, Long.parseLong(parts[1]));
+                            break;
+                        case "D":
+                            long seq = Long.parseLong(parts[1]);
+                            Long productId = Long.parseLong(parts[2]);
+                            int quantity = Integer.parseInt(parts[3]);
+                            // A group whose write failed is written again in full; the repeat is skipped
+                            if (seq <= lastEntry) {
+                                break;
+                            }
+                            lastEntry = seq;
+                            maxSeq = Math.max(maxSeq, seq);
+                            // Entries a committed re-seed superseded stay out even if its "S" line was lost
+                            if (seq > applied && seq > reseeded.getOrDefault(productId, 0L)) {
+                                unapplied.merge(productId, quantity, Integer::sum);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (RuntimeException e) {
+                    // A torn last line from a crash mid-write carries nothing that was acknowledged
+                    logger.warn("Skipping unreadable hot SKU journal line: {}", line);
+                }
+            }
+        }
+        sequence = maxSeq;
+
+        if (!unapplied.isEmpty()) {
+            logger.info("Replaying {} un-reconciled hot SKU stock changes", unapplied.size());
+            applyToDatabase(unapplied, sequence);
+        }
+
+        for (Long productId : hot) {
+            Integer stock = stockOf(productId);
+            if (stock != null) {
+                counters.put(productId, new AtomicInteger(stock));
+            }
+        }
+        rewriteJournal();
+    }
+
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    // Current sellable units of a hot product, or null when the product is not in hot mode
+    public Integer getStock(Long productId) {
+        AtomicInteger counter = counters.get(productId);
+        return counter == null ? null : counter.get();
+    }
+
+    /**
+     * Takes {@code quantity} units if that many remain. Lock-free on the counter; the
+     * journal append that follows is a short local write, never a database round-trip.
+     */
+    public boolean tryDecrement(Long productId, int quantity) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter == null) {
+            throw new IllegalStateException("Product " + productId + " is not in hot SKU mode");
+        }
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                break;
+            }
+        }
+        try {
+            record(productId, quantity);
+        } catch (RuntimeException e) {
+            // Not durable, so not sold: the units go back and the decrement is not reconciled. Its
+            // entry may still reach the journal with a later group, which can only make a replay
+            // after a crash under-count stock, never oversell it.
+            synchronized (journalLock) {
+                pending.merge(productId, -quantity, Integer::sum);
+            }
+            counter.addAndGet(quantity);
+            throw e;
+        }
+        return true;
+    }
+
+    // Gives units back, e.g. when the order that took them rolled back
+    public void restore(Long productId, int quantity) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter == null) {
+            // Hot mode was switched off meanwhile; disabling reconciled the decrement to products.stock
+            jdbcTemplate.update(RESTORE_SQL, quantity, productId);
+            return;
+        }
+        counter.addAndGet(quantity);
+        record(productId, -quantity);
+    }
+
+    public void enable(Long productId) {
+        reconcileLock.lock();
+        try {
+            if (counters.containsKey(productId)) {
+                return;
+            }
+            Integer stock = stockOf(productId);
+            if (stock == null) {
+                throw new IllegalArgumentException("Product " + productId + " not found");
+            }
+            long entry;
+            synchronized (journalLock) {
+                counters.put(productId, new AtomicInteger(stock));
+                entry = append("E " + productId);
+            }
+            awaitDurable(entry);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    public void disable(Long productId) {
+        reconcileLock.lock();
+        try {
+            reconcile();
+            long entry = 0;
+            synchronized (journalLock) {
+                if (counters.remove(productId) != null) {
+                    entry = append("X " + productId);
+                }
+            }
+            awaitDurable(entry);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /**
+     * Admin stock overwrite for a hot product: writes products.stock and resets the counter
+     * to the same value, discarding un-reconciled decrements the new figure supersedes. The
+     * stock and the product's re-seed marker commit together, so recovery knows which
+     * journal entries the new figure already accounts for. {@code inTransaction} receives the
+     * counter value being replaced and runs inside that transaction, e.g. to record the change.
+     *
+     * @return the replaced counter value, or null if the product is not in hot SKU mode
+     */
+    public Integer reseed(Long productId, int stock, IntConsumer inTransaction) {
+        reconcileLock.lock();
+        try {
+            Integer replaced;
+            long entry;
+            synchronized (journalLock) {
+                AtomicInteger counter = counters.get(productId);
+                if (counter == null) {
+                    return null;
+                }
+                int previous = counter.get();
+                long seq = sequence + 1;
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update(RESEED_SQL, stock, productId);
+                    jdbcTemplate.update(WATERMARK_SQL, RESEED_PREFIX + productId, seq);
+                    inTransaction.accept(previous);
+                });
+                sequence = seq;
+                pending.remove(productId);
+                counter.set(stock);
+                entry = append("S " + productId + " " + stock);
+                replaced = previous;
+            }
+            awaitDurable(entry);
+            return replaced;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.hot-sku.reconcile-ms:500}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            Map<Long, Integer> batch;
+            long upTo;
+            synchronized (journalLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new HashMap<>(pending);
+                pending.clear();
+                upTo = sequence;
+            }
+
+            try {
+                applyToDatabase(batch, upTo);
+            } catch (DataAccessException e) {
+                logger.warn("Hot SKU reconcile failed, will retry: {}", e.getMessage());
+                synchronized (journalLock) {
+                    for (Map.Entry<Long, Integer> entry : batch.entrySet()) {
+                        pending.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                    }
+                }
+                return;
+            }
+
+            forceLock.lock();
+            try {
+                synchronized (journalLock) {
+                    if (pending.isEmpty() && unwritten.length() == 0 && Files.exists(Paths.get(journalPath))
+                            && Paths.get(journalPath).toFile().length() > compactBytes) {
+                        rewriteJournal();
+                    }
+                }
+            } finally {
+                forceLock.unlock();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to compact hot SKU journal", e);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        reconcile();
+        forceLock.lock();
+        try {
+            synchronized (journalLock) {
+                if (journal != null) {
+                    journal.close();
+                }
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // Durable before it returns: the entry is forced to disk, not just handed to the OS
+    private void record(Long productId, int quantity) {
+        long entry;
+        synchronized (journalLock) {
+            sequence++;
+            entry = append("D " + sequence + " " + productId + " " + quantity);
+            pending.merge(productId, quantity, Integer::sum);
+        }
+        awaitDurable(entry);
+    }
+
+    // Caller holds journalLock; buffers the entry and returns its number for awaitDurable
+    private long append(String entry) {
+        unwritten.append(entry).append('\n');
+        return ++appended;
+    }
+
+    // Returns once the given entry is on disk, writing and forcing the buffer if no one else is
+    private void awaitDurable(long entry) {
+        while (durable < entry) {
+            forceLock.lock();
+            try {
+                if (durable < entry) {
+                    writeUnwritten();
+                }
+            } finally {
+                forceLock.unlock();
+            }
+        }
+    }
+
+    // Caller holds forceLock; one write and one force for everything buffered so far
+    private void writeUnwritten() {
+        String text;
+        long upTo;
+        synchronized (journalLock) {
+            text = unwritten.toString();
+            unwritten.setLength(0);
+            upTo = appended;
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                journal.write(bytes);
+            }
+            journal.force(false);
+        } catch (IOException e) {
+            // Back in front of anything buffered since, so the next caller writes the group again
+            synchronized (journalLock) {
+                unwritten.insert(0, text);
+            }
+            throw new UncheckedIOException("Failed to append to hot SKU journal", e);
+        }
+        durable = upTo;
+    }
+
+    private void applyToDatabase(Map<Long, Integer> changes, long upTo) {
+        List<Object[]> updates = new ArrayList<>(changes.size());
+        for (Map.Entry<Long, Integer> entry : changes.entrySet()) {
+            if (entry.getValue() != 0) {
+                updates.add(new Object[] {entry.getValue(), entry.getKey()});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(APPLY_SQL, updates);
+            }
+            jdbcTemplate.update(WATERMARK_SQL, JOURNAL_NAME, upTo);
+            jdbcTemplate.update(PURGE_RESEED_MARKERS_SQL, upTo);
+        });
+    }
+
+    // Replaces the journal with the current hot set; only called with nothing pending
+    private void rewriteJournal() throws IOException {
+        Path path = Paths.get(journalPath);
+        Path tmp = Paths.get(journalPath + ".tmp");
+        StringBuilder content = new StringBuilder("C ").append(sequence).append('\n');
+        for (Long productId : counters.keySet()) {
+            content.append("E ").append(productId).append('\n');
+        }
+        try (FileChannel writer = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                writer.write(bytes);
+            }
+            writer.force(true);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path.toAbsolutePath().getParent());
+        journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Makes the rename itself durable; not every platform lets a directory be opened for this
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not fsync journal directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Integer stockOf(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+}
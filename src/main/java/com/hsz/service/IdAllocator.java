@@ -0,0 +1,197 @@
+package com.hsz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out ids from the id_sequences table for every table that used to rely on
+ * AUTO_INCREMENT: JPA inserts get them through {@link com.hsz.model.AllocatedId}, and rows
+ * written with plain JDBC batches (cart lines, order items) call {@link #next} directly, so the
+ * two never collide.
+ *
+ * Ids are served from memory in blocks, starting at {@link #BLOCK_SIZE}. Once half of a block is
+ * used the next one is reserved on a background thread with its own autocommit statement, so a
+ * request transaction never waits on, or holds a second connection for, the sequence row. Only
+ * when a block runs out before its successor arrives does the caller wait for the reservation,
+ * and then the sequence's blocks double in size (up to {@link #MAX_BLOCK_SIZE}) so the prefetch
+ * keeps ahead of that rate. Ids left in memory at shutdown are skipped, never reused.
+ *
+ * Also seeds each sequence past the table's current MAX(id) at startup, which is what lets
+ * existing AUTO_INCREMENT data move to allocated ids safely.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IdAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(IdAllocator.class);
+
+    public static final String ORDERS = "orders";
+    public static final String ORDER_ITEMS = "order_items";
+    public static final String CART = "cart";
+    public static final String WISHLIST = "wishlist";
+    public static final String REVIEWS = "reviews";
+
+    private static final String[] SEQUENCES = {ORDERS, ORDER_ITEMS, CART, WISHLIST, REVIEWS};
+
+    public static final int BLOCK_SIZE = 50;
+    public static final int MAX_BLOCK_SIZE = 1600;
+
+    private static final String SEED_SQL =
+            "INSERT INTO id_sequences (sequence_name, next_val) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))";
+
+    private static final String RESERVE_SQL =
+            "UPDATE id_sequences SET next_val = LAST_INSERT_ID(next_val + ?) WHERE sequence_name = ?";
+
+    // Set once the allocator is ready, for the Hibernate id generator which is not a bean
+    private static volatile IdAllocator instance;
+
+    private static final class Sequence {
+        private long next;
+        private long end;
+        private int blockSize = BLOCK_SIZE;
+        // Reservation of the following block as {start, end}, in flight or already done
+        private CompletableFuture<long[]> refill;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    private final AtomicLong waits = new AtomicLong();
+
+    private ExecutorService reserver;
+
+    public static IdAllocator getInstance() {
+        IdAllocator allocator = instance;
+        if (allocator == null) {
+            throw new IllegalStateException("Id allocator is not initialised yet");
+        }
+        return allocator;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Sequence names are the table names, so they are safe to splice into the MAX query
+        for (String table : SEQUENCES) {
+            Long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+            jdbcTemplate.update(SEED_SQL, table, next);
+            logger.debug("Id sequence {} starts at or after {}", table, next);
+        }
+        start();
+    }
+
+    // Starts the reservation thread and reserves a first block for every sequence
+    void start() {
+        reserver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "id-allocator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String table : SEQUENCES) {
+            Sequence sequence = sequences.computeIfAbsent(table, name -> new Sequence());
+            synchronized (sequence) {
+                sequence.refill = refill(table, sequence.blockSize);
+            }
+        }
+        instance = this;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (instance == this) {
+            instance = null;
+        }
+        if (reserver != null) {
+            reserver.shutdownNow();
+        }
+    }
+
+    public long next(String name) {
+        Sequence sequence = sequences.computeIfAbsent(name, key -> new Sequence());
+        synchronized (sequence) {
+            if (sequence.next >= sequence.end) {
+                if (sequence.refill == null) {
+                    sequence.refill = refill(name, sequence.blockSize);
+                }
+                if (!sequence.refill.isDone()) {
+                    waits.incrementAndGet();
+                    sequence.blockSize = Math.min(sequence.blockSize * 2, MAX_BLOCK_SIZE);
+                }
+                CompletableFuture<long[]> refill = sequence.refill;
+                sequence.refill = null;
+                long[] block = await(refill);
+                sequence.next = block[0];
+                sequence.end = block[1];
+            }
+            long id = sequence.next++;
+            if (sequence.refill == null && sequence.end - sequence.next <= sequence.blockSize / 2) {
+                sequence.refill = refill(name, sequence.blockSize);
+            }
+            return id;
+        }
+    }
+
+    // How many times a caller had to wait for a block; should stay near zero under steady load
+    public long getWaits() {
+        return waits.get();
+    }
+
+    private CompletableFuture<long[]> refill(String sequence, int size) {
+        return CompletableFuture.supplyAsync(() -> {
+            long end = reserveBlock(sequence, size);
+            return new long[] {end - size, end};
+        }, reserver);
+    }
+
+    private static long[] await(CompletableFuture<long[]> refill) {
+        try {
+            return refill.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the exclusive end of a freshly reserved range of {@code count} ids. Runs on the
+     * reservation thread, where no transaction is bound, so the connection is in autocommit and
+     * the sequence row is locked only for the UPDATE itself.
+     */
+    long reserveBlock(String sequence, int count) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement update = connection.prepareStatement(RESERVE_SQL)) {
+                update.setInt(1, count);
+                update.setString(2, sequence);
+                if (update.executeUpdate() == 0) {
+                    throw new IllegalStateException("Unknown id sequence " + sequence);
+                }
+            }
+            // LAST_INSERT_ID() is per connection, so it must be read on the same one
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT LAST_INSERT_ID()")) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        });
+    }
+}
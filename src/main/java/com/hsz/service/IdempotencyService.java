@@ -0,0 +1,280 @@
+package com.hsz.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hsz.dto.MessageResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Honors the Idempotency-Key header on non-repeatable POSTs. The first request with a key
+ * runs; successful responses are kept for the TTL in a bounded in-memory map and in the
+ * idempotency_keys table, and a retry with the same key gets the stored response instead of
+ * running again. A duplicate that arrives while the first is still running waits for its
+ * result rather than starting a second execution. Unsuccessful responses are not kept, so
+ * the client may retry them.
+ *
+ * A key is bound to the request it first came with: the digest of the request body is kept
+ * alongside the response, and a key that comes back with a different body is rejected with
+ * 422 rather than answered with the other request's response.
+ *
+ * Keys are scoped by endpoint and user and stored as a SHA-256 digest. Waiting on an
+ * in-flight execution is per instance; across instances the table catches retries that
+ * arrive after the first request completed.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String LOAD_SQL =
+            "SELECT status_code, body, request_hash FROM idempotency_keys WHERE key_hash = ? AND expires_at > ?";
+
+    private static final String STORE_SQL =
+            "INSERT INTO idempotency_keys (key_hash, status_code, body, request_hash, expires_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE key_hash = key_hash";
+
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE expires_at <= ? LIMIT 1000";
+
+    private static final class StoredResponse {
+        private final int status;
+        private final String body;
+        // Null on rows stored before request hashes were kept; those match any request
+        private final String requestHash;
+
+        private StoredResponse(int status, String body, String requestHash) {
+            this.status = status;
+            this.body = body;
+            this.requestHash = requestHash;
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        private final long expiresAt;
+        private final String requestHash;
+
+        private Entry(long expiresAt, String requestHash) {
+            this.expiresAt = expiresAt;
+            this.requestHash = requestHash;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMillis;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.wait-ms:30000}")
+    private long waitMillis;
+
+    // Guarded by this; every entry gets the same TTL, so insertion order is expiry order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    // Serializes map entries in key order, so equal request bodies always hash alike
+    private ObjectMapper canonicalMapper;
+
+    @PostConstruct
+    public void init() {
+        canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * Runs {@code action} once per (scope, user, key) for the given request body. Without a
+     * key the action simply runs; a key already used with a different body gets a 422.
+     */
+    public ResponseEntity<?> execute(String scope, Long userId, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + HEADER + " is too long"));
+        }
+
+        String hash = hash(scope + ":" + userId + ":" + key);
+        String requestHash = requestHash(request);
+        Entry entry;
+        boolean owner;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            evictExpired(now);
+            entry = entries.get(hash);
+            owner = entry == null;
+            if (owner) {
+                entry = new Entry(now + ttlMillis, requestHash);
+                entries.put(hash, entry);
+                evictOverflow();
+            }
+        }
+        if (!owner) {
+            return entry.requestHash.equals(requestHash) ? await(entry) : mismatch();
+        }
+
+        StoredResponse stored;
+        try {
+            stored = load(hash);
+            if (stored != null && stored.requestHash != null && !stored.requestHash.equals(requestHash)) {
+                // Stored for another body, which this entry must not claim; waiters share our body
+                forget(hash, entry);
+                entry.result.complete(new StoredResponse(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                        objectMapper.writeValueAsString(mismatch().getBody()), requestHash));
+                return mismatch();
+            }
+            if (stored == null) {
+                ResponseEntity<?> response = action.get();
+                stored = new StoredResponse(response.getStatusCode().value(),
+                        objectMapper.writeValueAsString(response.getBody()), requestHash);
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    store(hash, stored, entry.expiresAt);
+                } else {
+                    forget(hash, entry);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            forget(hash, entry);
+            entry.result.completeExceptionally(e);
+            throw new IllegalStateException("Could not serialize response for idempotent replay", e);
+        } catch (RuntimeException e) {
+            forget(hash, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        entry.result.complete(stored);
+        return toResponse(stored);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-ms:3600000}")
+    public void purgeExpired() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, now);
+        } while (deleted >= 1000);
+    }
+
+    private ResponseEntity<?> await(Entry entry) {
+        try {
+            return toResponse(entry.result.get(waitMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new MessageResponse("Error: A request with this " + HEADER + " is still in progress"));
+        } catch (ExecutionException e) {
+            // The first execution failed without a response; the client may retry
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new MessageResponse("Error: The original request failed, please retry"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private static ResponseEntity<?> mismatch() {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new MessageResponse("Error: This " + HEADER + " was already used with a different request"));
+    }
+
+    private String requestHash(Object request) {
+        try {
+            // Through plain maps and lists first, so bean properties are ordered by name as well
+            return hash(canonicalMapper.writeValueAsString(canonicalMapper.convertValue(request, Object.class)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new IllegalStateException("Could not serialize request for idempotency check", e);
+        }
+    }
+
+    private StoredResponse load(String hash) {
+        List<StoredResponse> rows = jdbcTemplate.query(LOAD_SQL,
+                (rs, rowNum) -> new StoredResponse(rs.getInt("status_code"), rs.getString("body"), rs.getString("request_hash")),
+                hash, Timestamp.valueOf(LocalDateTime.now()));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void store(String hash, StoredResponse stored, long expiresAt) {
+        try {
+            jdbcTemplate.update(STORE_SQL, hash, stored.status, stored.body, stored.requestHash, new Timestamp(expiresAt));
+        } catch (RuntimeException e) {
+            // The in-memory entry still covers retries to this instance
+            logger.warn("Could not persist idempotent response", e);
+        }
+    }
+
+    private synchronized void forget(String hash, Entry entry) {
+        entries.remove(hash, entry);
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    // Completed entries go first; evicting one only costs a table lookup on its next retry
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().getValue().result.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static ResponseEntity<?> toResponse(StoredResponse stored) {
+        return ResponseEntity.status(stored.status).contentType(MediaType.APPLICATION_JSON).body(stored.body);
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.hsz.service;
+
+import com.hsz.model.InventoryMovement;
+import com.hsz.model.InventoryMovement.MovementType;
+import com.hsz.model.InventorySnapshot;
+import com.hsz.model.Product;
+import com.hsz.repository.InventoryMovementRepository;
+import com.hsz.repository.InventorySnapshotRepository;
+import com.hsz.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only inventory ledger. Every stock change is recorded as an inventory_movements row
+ * (receipt, sale, return or adjustment), inserted in the same transaction as the stock change
+ * it describes: sales in the order transaction, admin changes together with their UPDATE.
+ *
+ * Current balances are kept in memory and move once the recording transaction commits, so
+ * reads are O(1). Snapshots are rolled forward in the database periodically, and on startup
+ * the balances are rebuilt from them plus only the movements after each snapshot.
+ */
+@Service
+public class InventoryLedgerService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedgerService.class);
+
+    private static final String INSERT_MOVEMENT_SQL =
+            "INSERT INTO inventory_movements (product_id, type, quantity, reference, note, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Newest movement old enough that every earlier insert has committed (see snapshot-lag-ms)
+    private static final String SETTLED_MOVEMENT_SQL =
+            "SELECT id FROM inventory_movements WHERE created_at < ? ORDER BY id DESC LIMIT 1";
+
+    // Rolls each product's snapshot forward by the movements after it, entirely inside MySQL
+    private static final String ROLL_SNAPSHOTS_SQL =
+            "INSERT INTO inventory_snapshots (product_id, balance, last_movement_id, taken_at) " +
+            "SELECT m.product_id, COALESCE(MAX(s.balance), 0) + SUM(m.quantity), ?, ? " +
+            "FROM inventory_movements m LEFT JOIN inventory_snapshots s ON s.product_id = m.product_id " +
+            "WHERE m.id > COALESCE(s.last_movement_id, 0) AND m.id <= ? GROUP BY m.product_id " +
+            "ON DUPLICATE KEY UPDATE balance = VALUES(balance), last_movement_id = VALUES(last_movement_id), " +
+            "taken_at = VALUES(taken_at)";
+
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE products SET stock = stock + ? WHERE id = ? AND stock + ? >= 0";
+
+    @Autowired
+    private InventoryMovementRepository movementRepository;
+
+    @Autowired
+    private InventorySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // A movement is only folded into a snapshot once it is this old, so no insert is still uncommitted
+    @Value("${app.inventory.ledger.snapshot-lag-ms:60000}")
+    private long snapshotLagMillis;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> balances = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadBalances() {
+        for (InventorySnapshot snapshot : snapshotRepository.findAll()) {
+            balances.put(snapshot.getProductId(), new AtomicInteger(snapshot.getBalance()));
+        }
+        for (Object[] row : movementRepository.sumMovementsAfterSnapshots()) {
+            Long productId = ((Number) row[0]).longValue();
+            balances.computeIfAbsent(productId, id -> new AtomicInteger()).addAndGet(((Number) row[1]).intValue());
+        }
+
+        // Products that predate the ledger open with their current stock
+        List<Object[]> opening = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT id, stock FROM products")) {
+            Long productId = ((Number) row.get("id")).longValue();
+            int stock = ((Number) row.get("stock")).intValue();
+            if (!balances.containsKey(productId) && stock != 0) {
+                opening.add(movement(productId, MovementType.ADJUSTMENT, stock, null, "Opening balance"));
+            }
+        }
+        insert(opening);
+    }
+
+    // Records a movement in the caller's transaction, if there is one
+    public void record(Long productId, MovementType type, int quantity, String reference, String note) {
+        List<Object[]> rows = new ArrayList<>(1);
+        rows.add(movement(productId, type, quantity, reference, note));
+        insert(rows);
+    }
+
+    // SALE rows for an order, batched; meant to run inside the transaction that writes the order
+    public void recordSales(Map<Long, Integer> quantities, Long orderId) {
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            rows.add(movement(entry.getKey(), MovementType.SALE, -entry.getValue(), "order:" + orderId, null));
+        }
+        insert(rows);
+    }
+
+    // Ledger balance, which tracks products.stock for every change made through this service
+    public int getBalance(Long productId) {
+        AtomicInteger balance = balances.get(productId);
+        return balance == null ? 0 : balance.get();
+    }
+
+    public List<InventoryMovement> getHistory(Long productId, LocalDateTime from, LocalDateTime to) {
+        return movementRepository.findByProductIdAndCreatedAtBetweenOrderByIdAsc(productId, from, to);
+    }
+
+    // Saves a new product and records its initial stock as a receipt in the same transaction
+    public Product createProduct(Product product) {
+        return transactionTemplate.execute(status -> {
+            Product saved = productRepository.save(product);
+            if (saved.getStock() != null && saved.getStock() > 0) {
+                record(saved.getId(), MovementType.RECEIPT, saved.getStock(), null, "Initial stock");
+            }
+            return saved;
+        });
+    }
+
+    /**
+     * Applies a relative change to the product's stock and records it. Relative updates compose
+     * with concurrent orders instead of overwriting them. Returns false if the change would take
+     * stock below zero.
+     */
+    public boolean adjustStock(Long productId, MovementType type, int quantity, String note) {
+        if (!hotSkuInventoryService.isHot(productId)) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(ADJUST_STOCK_SQL, quantity, productId, quantity) == 0) {
+                    return false;
+                }
+                record(productId, type, quantity, null, note);
+                return true;
+            }));
+        }
+
+        // The hot counter and its journal are not part of any transaction: undo it if the row fails
+        if (quantity < 0) {
+            if (!hotSkuInventoryService.tryDecrement(productId, -quantity)) {
+                return false;
+            }
+        } else {
+            hotSkuInventoryService.restore(productId, quantity);
+        }
+        try {
+            record(productId, type, quantity, null, note);
+        } catch (RuntimeException e) {
+            if (quantity < 0) {
+                hotSkuInventoryService.restore(productId, -quantity);
+            } else if (!hotSkuInventoryService.tryDecrement(productId, quantity)) {
+                logger.error("Could not undo hot SKU adjustment of {} for product {}", quantity, productId);
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the product's stock to an absolute count, recording the difference from the stock
+     * it replaces as an adjustment in the same transaction. The current count is read under a
+     * row lock (or the hot SKU journal lock) so a sale that lands meanwhile is not lost.
+     */
+    public void setStock(Long productId, int stock, String note) {
+        Integer reseeded = hotSkuInventoryService.reseed(productId, stock, previous -> {
+            if (stock != previous) {
+                record(productId, MovementType.ADJUSTMENT, stock - previous, null, note);
+            }
+        });
+        if (reseeded != null) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer previous = jdbcTemplate.queryForObject(
+                    "SELECT stock FROM products WHERE id = ? FOR UPDATE", Integer.class, productId);
+            jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", stock, productId);
+            if (stock != previous) {
+                record(productId, MovementType.ADJUSTMENT, stock - previous, null, note);
+            }
+        });
+    }
+
+    /**
+     * Rolls the snapshots forward to the newest settled movement with one INSERT ... SELECT;
+     * nothing is read into or locked in memory, so recording carries on meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.snapshot-ms:600000}",
+               initialDelayString = "${app.inventory.ledger.snapshot-ms:600000}")
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> settled = jdbcTemplate.queryForList(SETTLED_MOVEMENT_SQL, Long.class,
+                Timestamp.valueOf(now.minusNanos(snapshotLagMillis * 1_000_000)));
+        if (settled.isEmpty()) {
+            return;
+        }
+        long upTo = settled.get(0);
+        int rows = jdbcTemplate.update(ROLL_SNAPSHOTS_SQL, upTo, Timestamp.valueOf(now), upTo);
+        logger.info("Rolled inventory snapshots forward to movement {} ({} rows affected)", upTo, rows);
+    }
+
+    private static Object[] movement(Long productId, MovementType type, int quantity, String reference, String note) {
+        return new Object[] {productId, type.name(), quantity, reference, note, Timestamp.valueOf(LocalDateTime.now())};
+    }
+
+    private void insert(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_MOVEMENT_SQL, rows);
+
+        Map<Long, Integer> changes = new HashMap<>();
+        for (Object[] row : rows) {
+            changes.merge((Long) row[0], (Integer) row[2], Integer::sum);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(changes);
+            }
+        });
+    }
+
+    private void apply(Map<Long, Integer> changes) {
+        changes.forEach((productId, quantity) ->
+                balances.computeIfAbsent(productId, id -> new AtomicInteger()).addAndGet(quantity));
+    }
+}
@@ -0,0 +1,509 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import com.hsz.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Order item facts held in memory as parallel primitive columns for ad-hoc admin analytics:
+ * the order day as an epoch day, the line amount in paise, the quantity, and the category,
+ * order status and payment status as small integer codes. Aggregations scan the columns on
+ * a fork/join pool instead of joining orders, order_items and products per question.
+ *
+ * Loaded with one join at startup. New orders are appended and status changes and deletions
+ * applied from {@link OrderStatusChangedEvent}s and {@link OrderStatusBatchChangedEvent}s; payment status changes made by settlement
+ * and admin edits show up on the periodic full reload, which also corrects any drift.
+ *
+ * The rows of an order are contiguous, so distinct orders are counted by comparing a row's
+ * order id with the last one counted, and the scan is only ever split between orders.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class OrderFactStore {
+    private static final Logger logger = LoggerFactory.getLogger(OrderFactStore.class);
+
+    private static final String LOAD_SQL =
+            "SELECT oi.order_id, o.order_date, o.status, o.payment_status, oi.price, oi.quantity, p.category " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN products p ON p.id = oi.product_id " +
+            "WHERE o.order_date IS NOT NULL";
+
+    private static final String LOAD_ALL_SQL = LOAD_SQL + " ORDER BY oi.order_id, oi.id";
+
+    private static final String LOAD_ORDER_SQL = LOAD_SQL + " AND oi.order_id = ? ORDER BY oi.id";
+
+    // Status code of the rows of a deleted order; never matches a query
+    private static final int DELETED = -1;
+
+    // Rows below this are aggregated by one task rather than split further
+    private static final int LEAF_ROWS = 16384;
+
+    private static final Order.OrderStatus[] ORDER_STATUSES = Order.OrderStatus.values();
+    private static final Order.PaymentStatus[] PAYMENT_STATUSES = Order.PaymentStatus.values();
+
+    public enum Dimension { NONE, DAY, WEEK, MONTH, CATEGORY, STATUS, PAYMENT_STATUS }
+
+    // Columns of one generation of the store. Rows below size are published and never moved;
+    // statuses are updated in place under the store lock.
+    private static final class Facts {
+        private final long[] orderIds;
+        private final int[] days;
+        private final long[] amounts;
+        private final int[] quantities;
+        private final int[] categories;
+        private final int[] statuses;
+        private final int[] paymentStatuses;
+        private volatile int size;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+        // Order id to its row range {start, end}; guarded by the store lock
+        private final Map<Long, int[]> orders;
+
+        private Facts(int capacity) {
+            orderIds = new long[capacity];
+            days = new int[capacity];
+            amounts = new long[capacity];
+            quantities = new int[capacity];
+            categories = new int[capacity];
+            statuses = new int[capacity];
+            paymentStatuses = new int[capacity];
+            orders = new HashMap<>();
+        }
+
+        private Facts(Facts from, int capacity) {
+            orderIds = Arrays.copyOf(from.orderIds, capacity);
+            days = Arrays.copyOf(from.days, capacity);
+            amounts = Arrays.copyOf(from.amounts, capacity);
+            quantities = Arrays.copyOf(from.quantities, capacity);
+            categories = Arrays.copyOf(from.categories, capacity);
+            statuses = Arrays.copyOf(from.statuses, capacity);
+            paymentStatuses = Arrays.copyOf(from.paymentStatuses, capacity);
+            size = from.size;
+            minDay = from.minDay;
+            maxDay = from.maxDay;
+            orders = from.orders;
+        }
+    }
+
+    // Per-group sums of one slice of the rows
+    private static final class Partial {
+        private final long[] revenue;
+        private final long[] items;
+        private final long[] orders;
+
+        private Partial(int groups) {
+            revenue = new long[groups];
+            items = new long[groups];
+            orders = new long[groups];
+        }
+
+        private Partial merge(Partial other) {
+            for (int g = 0; g < revenue.length; g++) {
+                revenue[g] += other.revenue[g];
+                items[g] += other.items[g];
+                orders[g] += other.orders[g];
+            }
+            return this;
+        }
+    }
+
+    // A resolved query: -1 for an absent code filter; keyTable maps (key column - keyOffset) to a group
+    private static final class Scan {
+        private final Facts facts;
+        private final int fromDay;
+        private final int toDay;
+        private final int category;
+        private final int status;
+        private final int paymentStatus;
+        private final int[] keyColumn;
+        private final int[] keyTable;
+        private final int keyOffset;
+        private final int groups;
+
+        private Scan(Facts facts, int fromDay, int toDay, int category, int status, int paymentStatus,
+                     int[] keyColumn, int[] keyTable, int keyOffset, int groups) {
+            this.facts = facts;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.category = category;
+            this.status = status;
+            this.paymentStatus = paymentStatus;
+            this.keyColumn = keyColumn;
+            this.keyTable = keyTable;
+            this.keyOffset = keyOffset;
+            this.groups = groups;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private final Scan scan;
+        private final int start;
+        private final int end;
+
+        private ScanTask(Scan scan, int start, int end) {
+            this.scan = scan;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (end - start > LEAF_ROWS) {
+                long[] orderIds = scan.facts.orderIds;
+                int mid = (start + end) >>> 1;
+                while (mid < end && orderIds[mid] == orderIds[mid - 1]) {
+                    mid++;
+                }
+                if (mid < end) {
+                    ScanTask left = new ScanTask(scan, start, mid);
+                    left.fork();
+                    Partial right = new ScanTask(scan, mid, end).compute();
+                    return left.join().merge(right);
+                }
+            }
+            return aggregate();
+        }
+
+        private Partial aggregate() {
+            Facts facts = scan.facts;
+            Partial partial = new Partial(scan.groups);
+            long[] lastOrder = new long[scan.groups];
+            Arrays.fill(lastOrder, Long.MIN_VALUE);
+            for (int i = start; i < end; i++) {
+                int status = facts.statuses[i];
+                int day = facts.days[i];
+                if (status == DELETED || day < scan.fromDay || day >= scan.toDay
+                        || (scan.status >= 0 && status != scan.status)
+                        || (scan.paymentStatus >= 0 && facts.paymentStatuses[i] != scan.paymentStatus)
+                        || (scan.category >= 0 && facts.categories[i] != scan.category)) {
+                    continue;
+                }
+                int group = scan.keyColumn == null ? 0
+                        : scan.keyTable == null ? scan.keyColumn[i] : scan.keyTable[scan.keyColumn[i] - scan.keyOffset];
+                if (group < 0) {
+                    // No payment status recorded
+                    continue;
+                }
+                partial.revenue[group] += facts.amounts[i];
+                partial.items[group] += facts.quantities[i];
+                if (lastOrder[group] != facts.orderIds[i]) {
+                    lastOrder[group] = facts.orderIds[i];
+                    partial.orders[group]++;
+                }
+            }
+            return partial;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.analytics.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    // Category codes; names is replaced whole when a category is added
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private volatile String[] categoryNames = new String[0];
+
+    private volatile Facts facts = new Facts(0);
+
+    // Guarded by this; events that arrive while a reload reads orders, replayed onto its result
+    private List<Object> pendingEvents;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("order-facts-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        reload();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.reload-ms:600000}", initialDelayString = "${app.analytics.reload-ms:600000}")
+    public void reload() {
+        synchronized (this) {
+            pendingEvents = new ArrayList<>();
+        }
+        Facts fresh;
+        try {
+            fresh = new Facts(Math.max(1024, facts.size));
+            Facts[] loading = {fresh};
+            jdbcTemplate.query(LOAD_ALL_SQL, (RowCallbackHandler) rs -> loading[0] = append(loading[0], rs));
+            fresh = loading[0];
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingEvents = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            facts = fresh;
+            List<Object> missed = pendingEvents;
+            pendingEvents = null;
+            for (Object event : missed) {
+                if (event instanceof OrderStatusBatchChangedEvent batch) {
+                    applyBatch(batch);
+                } else {
+                    apply((OrderStatusChangedEvent) event);
+                }
+            }
+        }
+        logger.info("Loaded {} order item facts", fresh.size);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStatusChanged(OrderStatusChangedEvent event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStatusBatchChanged(OrderStatusBatchChangedEvent event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+        applyBatch(event);
+    }
+
+    /**
+     * Sums revenue, item quantity and distinct orders per group of {@code groupBy} over the
+     * order items matching every non-null filter; {@code to} is exclusive. Revenue and average
+     * order value only cover the matching items, so a category filter gives that category's
+     * share of each order. Date groups are returned in order, including empty ones.
+     */
+    public List<Map<String, Object>> aggregate(Dimension groupBy, LocalDate from, LocalDate to, String category,
+                                               Order.OrderStatus status, Order.PaymentStatus paymentStatus) {
+        Facts current = facts;
+        int size = current.size;
+        String[] names = categoryNames;
+
+        int categoryCode = -1;
+        if (category != null) {
+            Integer code = categoryCode(category);
+            if (code == null) {
+                return new ArrayList<>();
+            }
+            categoryCode = code;
+        }
+        int fromDay = from == null ? current.minDay : (int) Math.max(from.toEpochDay(), current.minDay);
+        int toDay = to == null ? current.maxDay + 1 : (int) Math.min(to.toEpochDay(), current.maxDay + 1L);
+        if (size == 0 || fromDay >= toDay) {
+            return new ArrayList<>();
+        }
+
+        int[] keyColumn = null;
+        int[] keyTable = null;
+        String[] labels;
+        switch (groupBy) {
+            case DAY:
+            case WEEK:
+            case MONTH:
+                keyColumn = current.days;
+                keyTable = new int[toDay - fromDay];
+                labels = dateGroups(groupBy, fromDay, toDay, keyTable);
+                break;
+            case CATEGORY:
+                keyColumn = current.categories;
+                labels = names;
+                break;
+            case STATUS:
+                keyColumn = current.statuses;
+                labels = new String[ORDER_STATUSES.length];
+                for (int i = 0; i < labels.length; i++) {
+                    labels[i] = ORDER_STATUSES[i].name();
+                }
+                break;
+            case PAYMENT_STATUS:
+                keyColumn = current.paymentStatuses;
+                labels = new String[PAYMENT_STATUSES.length];
+                for (int i = 0; i < labels.length; i++) {
+                    labels[i] = PAYMENT_STATUSES[i].name();
+                }
+                break;
+            default:
+                labels = new String[] {"all"};
+        }
+
+        Scan scan = new Scan(current, fromDay, toDay, categoryCode,
+                status == null ? -1 : status.ordinal(), paymentStatus == null ? -1 : paymentStatus.ordinal(),
+                keyColumn, keyTable, fromDay, labels.length);
+        Partial result = pool.invoke(new ScanTask(scan, 0, size));
+
+        boolean dated = keyTable != null;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int g = 0; g < labels.length; g++) {
+            if (!dated && result.orders[g] == 0) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("key", labels[g]);
+            row.put("revenue", Money.ofPaise(result.revenue[g]).toBigDecimal());
+            row.put("orders", result.orders[g]);
+            row.put("items", result.items[g]);
+            row.put("averageOrderValue", result.orders[g] == 0 ? Money.ZERO.toBigDecimal()
+                    : Money.ofPaise(Math.round((double) result.revenue[g] / result.orders[g])).toBigDecimal());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public int size() {
+        return facts.size;
+    }
+
+    // Fills keyTable with the group of each day in [fromDay, toDay) and returns the group labels
+    private static String[] dateGroups(Dimension groupBy, int fromDay, int toDay, int[] keyTable) {
+        List<String> labels = new ArrayList<>();
+        Object lastBucket = null;
+        for (int day = fromDay; day < toDay; day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            Object bucket;
+            if (groupBy == Dimension.WEEK) {
+                bucket = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            } else if (groupBy == Dimension.MONTH) {
+                bucket = YearMonth.from(date);
+            } else {
+                bucket = date;
+            }
+            if (!bucket.equals(lastBucket)) {
+                labels.add(bucket.toString());
+                lastBucket = bucket;
+            }
+            keyTable[day - fromDay] = labels.size() - 1;
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    // Caller holds the lock
+    private void apply(OrderStatusChangedEvent event) {
+        Facts current = facts;
+        int[] range = current.orders.get(event.getOrderId());
+        if (event.getFrom() == null) {
+            if (range == null) {
+                Facts[] loading = {current};
+                jdbcTemplate.query(LOAD_ORDER_SQL, (RowCallbackHandler) rs -> loading[0] = append(loading[0], rs),
+                        event.getOrderId());
+                facts = loading[0];
+            }
+            return;
+        }
+        if (range != null) {
+            int code = event.getTo() == null ? DELETED : event.getTo().ordinal();
+            Arrays.fill(current.statuses, range[0], range[1], code);
+        }
+    }
+
+    // Caller holds the lock; every order in a batch is moved to the same code in one pass
+    private void applyBatch(OrderStatusBatchChangedEvent event) {
+        Facts current = facts;
+        int code = event.getTo().ordinal();
+        for (List<Long> orderIds : event.getOrderIdsByFrom().values()) {
+            for (Long orderId : orderIds) {
+                int[] range = current.orders.get(orderId);
+                if (range != null) {
+                    Arrays.fill(current.statuses, range[0], range[1], code);
+                }
+            }
+        }
+    }
+
+    // Appends the current row of rs, growing into a new generation when full; not yet visible to
+    // readers of an unpublished generation, published by the size write otherwise
+    private Facts append(Facts target, ResultSet rs) throws SQLException {
+        int row = target.size;
+        if (row == target.orderIds.length) {
+            target = new Facts(target, Math.max(1024, row * 2));
+            if (facts.orders == target.orders) {
+                facts = target;
+            }
+        }
+        long orderId = rs.getLong("order_id");
+        Timestamp orderDate = rs.getTimestamp("order_date");
+        int day = (int) orderDate.toLocalDateTime().toLocalDate().toEpochDay();
+        int quantity = rs.getInt("quantity");
+
+        target.orderIds[row] = orderId;
+        target.days[row] = day;
+        target.quantities[row] = quantity;
+        target.amounts[row] = Money.of(rs.getBigDecimal("price")).times(quantity).getPaise();
+        target.categories[row] = encode(rs.getString("category"));
+        target.statuses[row] = code(ORDER_STATUSES, rs.getString("status"));
+        target.paymentStatuses[row] = code(PAYMENT_STATUSES, rs.getString("payment_status"));
+        target.minDay = Math.min(target.minDay, day);
+        target.maxDay = Math.max(target.maxDay, day);
+
+        int[] range = target.orders.get(orderId);
+        if (range == null) {
+            target.orders.put(orderId, new int[] {row, row + 1});
+        } else {
+            range[1] = row + 1;
+        }
+        target.size = row + 1;
+        return target;
+    }
+
+    private static <E extends Enum<E>> int code(E[] values, String name) {
+        for (E value : values) {
+            if (value.name().equals(name)) {
+                return value.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    private synchronized Integer categoryCode(String category) {
+        return categoryCodes.get(category);
+    }
+
+    private synchronized int encode(String category) {
+        String name = category == null ? "" : category;
+        Integer code = categoryCodes.get(name);
+        if (code == null) {
+            code = categoryNames.length;
+            categoryCodes.put(name, code);
+            String[] names = Arrays.copyOf(categoryNames, code + 1);
+            names[code] = name;
+            categoryNames = names;
+        }
+        return code;
+    }
+}
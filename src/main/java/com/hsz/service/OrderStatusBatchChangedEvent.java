@@ -0,0 +1,20 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+
+import java.util.List;
+import java.util.Map;
+
+// Published once per bulk status update: the orders moved to one status, grouped by the status they left
+public class OrderStatusBatchChangedEvent {
+    private final Order.OrderStatus to;
+    private final Map<Order.OrderStatus, List<Long>> orderIdsByFrom;
+
+    public OrderStatusBatchChangedEvent(Order.OrderStatus to, Map<Order.OrderStatus, List<Long>> orderIdsByFrom) {
+        this.to = to;
+        this.orderIdsByFrom = orderIdsByFrom;
+    }
+
+    public Order.OrderStatus getTo() { return to; }
+    public Map<Order.OrderStatus, List<Long>> getOrderIdsByFrom() { return orderIdsByFrom; }
+}
@@ -0,0 +1,20 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+
+// Published when an order is created (from null), changes status, or is deleted (to null)
+public class OrderStatusChangedEvent {
+    private final Long orderId;
+    private final Order.OrderStatus from;
+    private final Order.OrderStatus to;
+
+    public OrderStatusChangedEvent(Long orderId, Order.OrderStatus from, Order.OrderStatus to) {
+        this.orderId = orderId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public Long getOrderId() { return orderId; }
+    public Order.OrderStatus getFrom() { return from; }
+    public Order.OrderStatus getTo() { return to; }
+}
@@ -0,0 +1,147 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import com.hsz.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Order counts per status held in memory, so the dashboard never scans orders. Seeded with
+ * one GROUP BY status query, adjusted by {@link OrderStatusChangedEvent}s and, once per bulk
+ * update, {@link OrderStatusBatchChangedEvent}s after the change has committed, and
+ * periodically replaced by a fresh GROUP BY to correct drift from concurrent edits of the
+ * same order or writes made by other instances.
+ *
+ * Changes applied while that GROUP BY runs are also recorded as deltas and added to its
+ * result at the swap, so a change committed after the query read its rows is not lost.
+ * The swap holds the write side of a lock that event handlers take for reading, so no
+ * change lands in the old map after the deltas were taken.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class OrderStatusCounts {
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusCounts.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    // Swapped whole on reconciliation; only the counters inside change afterwards
+    private volatile Map<Order.OrderStatus, AtomicLong> counts = emptyCounts();
+
+    // Changes seen since the running reconciliation started, null when none is running
+    private volatile Map<Order.OrderStatus, AtomicLong> deltas;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.orders.status-counts.reconcile-ms:300000}",
+               initialDelayString = "${app.orders.status-counts.reconcile-ms:300000}")
+    public synchronized void reconcile() {
+        deltas = emptyCounts();
+        Map<Order.OrderStatus, AtomicLong> fresh = emptyCounts();
+        Map<Order.OrderStatus, AtomicLong> previous;
+        try {
+            for (Object[] row : orderRepository.countGroupedByStatus()) {
+                if (row[0] != null) {
+                    fresh.get((Order.OrderStatus) row[0]).set((Long) row[1]);
+                }
+            }
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                Map<Order.OrderStatus, AtomicLong> seen = deltas;
+                deltas = null;
+                fresh.forEach((status, count) -> count.addAndGet(seen.get(status).get()));
+                previous = counts;
+                counts = fresh;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            long drift = fresh.get(status).get() - previous.get(status).get();
+            if (drift != 0) {
+                logger.debug("Order count for {} corrected by {}", status, drift);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getFrom() == event.getTo()) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            if (event.getFrom() != null) {
+                add(event.getFrom(), -1);
+            }
+            if (event.getTo() != null) {
+                add(event.getTo(), 1);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusBatchChanged(OrderStatusBatchChangedEvent event) {
+        swapLock.readLock().lock();
+        try {
+            event.getOrderIdsByFrom().forEach((from, orderIds) -> {
+                if (from != event.getTo()) {
+                    add(from, -orderIds.size());
+                    add(event.getTo(), orderIds.size());
+                }
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private void add(Order.OrderStatus status, long delta) {
+        counts.get(status).addAndGet(delta);
+        Map<Order.OrderStatus, AtomicLong> seen = deltas;
+        if (seen != null) {
+            seen.get(status).addAndGet(delta);
+        }
+    }
+
+    public long get(Order.OrderStatus status) {
+        return counts.get(status).get();
+    }
+
+    public long total() {
+        long total = 0;
+        for (AtomicLong count : counts.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public Map<Order.OrderStatus, Long> snapshot() {
+        Map<Order.OrderStatus, Long> snapshot = new EnumMap<>(Order.OrderStatus.class);
+        counts.forEach((status, count) -> snapshot.put(status, count.get()));
+        return snapshot;
+    }
+
+    private static Map<Order.OrderStatus, AtomicLong> emptyCounts() {
+        Map<Order.OrderStatus, AtomicLong> counts = new EnumMap<>(Order.OrderStatus.class);
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            counts.put(status, new AtomicLong());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,64 @@
+package com.hsz.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Payment provider seen by checkout: creates the provider-side order a payment is taken
+ * against, reports whether it was paid, and checks the signatures on client confirmations
+ * and server callbacks.
+ * The implementation is picked by app.payment.gateway.
+ */
+public interface PaymentGateway {
+
+    class GatewayOrder {
+        private final String id;
+        private final long amountPaise;
+        private final String currency;
+
+        public GatewayOrder(String id, long amountPaise, String currency) {
+            this.id = id;
+            this.amountPaise = amountPaise;
+            this.currency = currency;
+        }
+
+        public String getId() { return id; }
+        public long getAmountPaise() { return amountPaise; }
+        public String getCurrency() { return currency; }
+    }
+
+    GatewayOrder createOrder(long amountPaise, String receipt);
+
+    // Id of a captured payment against the gateway order, if there is one
+    Optional<String> findCapturedPayment(String gatewayOrderId);
+
+    // Signature the checkout widget returns for a completed payment
+    boolean verifyPayment(String gatewayOrderId, String paymentId, String signature);
+
+    // Signature on a server-to-server callback body
+    boolean verifyCallback(String payload, String signature);
+
+    static String hmacSha256Hex(String secret, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    // Constant-time comparison so signature checks do not leak matching prefixes
+    static boolean signatureMatches(String expected, String actual) {
+        return actual != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                actual.getBytes(StandardCharsets.UTF_8));
+    }
+}
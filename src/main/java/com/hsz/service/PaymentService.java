@@ -0,0 +1,579 @@
+package com.hsz.service;
+
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.model.Order;
+import com.hsz.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Online payments. A payment starts by checking out the cart into an order awaiting payment
+ * and opening a gateway order for its total. The order only holds its units: stock is taken
+ * when the capture settles, and a failed or abandoned payment cancels the order and gives
+ * the hold and any coupon use back. Confirmations from the checkout widget and
+ * gateway callbacks are only signature-checked on the request thread and then put on a
+ * bounded in-process queue, so the acknowledgement never waits on the database; a full queue
+ * is reported to the caller so the gateway retries later.
+ *
+ * Worker threads drain the queue in batches and settle each batch in one transaction. Every
+ * event id is recorded in payment_events, so a callback the gateway delivers twice is applied
+ * once, and the order updates are conditional on the current payment status, so events
+ * arriving out of order never move a paid order back to failed.
+ *
+ * Callbacks queued in memory are lost if the process dies, so a periodic sweep asks the
+ * gateway about orders still pending after a while: a captured payment is settled as if its
+ * callback had arrived, and an order unpaid past the pending timeout is settled as failed.
+ * Holds live in memory too and are taken again at startup for every order still waiting.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class PaymentService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
+    private static final String ATTACH_GATEWAY_ORDER_SQL = "UPDATE orders SET razorpay_order_id = ? WHERE id = ?";
+
+    private static final String KNOWN_EVENTS_SQL = "SELECT event_id FROM payment_events WHERE event_id IN (:ids)";
+
+    // Items of the orders a capture will mark paid; locks them so concurrent settlements of one order serialize
+    private static final String UNPAID_LINES_SQL =
+            "SELECT o.id, o.user_id, o.status, o.stock_taken, oi.product_id, COALESCE(o.order_date, NOW()) AS order_date, " +
+            "oi.quantity, oi.price FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.razorpay_order_id IN (:ids) AND o.payment_status IN ('PENDING', 'FAILED') FOR UPDATE";
+
+    // Orders a failure will cancel: still waiting, with their units only held
+    private static final String HELD_ORDERS_SQL =
+            "SELECT id FROM orders WHERE razorpay_order_id IN (:ids) AND payment_status = 'PENDING' " +
+            "AND status = 'PENDING' AND stock_taken = 0 FOR UPDATE";
+
+    private static final String CANCEL_SQL = "UPDATE orders SET status = 'CANCELLED' WHERE id = ? AND status = 'PENDING'";
+
+    private static final String CANCEL_UNOPENED_SQL =
+            "UPDATE orders SET status = 'CANCELLED', payment_status = 'FAILED' " +
+            "WHERE id = ? AND status = 'PENDING' AND payment_status = 'PENDING' AND stock_taken = 0";
+
+    private static final String STOCK_TAKEN_SQL = "UPDATE orders SET stock_taken = 1 WHERE id = ?";
+
+    private static final String TAKE_STOCK_SQL = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String HELD_LINES_SQL =
+            "SELECT o.id, o.user_id, oi.product_id, oi.quantity FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.payment_status = 'PENDING' AND o.status = 'PENDING' AND o.stock_taken = 0";
+
+    private static final String STALE_PENDING_SQL =
+            "SELECT id, razorpay_order_id, order_date, stock_taken = 0 AS held FROM orders " +
+            "WHERE payment_status = 'PENDING' AND status = 'PENDING' AND order_date < ? ORDER BY order_date LIMIT ?";
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO payment_events (event_id, gateway_order_id, payment_id, outcome, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SETTLE_CAPTURED_SQL =
+            "UPDATE orders SET payment_status = 'SUCCESS', payment_id = ? " +
+            "WHERE razorpay_order_id = ? AND payment_status IN ('PENDING', 'FAILED')";
+
+    private static final String SETTLE_FAILED_SQL =
+            "UPDATE orders SET payment_status = 'FAILED', payment_id = COALESCE(?, payment_id) " +
+            "WHERE razorpay_order_id = ? AND payment_status = 'PENDING'";
+
+    public enum Outcome {
+        CAPTURED, FAILED
+    }
+
+    private static final class HeldLine {
+        private final long orderId;
+        private final long userId;
+        private final long productId;
+        private final int quantity;
+
+        private HeldLine(long orderId, long userId, long productId, int quantity) {
+            this.orderId = orderId;
+            this.userId = userId;
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+    }
+
+    public static final class Event {
+        private final String eventId;
+        private final String gatewayOrderId;
+        private final String paymentId;
+        private final Outcome outcome;
+
+        public Event(String eventId, String gatewayOrderId, String paymentId, Outcome outcome) {
+            this.eventId = eventId;
+            this.gatewayOrderId = gatewayOrderId;
+            this.paymentId = paymentId;
+            this.outcome = outcome;
+        }
+    }
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Autowired
+    private InventoryLedgerService inventoryLedgerService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CouponRedemptionService redemptionService;
+
+    @Value("${app.payment.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.payment.workers:2}")
+    private int workers;
+
+    @Value("${app.payment.batch-size:200}")
+    private int batchSize;
+
+    // Age at which a pending order is checked with the gateway, and how many per sweep
+    @Value("${app.payment.reconcile-ms:300000}")
+    private long reconcileMillis;
+
+    @Value("${app.payment.reconcile-batch:500}")
+    private int reconcileBatch;
+
+    // Age at which an order still unpaid at the gateway is cancelled and its hold released
+    @Value("${app.payment.pending-timeout-ms:1800000}")
+    private long pendingTimeoutMillis;
+
+    private BlockingQueue<Event> queue;
+
+    // Event ids queued or being settled on this instance; repeats in a burst are dropped here
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    // Captures of orders already cancelled; each one needs a refund
+    private final AtomicLong capturedAfterCancel = new AtomicLong();
+
+    private volatile boolean running = true;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        restoreHolds();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "payment-settler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        // Settle whatever was acknowledged but not yet written
+        List<Event> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            settle(remaining);
+        }
+    }
+
+    /**
+     * Checks the cart out into an order awaiting payment and opens a gateway order for its
+     * total. Returns what the checkout widget needs plus the local order id.
+     *
+     * @throws CheckoutException if the cart cannot be checked out
+     */
+    public Map<String, Object> startPayment(Long userId, CreateOrderRequest request) {
+        Order order = checkoutService.checkoutForPayment(userId, request);
+        PaymentGateway.GatewayOrder gatewayOrder;
+        try {
+            gatewayOrder = paymentGateway.createOrder(Money.of(order.getTotalPrice()).getPaise(), "order_" + order.getId());
+            jdbcTemplate.update(ATTACH_GATEWAY_ORDER_SQL, gatewayOrder.getId(), order.getId());
+        } catch (RuntimeException e) {
+            // Nothing can be paid against the order, so it is cancelled like a failed payment
+            cancelUnopened(order.getId());
+            throw e;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", gatewayOrder.getId());
+        response.put("amount", gatewayOrder.getAmountPaise());
+        response.put("currency", gatewayOrder.getCurrency());
+        response.put("orderId", order.getId());
+        return response;
+    }
+
+    public boolean verifyPayment(String gatewayOrderId, String paymentId, String signature) {
+        return paymentGateway.verifyPayment(gatewayOrderId, paymentId, signature);
+    }
+
+    public boolean verifyCallback(String payload, String signature) {
+        return paymentGateway.verifyCallback(payload, signature);
+    }
+
+    /**
+     * Queues a verified event for settlement. Returns false when the queue is full and the
+     * event should be redelivered later; a repeat of an event still queued counts as accepted.
+     */
+    public boolean submit(Event event) {
+        if (!inFlight.add(event.eventId)) {
+            duplicates.incrementAndGet();
+            return true;
+        }
+        if (!queue.offer(event)) {
+            inFlight.remove(event.eventId);
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Checks orders pending longer than app.payment.reconcile-ms against the gateway and
+     * queues what it reports, so a callback lost with the in-memory queue still settles.
+     */
+    @Scheduled(fixedDelayString = "${app.payment.reconcile-ms:300000}", initialDelayString = "${app.payment.reconcile-ms:300000}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minusNanos(pendingTimeoutMillis * 1_000_000);
+        List<Map<String, Object>> stale;
+        try {
+            stale = jdbcTemplate.queryForList(STALE_PENDING_SQL,
+                    Timestamp.valueOf(now.minusNanos(reconcileMillis * 1_000_000)), reconcileBatch);
+        } catch (DataAccessException e) {
+            logger.warn("Payment reconciliation failed, will retry: {}", e.getMessage());
+            return;
+        }
+        for (Map<String, Object> row : stale) {
+            Long orderId = ((Number) row.get("id")).longValue();
+            String gatewayOrderId = (String) row.get("razorpay_order_id");
+            boolean held = ((Number) row.get("held")).intValue() == 1;
+            boolean expired = ((Timestamp) row.get("order_date")).toLocalDateTime().isBefore(expiredBefore);
+            try {
+                if (gatewayOrderId == null) {
+                    // Died between placing the order and opening its gateway order
+                    if (held && expired) {
+                        cancelUnopened(orderId);
+                    }
+                    continue;
+                }
+                Optional<String> paymentId = paymentGateway.findCapturedPayment(gatewayOrderId);
+                if (paymentId.isPresent()) {
+                    submit(new Event("reconcile:" + paymentId.get(), gatewayOrderId, paymentId.get(), Outcome.CAPTURED));
+                } else if (held && expired) {
+                    submit(new Event("expired:" + gatewayOrderId, gatewayOrderId, null, Outcome.FAILED));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not reconcile order {} with the gateway: {}", orderId, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("accepted", accepted.get());
+        metrics.put("duplicates", duplicates.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("settled", settled.get());
+        metrics.put("batches", batches.get());
+        metrics.put("capturedAfterCancel", capturedAfterCancel.get());
+        return metrics;
+    }
+
+    private void work() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Event first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                settle(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Payment settlement worker error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void settle(List<Event> batch) {
+        try {
+            Integer applied = transactionTemplate.execute(status -> apply(batch));
+            record(batch.size(), applied);
+            batches.incrementAndGet();
+        } catch (RuntimeException e) {
+            // One bad event, or a duplicate recorded by another instance, must not sink the rest
+            logger.warn("Settling a batch of {} payment events failed, retrying one by one", batch.size(), e);
+            for (Event event : batch) {
+                try {
+                    Integer applied = transactionTemplate.execute(status -> apply(List.of(event)));
+                    record(1, applied);
+                } catch (DuplicateKeyException duplicate) {
+                    duplicates.incrementAndGet();
+                } catch (RuntimeException failure) {
+                    logger.error("Could not settle payment event {} for gateway order {}",
+                            event.eventId, event.gatewayOrderId, failure);
+                }
+            }
+        } finally {
+            for (Event event : batch) {
+                inFlight.remove(event.eventId);
+            }
+        }
+    }
+
+    private void record(int events, Integer applied) {
+        int count = applied == null ? 0 : applied;
+        settled.addAndGet(count);
+        duplicates.addAndGet(events - count);
+    }
+
+    // Records and applies the events not seen before; returns how many that was
+    private int apply(List<Event> batch) {
+        Set<String> ids = new HashSet<>();
+        for (Event event : batch) {
+            ids.add(event.eventId);
+        }
+        Set<String> known = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                KNOWN_EVENTS_SQL, new MapSqlParameterSource("ids", ids), String.class));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> events = new ArrayList<>();
+        List<Object[]> captured = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        Set<String> capturedOrders = new LinkedHashSet<>();
+        Set<String> failedOrders = new LinkedHashSet<>();
+        for (Event event : batch) {
+            if (!known.add(event.eventId)) {
+                continue;
+            }
+            events.add(new Object[] {event.eventId, event.gatewayOrderId, event.paymentId, event.outcome.name(), now});
+            (event.outcome == Outcome.CAPTURED ? captured : failed).add(new Object[] {event.paymentId, event.gatewayOrderId});
+            (event.outcome == Outcome.CAPTURED ? capturedOrders : failedOrders).add(event.gatewayOrderId);
+        }
+        if (events.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events);
+        if (!failed.isEmpty()) {
+            // A failed attempt followed by a capture in the same batch is a retry that succeeded
+            failedOrders.removeAll(capturedOrders);
+            List<Long> cancelled = failedOrders.isEmpty() ? List.of() : namedParameterJdbcTemplate.queryForList(
+                    HELD_ORDERS_SQL, new MapSqlParameterSource("ids", failedOrders), Long.class);
+            jdbcTemplate.batchUpdate(SETTLE_FAILED_SQL, failed);
+            cancel(cancelled);
+        }
+        if (!captured.isEmpty()) {
+            // Both read the orders still unpaid, so they have to precede the settlement UPDATE
+            List<SalesChangedEvent.Line> sales = new ArrayList<>();
+            List<HeldLine> held = new ArrayList<>();
+            Set<Long> paidAfterCancel = new LinkedHashSet<>();
+            namedParameterJdbcTemplate.query(UNPAID_LINES_SQL, new MapSqlParameterSource("ids", capturedOrders), rs -> {
+                long orderId = rs.getLong("id");
+                sales.add(new SalesChangedEvent.Line(orderId, rs.getLong("product_id"),
+                        rs.getTimestamp("order_date").toLocalDateTime().toLocalDate(), rs.getInt("quantity"),
+                        Money.of(rs.getBigDecimal("price")).times(rs.getInt("quantity")).getPaise()));
+                if (rs.getBoolean("stock_taken")) {
+                    return;
+                }
+                if (Order.OrderStatus.CANCELLED.name().equals(rs.getString("status"))) {
+                    paidAfterCancel.add(orderId);
+                } else {
+                    held.add(new HeldLine(orderId, rs.getLong("user_id"), rs.getLong("product_id"), rs.getInt("quantity")));
+                }
+            });
+            revenueRollupService.addCaptured(new ArrayList<>(capturedOrders));
+            jdbcTemplate.batchUpdate(SETTLE_CAPTURED_SQL, captured);
+            takeStock(held, paidAfterCancel);
+            if (!sales.isEmpty()) {
+                // Delivered once the settlement commits
+                eventPublisher.publishEvent(new SalesChangedEvent(sales));
+            }
+        }
+        return events.size();
+    }
+
+    /**
+     * Takes the units of captured orders that only held them, in product order so concurrent
+     * settlements lock rows the same way, and records the sales in the ledger. Once the
+     * settlement commits the holds end and the lines leave the buyers' carts; a rollback gives
+     * hot SKU units back. A unit the hold no longer covers, e.g. after a restart raced a sale,
+     * is left untaken and logged for a refund, as is a capture of an order already cancelled.
+     */
+    private void takeStock(List<HeldLine> lines, Set<Long> paidAfterCancel) {
+        lines.sort(Comparator.comparingLong((HeldLine line) -> line.productId).thenComparingLong(line -> line.orderId));
+        Map<Long, Long> userByOrder = new TreeMap<>();
+        Map<Long, List<Long>> productsByOrder = new HashMap<>();
+        Map<Long, Map<Long, Integer>> soldByOrder = new TreeMap<>();
+        Map<Long, Integer> hotTaken = new HashMap<>();
+        List<String> shortfalls = new ArrayList<>();
+        for (HeldLine line : lines) {
+            userByOrder.put(line.orderId, line.userId);
+            productsByOrder.computeIfAbsent(line.orderId, id -> new ArrayList<>()).add(line.productId);
+            boolean hot = hotSkuInventoryService.isHot(line.productId);
+            boolean taken = hot
+                    ? hotSkuInventoryService.tryDecrement(line.productId, line.quantity)
+                    : jdbcTemplate.update(TAKE_STOCK_SQL, line.quantity, line.productId, line.quantity) == 1;
+            if (!taken) {
+                shortfalls.add("order " + line.orderId + " product " + line.productId + " x" + line.quantity);
+                continue;
+            }
+            if (hot) {
+                hotTaken.merge(line.productId, line.quantity, Integer::sum);
+            }
+            soldByOrder.computeIfAbsent(line.orderId, id -> new TreeMap<>()).put(line.productId, line.quantity);
+        }
+        if (!userByOrder.isEmpty()) {
+            List<Object[]> orders = new ArrayList<>(userByOrder.size());
+            for (Long orderId : userByOrder.keySet()) {
+                orders.add(new Object[] {orderId});
+            }
+            jdbcTemplate.batchUpdate(STOCK_TAKEN_SQL, orders);
+            soldByOrder.forEach((orderId, sold) -> inventoryLedgerService.recordSales(sold, orderId));
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    hotTaken.forEach(hotSkuInventoryService::restore);
+                    return;
+                }
+                userByOrder.forEach((orderId, userId) -> {
+                    reservationService.convertForOrder(orderId);
+                    cartService.removeProducts(userId, productsByOrder.get(orderId));
+                });
+                if (!shortfalls.isEmpty()) {
+                    logger.error("Captured payments without stock to fill them, refund or restock: {}", shortfalls);
+                }
+                if (!paidAfterCancel.isEmpty()) {
+                    capturedAfterCancel.addAndGet(paidAfterCancel.size());
+                    logger.error("Payments captured for orders already cancelled, refund needed: {}", paidAfterCancel);
+                }
+            }
+        });
+    }
+
+    // Cancels held orders whose payment failed; the holds and coupon uses go back once that commits
+    private void cancel(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            args.add(new Object[] {orderId});
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED));
+        }
+        // The rows were locked as PENDING by HELD_ORDERS_SQL, so every one of them changes
+        jdbcTemplate.batchUpdate(CANCEL_SQL, args);
+        redemptionService.revokeForOrders(orderIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderIds.forEach(reservationService::releaseForOrder);
+            }
+        });
+    }
+
+    // Cancels an order no gateway order was opened for, which therefore can never be paid
+    private void cancelUnopened(Long orderId) {
+        Boolean cancelled = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(CANCEL_UNOPENED_SQL, orderId) != 1) {
+                return false;
+            }
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED));
+            redemptionService.revokeForOrders(List.of(orderId));
+            return true;
+        });
+        if (Boolean.TRUE.equals(cancelled)) {
+            reservationService.releaseForOrder(orderId);
+        }
+    }
+
+    // Holds are in memory only; orders still waiting for payment take theirs again at startup
+    private void restoreHolds() {
+        Map<Long, Long> userByOrder = new HashMap<>();
+        Map<Long, Map<Long, Integer>> quantities = new HashMap<>();
+        jdbcTemplate.query(HELD_LINES_SQL, rs -> {
+            long orderId = rs.getLong("id");
+            userByOrder.put(orderId, rs.getLong("user_id"));
+            quantities.computeIfAbsent(orderId, id -> new HashMap<>()).merge(rs.getLong("product_id"), rs.getInt("quantity"), Integer::sum);
+        });
+        quantities.forEach((orderId, held) -> reservationService.holdForOrder(orderId, userByOrder.get(orderId), held));
+        if (!quantities.isEmpty()) {
+            logger.info("Restored stock holds of {} orders awaiting payment", quantities.size());
+        }
+    }
+}
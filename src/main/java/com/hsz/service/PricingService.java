@@ -0,0 +1,62 @@
+package com.hsz.service;
+
+import com.hsz.dto.CartSummary;
+import com.hsz.model.Coupon;
+import com.hsz.util.Money;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Single source of the storefront pricing rules (GST, shipping, coupon discount).
+ * All arithmetic is exact {@link Money} in paise; GST and coupon percentages are the only
+ * rounding points, each HALF_UP to the paisa.
+ */
+@Service
+public class PricingService {
+
+    public static final BigDecimal GST_PERCENT = new BigDecimal("18");
+    public static final Money FREE_SHIPPING_THRESHOLD = Money.ofRupees(500);
+    public static final Money SHIPPING_FEE = Money.ofRupees(50);
+
+    public CartSummary price(List<CartSummary.Line> lines, Coupon coupon, String couponCode) {
+        CartSummary summary = new CartSummary();
+        summary.setItems(lines);
+
+        long subtotalPaise = 0;
+        int itemCount = 0;
+        for (CartSummary.Line line : lines) {
+            subtotalPaise = Math.addExact(subtotalPaise, line.getLineTotal().getPaise());
+            itemCount += line.getQuantity();
+        }
+        Money subtotal = Money.ofPaise(subtotalPaise);
+        summary.setSubtotal(subtotal);
+        summary.setItemCount(itemCount);
+
+        Money discount = Money.ZERO;
+        if (couponCode != null) {
+            summary.setCouponCode(couponCode);
+            if (coupon == null) {
+                summary.setCouponMessage("Invalid or expired coupon");
+            } else {
+                discount = coupon.calculateDiscount(subtotal);
+                if (discount.isZero()) {
+                    summary.setCouponMessage("Coupon is not applicable to this cart");
+                }
+            }
+        }
+        summary.setDiscount(discount);
+
+        Money taxable = subtotal.minus(discount);
+        Money tax = taxable.percent(GST_PERCENT);
+        Money shipping = lines.isEmpty() || subtotal.isGreaterThan(FREE_SHIPPING_THRESHOLD)
+                ? Money.ZERO
+                : SHIPPING_FEE;
+
+        summary.setTax(tax);
+        summary.setShipping(shipping);
+        summary.setTotal(taxable.plus(tax).plus(shipping));
+        return summary;
+    }
+}
@@ -0,0 +1,84 @@
+package com.hsz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Razorpay Orders API and its HMAC-SHA256 signature scheme
+@Service
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "razorpay")
+public class RazorpayGateway implements PaymentGateway {
+
+    private static final String ORDERS_URL = "https://api.razorpay.com/v1/orders";
+
+    @Value("${app.payment.razorpay.key-id}")
+    private String keyId;
+
+    @Value("${app.payment.razorpay.key-secret}")
+    private String keySecret;
+
+    @Value("${app.payment.razorpay.webhook-secret}")
+    private String webhookSecret;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public GatewayOrder createOrder(long amountPaise, String receipt) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBasicAuth(keyId, keySecret);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("amount", amountPaise);
+        body.put("currency", "INR");
+        body.put("receipt", receipt);
+
+        Map<String, Object> response = restTemplate.postForObject(ORDERS_URL, new HttpEntity<>(body, headers), Map.class);
+        if (response == null || response.get("id") == null) {
+            throw new IllegalStateException("Razorpay returned no order id");
+        }
+        return new GatewayOrder((String) response.get("id"), ((Number) response.get("amount")).longValue(),
+                (String) response.get("currency"));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<String> findCapturedPayment(String gatewayOrderId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBasicAuth(keyId, keySecret);
+
+        Map<String, Object> response = restTemplate.exchange(ORDERS_URL + "/{id}/payments", HttpMethod.GET,
+                new HttpEntity<>(headers), Map.class, gatewayOrderId).getBody();
+        if (response == null || !(response.get("items") instanceof List)) {
+            throw new IllegalStateException("Razorpay returned no payments for order " + gatewayOrderId);
+        }
+        for (Map<String, Object> payment : (List<Map<String, Object>>) response.get("items")) {
+            if ("captured".equals(payment.get("status"))) {
+                return Optional.of((String) payment.get("id"));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean verifyPayment(String gatewayOrderId, String paymentId, String signature) {
+        String expected = PaymentGateway.hmacSha256Hex(keySecret, gatewayOrderId + "|" + paymentId);
+        return PaymentGateway.signatureMatches(expected, signature);
+    }
+
+    @Override
+    public boolean verifyCallback(String payload, String signature) {
+        return PaymentGateway.signatureMatches(PaymentGateway.hmacSha256Hex(webhookSecret, payload), signature);
+    }
+}
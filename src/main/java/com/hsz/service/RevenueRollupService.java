@@ -0,0 +1,204 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paid revenue and order count per order day in daily_revenue, so dashboard figures are sums
+ * over at most a few hundred rollup rows instead of scans of orders. A day is the order's
+ * order_date and an order counts once its payment_status is SUCCESS, matching the revenue
+ * queries on orders.
+ *
+ * Settlement adds captured orders in the same transaction that marks them paid, and admin
+ * payment status edits add or remove the order. An empty table is backfilled from orders at
+ * startup, and the last two days are periodically rebuilt from orders to absorb anything the
+ * incremental path missed.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class RevenueRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    private static final String ADD_SQL =
+            "INSERT INTO daily_revenue (day, revenue, order_count, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count), " +
+            "updated_at = VALUES(updated_at)";
+
+    // Runs before the settlement UPDATE in its transaction, so only orders it will mark paid are added
+    private static final String ADD_CAPTURED_SQL =
+            "INSERT INTO daily_revenue (day, revenue, order_count, updated_at) " +
+            "SELECT DATE(order_date), total_price, 1, NOW() FROM orders " +
+            "WHERE razorpay_order_id = ? AND payment_status IN ('PENDING', 'FAILED') AND order_date IS NOT NULL " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count), " +
+            "updated_at = VALUES(updated_at)";
+
+    private static final String DELETE_RANGE_SQL = "DELETE FROM daily_revenue WHERE day >= ? AND day < ?";
+
+    private static final String REBUILD_RANGE_SQL =
+            "INSERT INTO daily_revenue (day, revenue, order_count, updated_at) " +
+            "SELECT DATE(order_date), SUM(total_price), COUNT(*), NOW() FROM orders " +
+            "WHERE payment_status = 'SUCCESS' AND order_date >= ? AND order_date < ? " +
+            "GROUP BY DATE(order_date)";
+
+    private static final String DAYS_SQL =
+            "SELECT day, revenue, order_count FROM daily_revenue WHERE day >= ? AND day < ? ORDER BY day";
+
+    private static final String TOTAL_SQL = "SELECT COALESCE(SUM(revenue), 0), COALESCE(SUM(order_count), 0) FROM daily_revenue";
+
+    // Wide enough for any order_date the shop has
+    private static final LocalDate EPOCH = LocalDate.of(2000, 1, 1);
+
+    public static final class Totals {
+        private final BigDecimal revenue;
+        private final long orders;
+
+        private Totals(BigDecimal revenue, long orders) {
+            this.revenue = revenue;
+            this.orders = orders;
+        }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public long getOrders() { return orders; }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        List<Integer> any = jdbcTemplate.queryForList("SELECT 1 FROM daily_revenue LIMIT 1", Integer.class);
+        if (any.isEmpty()) {
+            rebuild(EPOCH, LocalDate.now().plusDays(1));
+            logger.info("Backfilled daily revenue rollups from order history");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.revenue.reconcile-ms:3600000}", initialDelayString = "${app.revenue.reconcile-ms:3600000}")
+    public void reconcileRecent() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(1), today.plusDays(1));
+    }
+
+    // Recomputes the days in [from, to) from orders
+    public void rebuild(LocalDate from, LocalDate to) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(from), Date.valueOf(to));
+            jdbcTemplate.update(REBUILD_RANGE_SQL, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        });
+    }
+
+    // Must run in the settlement transaction, before the orders are marked paid
+    public void addCaptured(List<String> gatewayOrderIds) {
+        List<Object[]> args = new ArrayList<>(gatewayOrderIds.size());
+        for (String gatewayOrderId : gatewayOrderIds) {
+            args.add(new Object[] {gatewayOrderId});
+        }
+        jdbcTemplate.batchUpdate(ADD_CAPTURED_SQL, args);
+    }
+
+    // Applies an admin payment status edit or deletion (to == null) of one order
+    public void onPaymentStatusChanged(LocalDateTime orderDate, BigDecimal totalPrice,
+                                       Order.PaymentStatus from, Order.PaymentStatus to) {
+        boolean wasPaid = from == Order.PaymentStatus.SUCCESS;
+        boolean isPaid = to == Order.PaymentStatus.SUCCESS;
+        if (wasPaid == isPaid || orderDate == null || totalPrice == null) {
+            return;
+        }
+        int sign = isPaid ? 1 : -1;
+        jdbcTemplate.update(ADD_SQL, Date.valueOf(orderDate.toLocalDate()), totalPrice.multiply(BigDecimal.valueOf(sign)),
+                sign, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public Totals total() {
+        return jdbcTemplate.queryForObject(TOTAL_SQL,
+                (rs, rowNum) -> new Totals(rs.getBigDecimal(1), rs.getLong(2)));
+    }
+
+    // Totals for the days in [from, to)
+    public Totals between(LocalDate from, LocalDate to) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long orders = 0;
+        for (Totals day : days(from, to).values()) {
+            revenue = revenue.add(day.revenue);
+            orders += day.orders;
+        }
+        return new Totals(revenue, orders);
+    }
+
+    // The last {@code months} calendar months including the current one, oldest first
+    public List<Map<String, Object>> monthly(int months) {
+        YearMonth current = YearMonth.now();
+        YearMonth first = current.minusMonths(months - 1L);
+        Map<YearMonth, Totals> buckets = new LinkedHashMap<>();
+        for (YearMonth month = first; !month.isAfter(current); month = month.plusMonths(1)) {
+            buckets.put(month, new Totals(BigDecimal.ZERO, 0));
+        }
+        days(first.atDay(1), current.plusMonths(1).atDay(1)).forEach((day, totals) ->
+                buckets.merge(YearMonth.from(day), totals, RevenueRollupService::plus));
+
+        List<Map<String, Object>> result = new ArrayList<>(buckets.size());
+        buckets.forEach((month, totals) -> result.add(bucket("month", month.toString(), totals)));
+        return result;
+    }
+
+    // The last {@code weeks} weeks starting on Monday including the current one, oldest first
+    public List<Map<String, Object>> weekly(int weeks) {
+        LocalDate currentWeek = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate first = currentWeek.minusWeeks(weeks - 1L);
+        Map<LocalDate, Totals> buckets = new LinkedHashMap<>();
+        for (LocalDate week = first; !week.isAfter(currentWeek); week = week.plusWeeks(1)) {
+            buckets.put(week, new Totals(BigDecimal.ZERO, 0));
+        }
+        days(first, currentWeek.plusWeeks(1)).forEach((day, totals) ->
+                buckets.merge(day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)), totals, RevenueRollupService::plus));
+
+        List<Map<String, Object>> result = new ArrayList<>(buckets.size());
+        buckets.forEach((week, totals) -> result.add(bucket("weekStart", week.toString(), totals)));
+        return result;
+    }
+
+    private Map<LocalDate, Totals> days(LocalDate from, LocalDate to) {
+        Map<LocalDate, Totals> days = new LinkedHashMap<>();
+        jdbcTemplate.query(DAYS_SQL, rs -> {
+            days.put(rs.getDate("day").toLocalDate(), new Totals(rs.getBigDecimal("revenue"), rs.getLong("order_count")));
+        }, Date.valueOf(from), Date.valueOf(to));
+        return days;
+    }
+
+    private static Totals plus(Totals a, Totals b) {
+        return new Totals(a.revenue.add(b.revenue), a.orders + b.orders);
+    }
+
+    private static Map<String, Object> bucket(String key, String label, Totals totals) {
+        Map<String, Object> bucket = new HashMap<>();
+        bucket.put(key, label);
+        bucket.put("revenue", totals.revenue);
+        bucket.put("orders", totals.orders);
+        return bucket;
+    }
+}
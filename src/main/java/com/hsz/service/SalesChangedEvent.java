@@ -0,0 +1,38 @@
+package com.hsz.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Published when orders become paid, or stop being paid (negative quantities)
+public class SalesChangedEvent {
+
+    public static final class Line {
+        private final Long orderId;
+        private final Long productId;
+        private final LocalDate orderDay;
+        private final int quantity;
+        private final long amountPaise;
+
+        public Line(Long orderId, Long productId, LocalDate orderDay, int quantity, long amountPaise) {
+            this.orderId = orderId;
+            this.productId = productId;
+            this.orderDay = orderDay;
+            this.quantity = quantity;
+            this.amountPaise = amountPaise;
+        }
+
+        public Long getOrderId() { return orderId; }
+        public Long getProductId() { return productId; }
+        public LocalDate getOrderDay() { return orderDay; }
+        public int getQuantity() { return quantity; }
+        public long getAmountPaise() { return amountPaise; }
+    }
+
+    private final List<Line> lines;
+
+    public SalesChangedEvent(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    public List<Line> getLines() { return lines; }
+}
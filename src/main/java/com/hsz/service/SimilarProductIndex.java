@@ -0,0 +1,299 @@
+package com.hsz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Nearest active products by attributes, for suggesting alternatives to an out-of-stock
+ * saree. Category, fabric and color are dictionary-encoded and score when equal; price is
+ * compared on a log scale normalized to the catalog's price range, so the price term falls
+ * off with the ratio between prices rather than the difference.
+ *
+ * The top neighbours of every product are computed in parallel on the common fork/join pool
+ * at startup and periodically. Admin product edits re-rank the edited product and patch the
+ * lists of the others in place; the price range is only re-derived on the periodic rebuild.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class SimilarProductIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SimilarProductIndex.class);
+
+    // Attribute columns only; the image columns are large
+    private static final String PRODUCTS_SQL =
+            "SELECT id, category, fabric, color, price FROM products WHERE is_active = TRUE";
+
+    private static final String PRODUCT_SQL = PRODUCTS_SQL + " AND id = ?";
+
+    // Neighbours kept per product
+    public static final int TOP_K = 12;
+
+    private static final double CATEGORY_WEIGHT = 3;
+    private static final double FABRIC_WEIGHT = 2;
+    private static final double COLOR_WEIGHT = 1;
+    private static final double PRICE_WEIGHT = 2;
+
+    // Products below this are ranked by one task rather than split further
+    private static final int LEAF_PRODUCTS = 64;
+
+    private static final long[] NONE = new long[0];
+
+    private static final class Row {
+        private final long id;
+        private final String category;
+        private final String fabric;
+        private final String color;
+        private final BigDecimal price;
+
+        private Row(long id, String category, String fabric, String color, BigDecimal price) {
+            this.id = id;
+            this.category = category;
+            this.fabric = fabric;
+            this.color = color;
+            this.price = price;
+        }
+    }
+
+    // Codes are -1 when the attribute is missing, which never matches
+    private static final class Item {
+        private final long id;
+        private final int category;
+        private final int fabric;
+        private final int color;
+        private final double price;
+
+        private Item(long id, int category, int fabric, int color, double price) {
+            this.id = id;
+            this.category = category;
+            this.fabric = fabric;
+            this.color = color;
+            this.price = price;
+        }
+    }
+
+    // Best first; never modified once published
+    private static final class Neighbours {
+        private final long[] ids;
+        private final double[] scores;
+
+        private Neighbours(long[] ids, double[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        private boolean contains(long id) {
+            for (long neighbour : ids) {
+                if (neighbour == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int encode(String value) {
+            if (value == null || value.isBlank()) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value.trim().toLowerCase(Locale.ROOT), key -> codes.size());
+        }
+    }
+
+    private static final class RankTask extends RecursiveAction {
+        private final Item[] items;
+        private final Neighbours[] ranked;
+        private final int start;
+        private final int end;
+
+        private RankTask(Item[] items, Neighbours[] ranked, int start, int end) {
+            this.items = items;
+            this.ranked = ranked;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > LEAF_PRODUCTS) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new RankTask(items, ranked, start, mid), new RankTask(items, ranked, mid, end));
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                ranked[i] = rank(items[i], Arrays.asList(items));
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guarded by this
+    private Map<Long, Item> items = new LinkedHashMap<>();
+    private Dictionary categories = new Dictionary();
+    private Dictionary fabrics = new Dictionary();
+    private Dictionary colors = new Dictionary();
+    private double minLogPrice;
+    private double logPriceRange;
+
+    // Read without locking; entries are replaced, never modified
+    private volatile ConcurrentHashMap<Long, Neighbours> similar = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.similar.rebuild-ms:3600000}", initialDelayString = "${app.similar.rebuild-ms:3600000}")
+    public void rebuild() {
+        List<Row> rows = jdbcTemplate.query(PRODUCTS_SQL, (rs, rowNum) -> new Row(rs.getLong("id"),
+                rs.getString("category"), rs.getString("fabric"), rs.getString("color"), rs.getBigDecimal("price")));
+
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (Row row : rows) {
+            double logPrice = logPrice(row.price);
+            min = Math.min(min, logPrice);
+            max = Math.max(max, logPrice);
+        }
+        double range = rows.isEmpty() ? 0 : max - min;
+
+        synchronized (this) {
+            minLogPrice = rows.isEmpty() ? 0 : min;
+            logPriceRange = range;
+            categories = new Dictionary();
+            fabrics = new Dictionary();
+            colors = new Dictionary();
+            Map<Long, Item> fresh = new LinkedHashMap<>();
+            for (Row row : rows) {
+                fresh.put(row.id, item(row));
+            }
+
+            Item[] array = fresh.values().toArray(new Item[0]);
+            Neighbours[] ranked = new Neighbours[array.length];
+            if (array.length > 0) {
+                ForkJoinPool.commonPool().invoke(new RankTask(array, ranked, 0, array.length));
+            }
+            ConcurrentHashMap<Long, Neighbours> freshSimilar = new ConcurrentHashMap<>();
+            for (int i = 0; i < array.length; i++) {
+                freshSimilar.put(array[i].id, ranked[i]);
+            }
+            items = fresh;
+            similar = freshSimilar;
+        }
+        logger.info("Similar product index built for {} products", rows.size());
+    }
+
+    /**
+     * Re-ranks a product after it was created, edited, deactivated or deleted, and adds it to
+     * or removes it from the neighbour lists of the other products.
+     */
+    public synchronized void onProductChanged(Long productId) {
+        List<Row> rows = jdbcTemplate.query(PRODUCT_SQL, (rs, rowNum) -> new Row(rs.getLong("id"),
+                rs.getString("category"), rs.getString("fabric"), rs.getString("color"), rs.getBigDecimal("price")),
+                productId);
+        items.remove(productId);
+        Item changed = rows.isEmpty() ? null : item(rows.get(0));
+        if (changed == null) {
+            similar.remove(productId);
+        } else {
+            similar.put(productId, rank(changed, items.values()));
+            items.put(productId, changed);
+        }
+
+        for (Item other : items.values()) {
+            if (other.id == productId) {
+                continue;
+            }
+            Neighbours current = similar.get(other.id);
+            if (current == null || current.contains(productId)) {
+                // Its score may have dropped below products that were cut off, so rank from scratch
+                similar.put(other.id, rank(other, items.values()));
+            } else if (changed != null) {
+                similar.put(other.id, offer(current, changed.id, score(other, changed)));
+            }
+        }
+    }
+
+    // Active products most like productId, best first
+    public long[] similar(Long productId, int limit) {
+        Neighbours neighbours = similar.get(productId);
+        if (neighbours == null) {
+            return NONE;
+        }
+        return Arrays.copyOf(neighbours.ids, Math.min(Math.max(limit, 0), neighbours.ids.length));
+    }
+
+    // Caller holds the lock
+    private Item item(Row row) {
+        double price = logPriceRange == 0 ? 0 : (logPrice(row.price) - minLogPrice) / logPriceRange;
+        return new Item(row.id, categories.encode(row.category), fabrics.encode(row.fabric), colors.encode(row.color),
+                Math.max(0, Math.min(1, price)));
+    }
+
+    private static double logPrice(BigDecimal price) {
+        return price == null || price.signum() <= 0 ? 0 : Math.log(price.doubleValue());
+    }
+
+    private static double score(Item a, Item b) {
+        double score = PRICE_WEIGHT * (1 - Math.abs(a.price - b.price));
+        if (a.category >= 0 && a.category == b.category) {
+            score += CATEGORY_WEIGHT;
+        }
+        if (a.fabric >= 0 && a.fabric == b.fabric) {
+            score += FABRIC_WEIGHT;
+        }
+        if (a.color >= 0 && a.color == b.color) {
+            score += COLOR_WEIGHT;
+        }
+        return score;
+    }
+
+    private static Neighbours rank(Item target, Iterable<Item> candidates) {
+        Neighbours ranked = new Neighbours(NONE, new double[0]);
+        for (Item candidate : candidates) {
+            if (candidate.id != target.id) {
+                ranked = offer(ranked, candidate.id, score(target, candidate));
+            }
+        }
+        return ranked;
+    }
+
+    // A copy of current with id inserted in score order (then lower id first), capped at TOP_K
+    private static Neighbours offer(Neighbours current, long id, double score) {
+        int size = current.ids.length;
+        int position = size;
+        while (position > 0 && (current.scores[position - 1] < score
+                || (current.scores[position - 1] == score && current.ids[position - 1] > id))) {
+            position--;
+        }
+        if (position >= TOP_K) {
+            return current;
+        }
+        int newSize = Math.min(size + 1, TOP_K);
+        long[] ids = new long[newSize];
+        double[] scores = new double[newSize];
+        System.arraycopy(current.ids, 0, ids, 0, position);
+        System.arraycopy(current.scores, 0, scores, 0, position);
+        ids[position] = id;
+        scores[position] = score;
+        System.arraycopy(current.ids, position, ids, position + 1, newSize - position - 1);
+        System.arraycopy(current.scores, position, scores, position + 1, newSize - position - 1);
+        return new Neighbours(ids, scores);
+    }
+}
@@ -0,0 +1,124 @@
+package com.hsz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Durable record of stock taken for a checkout whose order has not committed yet. Stock is
+ * taken ahead of the order transaction, so each decrement writes claim rows in its own
+ * transaction and the order transaction deletes them. A claim that outlives its checkout,
+ * because the order rolled back or the process died in between, is given back by
+ * {@link #release(String)} or, failing that, by the periodic sweep, which also runs at startup.
+ */
+@Service
+public class StockClaimService {
+    private static final Logger logger = LoggerFactory.getLogger(StockClaimService.class);
+
+    static final String INSERT_SQL =
+            "INSERT INTO stock_claims (claim_id, product_id, quantity, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String CONSUME_SQL = "DELETE FROM stock_claims WHERE claim_id = ?";
+
+    private static final String LOCK_SQL = "SELECT product_id, quantity FROM stock_claims WHERE claim_id = ? FOR UPDATE";
+
+    private static final String RESTORE_SQL = "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+    private static final String STALE_SQL = "SELECT DISTINCT claim_id FROM stock_claims WHERE created_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    // Longer than any live checkout; a claim this old belongs to one that will never finish
+    @Value("${app.stock-claims.timeout-ms:300000}")
+    private long timeoutMillis;
+
+    public static String newClaimId() {
+        return UUID.randomUUID().toString();
+    }
+
+    // Claim rows for units taken from hot SKU counters, which have no row transaction of their own
+    public void recordHot(String claimId, Map<Long, Integer> quantities) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            rows.add(new Object[] {claimId, entry.getKey(), entry.getValue(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Deletes the claim inside the order transaction, so the units and the order commit
+     * together. False when fewer rows remain than the checkout claimed, i.e. the sweep
+     * already gave them back and the order must not go through.
+     */
+    public boolean consume(String claimId, int products) {
+        return jdbcTemplate.update(CONSUME_SQL, claimId) == products;
+    }
+
+    // Gives the claimed units back; a claim already consumed or released is a no-op
+    public void release(String claimId) {
+        Map<Long, Integer> hot = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> claimed = jdbcTemplate.query(LOCK_SQL,
+                    (rs, rowNum) -> new Object[] {rs.getLong("product_id"), rs.getInt("quantity")}, claimId);
+            if (claimed.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.update(CONSUME_SQL, claimId);
+            List<Object[]> restores = new ArrayList<>();
+            for (Object[] row : claimed) {
+                Long productId = (Long) row[0];
+                if (hotSkuInventoryService.isHot(productId)) {
+                    hot.put(productId, (Integer) row[1]);
+                } else {
+                    restores.add(new Object[] {row[1], productId});
+                }
+            }
+            if (!restores.isEmpty()) {
+                jdbcTemplate.batchUpdate(RESTORE_SQL, restores);
+            }
+        });
+        hot.forEach(hotSkuInventoryService::restore);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock-claims.sweep-ms:60000}")
+    public void sweep() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusNanos(timeoutMillis * 1_000_000));
+        List<String> stale;
+        try {
+            stale = jdbcTemplate.queryForList(STALE_SQL, String.class, cutoff);
+        } catch (DataAccessException e) {
+            logger.warn("Stock claim sweep failed, will retry: {}", e.getMessage());
+            return;
+        }
+        for (String claimId : stale) {
+            try {
+                release(claimId);
+                logger.info("Released abandoned stock claim {}", claimId);
+            } catch (DataAccessException e) {
+                logger.warn("Could not release stock claim {}: {}", claimId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.hsz.service;
+
+import com.hsz.repository.ProductRepository;
+import com.hsz.util.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time-limited stock holds taken when a buyer enters checkout. Holds are kept per product
+ * in atomic counters, so available stock (stock minus live holds) is an O(1) lookup, and
+ * expiries are tracked in a {@link HierarchicalTimingWheel} instead of polling the DB.
+ * A reservation ends by expiring, by explicit release, or by conversion once the order's
+ * own stock decrement has committed. An order paid online keeps its buyer's hold, attached
+ * to the order and exempt from the TTL, until the payment settles one way or the other.
+ */
+@Service
+public class StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    public static class Reservation {
+        private final String id;
+        private final Long userId;
+        private final Map<Long, Integer> quantities;
+        private final long expiresAt;
+        private HierarchicalTimingWheel.Timeout<String> timeout;
+        private volatile Long orderId;
+
+        Reservation(String id, Long userId, Map<Long, Integer> quantities, long expiresAt) {
+            this.id = id;
+            this.userId = userId;
+            this.quantities = quantities;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getId() { return id; }
+
+        public Long getUserId() { return userId; }
+
+        public Map<Long, Integer> getQuantities() { return quantities; }
+
+        public Instant getExpiresAt() { return Instant.ofEpochMilli(expiresAt); }
+
+        // True when this hold covers at least the given quantities
+        public boolean covers(Map<Long, Integer> wanted) {
+            for (Map.Entry<Long, Integer> entry : wanted.entrySet()) {
+                if (quantities.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HotSkuInventoryService hotSkuInventoryService;
+
+    @Value("${app.reservation.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${app.reservation.tick-ms:1000}")
+    private long tickMillis;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> held = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> reservationByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> reservationByOrder = new ConcurrentHashMap<>();
+
+    private HierarchicalTimingWheel<String> wheel;
+
+    @PostConstruct
+    public void init() {
+        // 64 slots x 4 levels covers 64^4 ticks, far beyond any checkout TTL
+        wheel = new HierarchicalTimingWheel<>(tickMillis, 64, 4, System.currentTimeMillis());
+    }
+
+    /**
+     * Holds the given quantities for the user, replacing any reservation they already had.
+     * All-or-nothing: if one product lacks available stock, nothing is held.
+     */
+    public Reservation reserve(Long userId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] row : productRepository.findStockByIds(quantities.keySet())) {
+            // Hot SKUs sell from their counter; products.stock lags behind until reconciled
+            Integer hotStock = hotSkuInventoryService.getStock((Long) row[0]);
+            stock.put((Long) row[0], hotStock != null ? hotStock : (Integer) row[1]);
+        }
+
+        // Same ascending order as checkout so two partial holds cannot starve each other forever
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        Reservation[] created = new Reservation[1];
+        // The swap happens under the user's map entry, so concurrent reserves by one user
+        // replace each other in turn and never leave a hold that no mapping points to
+        reservationByUser.compute(userId, (id, previous) -> {
+            if (previous != null) {
+                discard(previous);
+            }
+            Map<Long, Integer> taken = new HashMap<>();
+            for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+                Integer available = stock.get(entry.getKey());
+                if (available == null || !tryHold(entry.getKey(), entry.getValue(), available)) {
+                    unhold(taken);
+                    return null;
+                }
+                taken.put(entry.getKey(), entry.getValue());
+            }
+
+            long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+            Reservation reservation = new Reservation(UUID.randomUUID().toString(), userId,
+                    Collections.unmodifiableMap(ordered), expiresAt);
+            reservations.put(reservation.id, reservation);
+            reservation.timeout = wheel.schedule(reservation.id, expiresAt);
+            created[0] = reservation;
+            return reservation.id;
+        });
+        if (created[0] == null) {
+            throw new CheckoutException("Insufficient stock to reserve your cart");
+        }
+        return created[0];
+    }
+
+    public Reservation getActiveReservation(Long userId) {
+        String id = reservationByUser.get(userId);
+        return id == null ? null : reservations.get(id);
+    }
+
+    public void release(String reservationId) {
+        end(reservationId);
+    }
+
+    /**
+     * Called after the order's stock decrement has committed: the units now left the
+     * products table, so the hold is dropped without giving them back to anyone.
+     */
+    public void convert(String reservationId) {
+        end(reservationId);
+    }
+
+    /**
+     * Hands the hold over to an order awaiting online payment. It stops being the user's
+     * current reservation and no longer expires on the TTL; it ends through
+     * {@link #convertForOrder(Long)} once capture has taken the stock, or
+     * {@link #releaseForOrder(Long)} when the payment fails or is abandoned.
+     *
+     * @throws CheckoutException if the reservation already ended
+     */
+    public void attach(String reservationId, Long orderId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            throw new CheckoutException("Your stock reservation expired, please try again");
+        }
+        if (reservation.timeout != null) {
+            reservation.timeout.cancel();
+        }
+        reservationByUser.remove(reservation.userId, reservationId);
+        reservation.orderId = orderId;
+        reservationByOrder.put(orderId, reservationId);
+        // It may have expired between the lookup and the cancel
+        if (!reservations.containsKey(reservationId)) {
+            reservationByOrder.remove(orderId, reservationId);
+            throw new CheckoutException("Your stock reservation expired, please try again");
+        }
+    }
+
+    /**
+     * Re-takes the hold of an order still awaiting payment, e.g. after a restart lost the
+     * in-memory holds. Not checked against stock: the units were promised to the order when
+     * it was placed and have stayed out of everyone else's availability since.
+     */
+    public void holdForOrder(Long orderId, Long userId, Map<Long, Integer> quantities) {
+        if (reservationByOrder.containsKey(orderId)) {
+            return;
+        }
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), userId,
+                Collections.unmodifiableMap(new TreeMap<>(quantities)), Long.MAX_VALUE);
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            held.computeIfAbsent(entry.getKey(), id -> new AtomicInteger()).addAndGet(entry.getValue());
+        }
+        reservation.orderId = orderId;
+        reservations.put(reservation.id, reservation);
+        reservationByOrder.put(orderId, reservation.id);
+    }
+
+    public void convertForOrder(Long orderId) {
+        String reservationId = reservationByOrder.remove(orderId);
+        end(reservationId);
+    }
+
+    public void releaseForOrder(Long orderId) {
+        String reservationId = reservationByOrder.remove(orderId);
+        end(reservationId);
+    }
+
+    public int getHeldQuantity(Long productId) {
+        AtomicInteger counter = held.get(productId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public int getAvailableStock(Long productId, int stock) {
+        return Math.max(0, stock - getHeldQuantity(productId));
+    }
+
+    @Scheduled(fixedRateString = "${app.reservation.tick-ms:1000}")
+    public void expireReservations() {
+        List<String> expired = wheel.advance(System.currentTimeMillis());
+        for (String reservationId : expired) {
+            if (end(reservationId)) {
+                logger.debug("Reservation {} expired", reservationId);
+            }
+        }
+    }
+
+    private boolean end(String reservationId) {
+        if (reservationId == null) {
+            return false;
+        }
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null || !discard(reservationId)) {
+            return false;
+        }
+        reservationByUser.remove(reservation.userId, reservationId);
+        return true;
+    }
+
+    // Drops the hold without touching reservationByUser, so it is safe inside compute on it
+    private boolean discard(String reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        if (reservation.timeout != null) {
+            reservation.timeout.cancel();
+        }
+        if (reservation.orderId != null) {
+            reservationByOrder.remove(reservation.orderId, reservationId);
+        }
+        unhold(reservation.quantities);
+        return true;
+    }
+
+    private boolean tryHold(Long productId, int quantity, int stock) {
+        AtomicInteger counter = held.computeIfAbsent(productId, id -> new AtomicInteger());
+        while (true) {
+            int current = counter.get();
+            if (stock - current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private void unhold(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            AtomicInteger counter = held.get(entry.getKey());
+            if (counter != null) {
+                counter.addAndGet(-entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.hsz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for stock decrements. Requests for the same product that arrive within a
+ * short window are merged into one conditional UPDATE committed on its own, so N concurrent
+ * buyers cost one row-lock acquisition instead of N queued ones. Callers get a future that
+ * completes with true when their units were taken and false on insufficient stock.
+ *
+ * Because the decrement commits independently of the caller's order, every granted request
+ * writes a {@link StockClaimService} claim row in the same transaction; the order consumes
+ * the claim, and a claim that is never consumed is given back.
+ */
+@Service
+public class StockWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StockWriter.class);
+
+    private static final String MERGED_DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String LOCK_STOCK_SQL = "SELECT stock FROM products WHERE id = ? FOR UPDATE";
+
+    private static final String DECREMENT_SQL = "UPDATE products SET stock = stock - ? WHERE id = ?";
+
+    private static final class Request {
+        private final String claimId;
+        private final int quantity;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Request(String claimId, int quantity) {
+            this.claimId = claimId;
+            this.quantity = quantity;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.stock-writer.window-ms:2}")
+    private long windowMillis;
+
+    @Value("${app.stock-writer.threads:4}")
+    private int threads;
+
+    // Requests waiting for their product's next flush; a key is present only while a flush is scheduled
+    private final ConcurrentHashMap<Long, List<Request>> queues = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+    private volatile int lastBatchSize;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stock-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Takes units for the given claim; the claim row commits with the decrement
+    public CompletableFuture<Boolean> decrement(String claimId, Long productId, int quantity) {
+        Request request = new Request(claimId, quantity);
+        queueDepth.incrementAndGet();
+        boolean[] first = new boolean[1];
+        queues.compute(productId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayList<>();
+                first[0] = true;
+            }
+            queue.add(request);
+            return queue;
+        });
+        if (first[0]) {
+            executor.schedule(() -> flush(productId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return request.result;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queueDepth", queueDepth.get());
+        metrics.put("batches", batchCount);
+        metrics.put("requests", batchedRequests.get());
+        metrics.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) batchedRequests.get() / batchCount);
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("maxBatchSize", maxBatchSize.get());
+        metrics.put("fallbacks", fallbacks.get());
+        return metrics;
+    }
+
+    private void flush(Long productId) {
+        List<Request> batch = queues.remove(productId);
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        queueDepth.addAndGet(-batch.size());
+        batches.incrementAndGet();
+        batchedRequests.addAndGet(batch.size());
+        lastBatchSize = batch.size();
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        try {
+            int total = 0;
+            for (Request request : batch) {
+                total += request.quantity;
+            }
+            int merged = total;
+            boolean[] granted = transactionTemplate.execute(status -> {
+                boolean[] outcome = new boolean[batch.size()];
+                if (jdbcTemplate.update(MERGED_DECREMENT_SQL, merged, productId, merged) == 1) {
+                    Arrays.fill(outcome, true);
+                } else {
+                    // Not enough for everyone: grant in arrival order against the locked row
+                    fallbacks.incrementAndGet();
+                    List<Integer> stock = jdbcTemplate.queryForList(LOCK_STOCK_SQL, Integer.class, productId);
+                    int remaining = stock.isEmpty() ? 0 : stock.get(0);
+                    int taken = 0;
+                    for (int i = 0; i < batch.size(); i++) {
+                        int quantity = batch.get(i).quantity;
+                        if (quantity <= remaining) {
+                            outcome[i] = true;
+                            remaining -= quantity;
+                            taken += quantity;
+                        }
+                    }
+                    if (taken > 0) {
+                        jdbcTemplate.update(DECREMENT_SQL, taken, productId);
+                    }
+                }
+
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> claims = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (outcome[i]) {
+                        claims.add(new Object[] {batch.get(i).claimId, productId, batch.get(i).quantity, now});
+                    }
+                }
+                if (!claims.isEmpty()) {
+                    jdbcTemplate.batchUpdate(StockClaimService.INSERT_SQL, claims);
+                }
+                return outcome;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(granted[i]);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Stock decrement batch for product {} failed", productId, e);
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.hsz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Local gateway for development and tests: orders are created without a network call and
+ * signatures use Razorpay's scheme with a local secret, so callers can sign confirmations
+ * and callbacks themselves to drive the settlement path end to end.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    @Value("${app.payment.stub.secret:stub_secret}")
+    private String secret;
+
+    @Override
+    public GatewayOrder createOrder(long amountPaise, String receipt) {
+        return new GatewayOrder("order_stub_" + UUID.randomUUID().toString().replace("-", ""), amountPaise, "INR");
+    }
+
+    // Stub payments only exist as signed confirmations, so there is nothing to look up
+    @Override
+    public Optional<String> findCapturedPayment(String gatewayOrderId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean verifyPayment(String gatewayOrderId, String paymentId, String signature) {
+        return PaymentGateway.signatureMatches(PaymentGateway.hmacSha256Hex(secret, gatewayOrderId + "|" + paymentId), signature);
+    }
+
+    @Override
+    public boolean verifyCallback(String payload, String signature) {
+        return PaymentGateway.signatureMatches(PaymentGateway.hmacSha256Hex(secret, payload), signature);
+    }
+}
@@ -0,0 +1,200 @@
+package com.hsz.util;
+
+import com.hsz.model.Coupon;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable index answering "which coupon gives the largest discount on this amount".
+ *
+ * A coupon's discount on amount A is min(A * percent / 100, cap) once A reaches its minimum
+ * order amount, so below its saturation point s = cap * 100 / percent it grows with the
+ * percentage and above it is flat at the cap. Coupons are sorted by minimum order amount,
+ * which makes the eligible ones a prefix; a merge-sort tree over that order keeps each
+ * node's coupons sorted by s with prefix maxima of cap and suffix maxima of percent. A query
+ * visits O(log n) nodes, binary-searches A in each, and compares the O(log n) candidates
+ * exactly with {@link Coupon#calculateDiscount(Money)}.
+ */
+public class CouponDiscountIndex {
+
+    // Saturation points only order candidates; the final comparison is exact
+    private static final int SATURATION_SCALE = 6;
+
+    private static final BigDecimal MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final Coupon[] coupons;
+    private final BigDecimal[] thresholds;
+    private final BigDecimal[] saturationOf;
+    private final int size;
+
+    // Per node: saturation values of its coupons in ascending order, best-cap prefix, best-percent suffix
+    private final BigDecimal[][] saturation;
+    private final int[][] bestCapPrefix;
+    private final int[][] bestPercentSuffix;
+
+    public CouponDiscountIndex(List<Coupon> candidates) {
+        List<Coupon> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparing(CouponDiscountIndex::threshold));
+        this.coupons = sorted.toArray(new Coupon[0]);
+        this.size = coupons.length;
+        this.thresholds = new BigDecimal[size];
+        this.saturationOf = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            thresholds[i] = threshold(coupons[i]);
+            saturationOf[i] = saturation(coupons[i]);
+        }
+
+        int nodes = Math.max(1, 4 * size);
+        this.saturation = new BigDecimal[nodes][];
+        this.bestCapPrefix = new int[nodes][];
+        this.bestPercentSuffix = new int[nodes][];
+        if (size > 0) {
+            build(1, 0, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Best coupon for the amount, or null when none is eligible or every eligible one gives zero
+    public Coupon best(BigDecimal amount) {
+        int eligible = upperBound(thresholds, amount);
+        if (eligible == 0) {
+            return null;
+        }
+        List<Integer> candidates = new ArrayList<>();
+        collect(1, 0, size, eligible, amount, candidates);
+
+        Money money = Money.of(amount);
+        Coupon best = null;
+        Money bestDiscount = Money.ZERO;
+        for (int index : candidates) {
+            Coupon coupon = coupons[index];
+            Money discount = coupon.calculateDiscount(money);
+            if (discount.compareTo(bestDiscount) > 0
+                    || (best != null && discount.compareTo(bestDiscount) == 0 && coupon.getId() < best.getId())) {
+                best = coupon;
+                bestDiscount = discount;
+            }
+        }
+        return best;
+    }
+
+    private void build(int node, int from, int to) {
+        int count = to - from;
+        Integer[] members = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            members[i] = from + i;
+        }
+        Arrays.sort(members, Comparator.comparing(i -> saturationOf[i]));
+
+        saturation[node] = new BigDecimal[count];
+        bestCapPrefix[node] = new int[count];
+        bestPercentSuffix[node] = new int[count];
+        for (int i = 0; i < count; i++) {
+            saturation[node][i] = saturationOf[members[i]];
+        }
+        // Entries before the split are capped at the query amount: only their caps matter
+        for (int i = 0; i < count; i++) {
+            int current = members[i];
+            bestCapPrefix[node][i] = i == 0 || better(cap(coupons[current]), current,
+                    cap(coupons[bestCapPrefix[node][i - 1]]), bestCapPrefix[node][i - 1])
+                    ? current : bestCapPrefix[node][i - 1];
+        }
+        // Entries from the split on are below saturation: only their percentages matter
+        for (int i = count - 1; i >= 0; i--) {
+            int current = members[i];
+            bestPercentSuffix[node][i] = i == count - 1 || better(percent(coupons[current]), current,
+                    percent(coupons[bestPercentSuffix[node][i + 1]]), bestPercentSuffix[node][i + 1])
+                    ? current : bestPercentSuffix[node][i + 1];
+        }
+
+        if (count > 1) {
+            int mid = (from + to) >>> 1;
+            build(2 * node, from, mid);
+            build(2 * node + 1, mid, to);
+        }
+    }
+
+    // Larger value wins; equal values go to the lower coupon id, matching the tie-break in best()
+    private boolean better(BigDecimal value, int index, BigDecimal otherValue, int otherIndex) {
+        int compared = value.compareTo(otherValue);
+        return compared > 0 || (compared == 0 && coupons[index].getId() < coupons[otherIndex].getId());
+    }
+
+    private void collect(int node, int from, int to, int eligible, BigDecimal amount, List<Integer> candidates) {
+        if (from >= eligible) {
+            return;
+        }
+        if (to <= eligible) {
+            int split = lowerBound(saturation[node], amount);
+            if (split > 0) {
+                candidates.add(bestCapPrefix[node][split - 1]);
+            }
+            if (split < saturation[node].length) {
+                candidates.add(bestPercentSuffix[node][split]);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        collect(2 * node, from, mid, eligible, amount, candidates);
+        collect(2 * node + 1, mid, to, eligible, amount, candidates);
+    }
+
+    // Index of the first value > key
+    private static int upperBound(BigDecimal[] values, BigDecimal key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first value >= key
+    private static int lowerBound(BigDecimal[] values, BigDecimal key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static BigDecimal threshold(Coupon coupon) {
+        return coupon.getMinOrderAmount() == null ? BigDecimal.ZERO : coupon.getMinOrderAmount();
+    }
+
+    private static BigDecimal percent(Coupon coupon) {
+        return coupon.getDiscountPercent() == null ? BigDecimal.ZERO : coupon.getDiscountPercent();
+    }
+
+    // No cap behaves as an unbounded one
+    private static BigDecimal cap(Coupon coupon) {
+        return coupon.getMaxDiscountAmount() == null ? MAX : coupon.getMaxDiscountAmount();
+    }
+
+    private static BigDecimal saturation(Coupon coupon) {
+        if (coupon.getMaxDiscountAmount() == null || percent(coupon).signum() == 0) {
+            return MAX;
+        }
+        return coupon.getMaxDiscountAmount().multiply(BigDecimal.valueOf(100))
+                .divide(percent(coupon), SATURATION_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,115 @@
+package com.hsz.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for coarse-grained expiries. Each level has {@code wheelSize}
+ * slots; a timeout lives on the lowest level whose current rotation contains its deadline
+ * and cascades down one level whenever the clock enters its slot. Scheduling and
+ * cancellation are O(1); advancing costs O(expired + cascaded) entries per tick.
+ *
+ * Not driven by its own thread: the owner calls {@link #advance(long)} periodically.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    public static final class Timeout<T> {
+        private final T task;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(T task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() { return task; }
+
+        public boolean isCancelled() { return cancelled; }
+
+        public void cancel() { cancelled = true; }
+    }
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final List<List<Timeout<T>>> slots;
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis and levels must be positive and wheelSize a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.slots = new ArrayList<>(levels * wheelSize);
+        for (int i = 0; i < levels * wheelSize; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized Timeout<T> schedule(T task, long deadlineMillis) {
+        // Round up so a timeout never fires before its deadline
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        if (bits * levels < 63 && deadlineTick - currentTick >= (1L << (bits * levels))) {
+            throw new IllegalArgumentException("Deadline is beyond the range of the wheel");
+        }
+        Timeout<T> timeout = new Timeout<>(task, deadlineTick);
+        place(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis} and returns the tasks whose deadline
+     * has passed, skipping cancelled ones. Callers run the tasks outside the wheel's lock.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (bits * level)) & mask));
+                }
+            }
+            List<Timeout<T>> slot = slots.get((int) (currentTick & mask));
+            for (Timeout<T> timeout : slot) {
+                if (!timeout.cancelled) {
+                    expired.add(timeout.task);
+                }
+            }
+            slot.clear();
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int index) {
+        List<Timeout<T>> slot = slots.get(level * (mask + 1) + index);
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timeout<T>> pending = new ArrayList<>(slot);
+        slot.clear();
+        for (Timeout<T> timeout : pending) {
+            if (!timeout.cancelled) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long deadline = timeout.deadlineTick;
+        int level = 0;
+        // Lowest level whose current rotation (all higher bits equal) contains the deadline
+        while (level < levels - 1 && (deadline >>> (bits * (level + 1))) != (currentTick >>> (bits * (level + 1)))) {
+            level++;
+        }
+        int index = (int) ((deadline >>> (bits * level)) & mask);
+        slots.get(level * (mask + 1) + index).add(timeout);
+    }
+}
@@ -0,0 +1,126 @@
+package com.hsz.util;
+
+/**
+ * Open-addressing hash map from long keys to int counts, without boxing either side. Linear
+ * probing over power-of-two tables kept at most half full; a key whose count drops to zero is
+ * removed with backward-shift deletion, so lookups never cross tombstones.
+ *
+ * Not thread-safe.
+ */
+public class LongIntHashMap {
+
+    public interface Visitor {
+        void visit(long key, int value);
+    }
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private int[] values;
+    // Slots are in use when values[slot] != 0
+    private int size;
+    private int mask;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int get(long key) {
+        for (int slot = slot(key); values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    // Adds delta to the count of key and returns the new count; a count of zero removes the key
+    public int add(long key, int delta) {
+        if (delta == 0) {
+            return get(key);
+        }
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int value = values[slot] + delta;
+                if (value == 0) {
+                    remove(slot);
+                } else {
+                    values[slot] = value;
+                }
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return delta;
+    }
+
+    public void addAll(LongIntHashMap other) {
+        other.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != 0) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private void remove(int slot) {
+        size--;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // Move the entry back into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != 0) {
+                int target = slot(oldKeys[slot]);
+                while (values[target] != 0) {
+                    target = (target + 1) & mask;
+                }
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
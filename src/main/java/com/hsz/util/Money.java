@@ -0,0 +1,113 @@
+package com.hsz.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable rupee amount held as a whole number of paise. Addition, subtraction and
+ * multiplication by a quantity are exact long arithmetic (overflow throws); the only
+ * rounding points are conversion from a BigDecimal and percentages, both HALF_UP to the
+ * paisa. Serialized to JSON as a two-decimal number, so API responses keep their shape.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    // Largest rupee amount that fits in a long of paise; anything above it cannot be a Money
+    public static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    public static Money ofRupees(long rupees) {
+        return ofPaise(Math.multiplyExact(rupees, 100));
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return ofPaise(amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    public long getPaise() {
+        return paise;
+    }
+
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    public Money times(long quantity) {
+        return ofPaise(Math.multiplyExact(paise, quantity));
+    }
+
+    // percent of this amount, e.g. 12.5 for 12.5%, rounded HALF_UP to the paisa
+    public Money percent(BigDecimal percent) {
+        BigDecimal result = BigDecimal.valueOf(paise).multiply(percent).divide(HUNDRED, 0, RoundingMode.HALF_UP);
+        return ofPaise(result.longValueExact());
+    }
+
+    public Money min(Money other) {
+        return paise <= other.paise ? this : other;
+    }
+
+    public Money max(Money other) {
+        return paise >= other.paise ? this : other;
+    }
+
+    public int signum() {
+        return Long.signum(paise);
+    }
+
+    public boolean isZero() {
+        return paise == 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return paise < other.paise;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return paise > other.paise;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof Money && ((Money) other).paise == paise);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
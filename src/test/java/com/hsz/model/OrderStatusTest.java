@@ -0,0 +1,50 @@
+package com.hsz.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.hsz.model.Order.OrderStatus.CANCELLED;
+import static com.hsz.model.Order.OrderStatus.CONFIRMED;
+import static com.hsz.model.Order.OrderStatus.DELIVERED;
+import static com.hsz.model.Order.OrderStatus.PENDING;
+import static com.hsz.model.Order.OrderStatus.PROCESSING;
+import static com.hsz.model.Order.OrderStatus.SHIPPED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OrderStatusTest {
+
+    @Test
+    void movesForwardThroughFulfilment() {
+        assertEquals(EnumSet.of(CONFIRMED, PROCESSING, CANCELLED), allowedFrom(PENDING));
+        assertEquals(EnumSet.of(PROCESSING, SHIPPED, CANCELLED), allowedFrom(CONFIRMED));
+        assertEquals(EnumSet.of(SHIPPED, CANCELLED), allowedFrom(PROCESSING));
+        assertEquals(EnumSet.of(DELIVERED), allowedFrom(SHIPPED));
+    }
+
+    @Test
+    void deliveredAndCancelledAreFinal() {
+        assertEquals(EnumSet.noneOf(Order.OrderStatus.class), allowedFrom(DELIVERED));
+        assertEquals(EnumSet.noneOf(Order.OrderStatus.class), allowedFrom(CANCELLED));
+    }
+
+    @Test
+    void noStatusMovesToItselfOrToNothing() {
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            assertFalse(status.canTransitionTo(status), status.name());
+            assertFalse(status.canTransitionTo(null), status.name());
+        }
+    }
+
+    private static Set<Order.OrderStatus> allowedFrom(Order.OrderStatus from) {
+        Set<Order.OrderStatus> allowed = EnumSet.noneOf(Order.OrderStatus.class);
+        for (Order.OrderStatus next : Order.OrderStatus.values()) {
+            if (from.canTransitionTo(next)) {
+                allowed.add(next);
+            }
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import com.hsz.repository.OrderItemRepository;
+import com.hsz.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AdminOrderServiceTest {
+
+    private OrderRepository orderRepository;
+    private JdbcTemplate jdbcTemplate;
+    private RevenueRollupService revenueRollupService;
+    private AdminOrderService adminOrderService;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        revenueRollupService = mock(RevenueRollupService.class);
+
+        order = new Order();
+        order.setId(9L);
+        order.setOrderDate(LocalDateTime.of(2026, 3, 1, 10, 0));
+        order.setTotalPrice(new BigDecimal("1500.00"));
+        order.setPaymentStatus(Order.PaymentStatus.PENDING);
+        when(orderRepository.findById(9L)).thenReturn(Optional.of(order));
+        when(orderItemRepository.findByOrderId(9L)).thenReturn(List.of());
+
+        adminOrderService = new AdminOrderService();
+        ReflectionTestUtils.setField(adminOrderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(adminOrderService, "orderItemRepository", orderItemRepository);
+        ReflectionTestUtils.setField(adminOrderService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(adminOrderService, "revenueRollupService", revenueRollupService);
+        ReflectionTestUtils.setField(adminOrderService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(adminOrderService, "entityManager", mock(EntityManager.class));
+    }
+
+    @Test
+    void updateIsConditionalOnTheStatusThatWasRead() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+
+        AdminOrderService.Result result = adminOrderService.updatePaymentStatus(9L, Order.PaymentStatus.SUCCESS);
+
+        assertEquals(AdminOrderService.Outcome.UPDATED, result.getOutcome());
+        verify(jdbcTemplate).update(anyString(), eq("SUCCESS"), eq(9L), eq("PENDING"));
+        verify(revenueRollupService).onPaymentStatusChanged(order.getOrderDate(), order.getTotalPrice(),
+                Order.PaymentStatus.PENDING, Order.PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void concurrentChangeIsAConflictAndLeavesRevenueAlone() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(0);
+
+        AdminOrderService.Result result = adminOrderService.updatePaymentStatus(9L, Order.PaymentStatus.SUCCESS);
+
+        assertEquals(AdminOrderService.Outcome.CONFLICT, result.getOutcome());
+        verifyNoInteractions(revenueRollupService);
+    }
+
+    @Test
+    void missingOrderIsNotDeleted() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(4L))).thenReturn(List.of());
+
+        assertFalse(adminOrderService.deleteOrder(4L));
+        verify(orderRepository, never()).delete(any());
+        verifyNoInteractions(revenueRollupService);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hsz.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BestsellerTrackerTest {
+
+    private static final Long SAREE_ID = 1L;
+    private static final Long BLOUSE_ID = 2L;
+
+    private JdbcTemplate jdbcTemplate;
+    private BestsellerTracker tracker;
+    private Runnable duringQuery = () -> { };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        tracker = new BestsellerTracker();
+        ReflectionTestUtils.setField(tracker, "jdbcTemplate", jdbcTemplate);
+
+        // Five sarees sold today, and whatever duringQuery commits while the rows are read
+        ResultSet allTime = mock(ResultSet.class);
+        when(allTime.getLong(1)).thenReturn(SAREE_ID);
+        when(allTime.getLong(2)).thenReturn(5L);
+        when(allTime.getBigDecimal(3)).thenReturn(new BigDecimal("5000.00"));
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(allTime);
+            duringQuery.run();
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT oi.product_id, SUM"), any(RowCallbackHandler.class));
+
+        ResultSet daily = mock(ResultSet.class);
+        when(daily.getLong(1)).thenReturn(SAREE_ID);
+        when(daily.getDate(2)).thenReturn(Date.valueOf(LocalDate.now()));
+        when(daily.getLong(3)).thenReturn(5L);
+        when(daily.getBigDecimal(4)).thenReturn(new BigDecimal("5000.00"));
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(daily);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT oi.product_id, DATE"), any(RowCallbackHandler.class), any(Object.class));
+    }
+
+    @Test
+    void saleDuringTheRebuildIsKept() {
+        duringQuery = () -> tracker.onSalesChanged(blouses(3));
+        tracker.reconcile();
+
+        for (BestsellerTracker.Window window : BestsellerTracker.Window.values()) {
+            List<BestsellerTracker.Entry> top = tracker.top(window, 10);
+            assertEquals(2, top.size(), window.name());
+            assertEquals(SAREE_ID, top.get(0).getProductId());
+            assertEquals(BLOUSE_ID, top.get(1).getProductId());
+            assertEquals(3, top.get(1).getUnits());
+        }
+    }
+
+    @Test
+    void saleAfterTheRebuildCountsOnce() {
+        tracker.reconcile();
+        tracker.onSalesChanged(blouses(3));
+        tracker.onSalesChanged(blouses(-1));
+
+        List<BestsellerTracker.Entry> top = tracker.top(BestsellerTracker.Window.LAST_7_DAYS, 10);
+        assertEquals(2, top.get(1).getUnits());
+        assertEquals(20000, top.get(1).getRevenuePaise());
+    }
+
+    private static SalesChangedEvent blouses(int units) {
+        return new SalesChangedEvent(List.of(
+                new SalesChangedEvent.Line(9L, BLOUSE_ID, LocalDate.now(), units, units * 10000L)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class BulkOrderStatusServiceTest {
+
+    private NamedParameterJdbcTemplate jdbc;
+    private ApplicationEventPublisher eventPublisher;
+    private StockReservationService reservationService;
+    private CouponRedemptionService redemptionService;
+    private BulkOrderStatusService bulkOrderStatusService;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(NamedParameterJdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        bulkOrderStatusService = new BulkOrderStatusService();
+        ReflectionTestUtils.setField(bulkOrderStatusService, "namedParameterJdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(bulkOrderStatusService, "transactionTemplate",
+                new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(bulkOrderStatusService, "eventPublisher", eventPublisher);
+        reservationService = mock(StockReservationService.class);
+        redemptionService = mock(CouponRedemptionService.class);
+        ReflectionTestUtils.setField(bulkOrderStatusService, "reservationService", reservationService);
+        ReflectionTestUtils.setField(bulkOrderStatusService, "redemptionService", redemptionService);
+        ReflectionTestUtils.setField(bulkOrderStatusService, "chunkSize", 2);
+    }
+
+    @Test
+    void failedChunkIsReportedAndTheOthersStillApply() {
+        // Locking the chunk holding order 3 times out
+        pendingOrders(Set.of(3L), Set.of());
+
+        List<BulkOrderStatusService.Result> results =
+                bulkOrderStatusService.apply(List.of(1L, 2L, 3L, 4L, 5L), Order.OrderStatus.CONFIRMED);
+
+        assertEquals(5, results.size());
+        assertEquals(BulkOrderStatusService.Outcome.UPDATED, results.get(0).getOutcome());
+        assertEquals(BulkOrderStatusService.Outcome.UPDATED, results.get(1).getOutcome());
+        assertEquals(BulkOrderStatusService.Outcome.FAILED, results.get(2).getOutcome());
+        assertEquals(BulkOrderStatusService.Outcome.FAILED, results.get(3).getOutcome());
+        assertEquals(BulkOrderStatusService.Outcome.UPDATED, results.get(4).getOutcome());
+        verify(eventPublisher).publishEvent(any(OrderStatusBatchChangedEvent.class));
+    }
+
+    @Test
+    void cancellingUnpaidOrdersGivesBackTheirHoldsAndCoupons() {
+        // Orders 2 and 4 took their stock at checkout; the others only hold it until paid
+        pendingOrders(Set.of(), Set.of(2L, 4L));
+
+        bulkOrderStatusService.apply(List.of(1L, 2L, 3L, 4L), Order.OrderStatus.CANCELLED);
+
+        verify(redemptionService).revokeForOrders(List.of(1L));
+        verify(redemptionService).revokeForOrders(List.of(3L));
+        verify(reservationService).releaseForOrder(1L);
+        verify(reservationService).releaseForOrder(3L);
+        verifyNoMoreInteractions(reservationService);
+    }
+
+    @Test
+    void otherMovesKeepTheHolds() {
+        pendingOrders(Set.of(), Set.of());
+
+        bulkOrderStatusService.apply(List.of(1L, 2L), Order.OrderStatus.CONFIRMED);
+
+        verify(redemptionService).revokeForOrders(List.of());
+        verifyNoInteractions(reservationService);
+    }
+
+    // Every order is PENDING; locking a chunk with an id in failing throws
+    private void pendingOrders(Set<Long> failing, Set<Long> stockTaken) {
+        doAnswer(invocation -> {
+            MapSqlParameterSource params = invocation.getArgument(1);
+            List<?> ids = (List<?>) params.getValue("ids");
+            for (Object id : ids) {
+                if (failing.contains(id)) {
+                    throw new QueryTimeoutException("Lock wait timeout exceeded");
+                }
+            }
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object id : ids) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) id);
+                when(rs.getString("status")).thenReturn("PENDING");
+                when(rs.getBoolean("stock_taken")).thenReturn(stockTaken.contains(id));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(anyString(), any(MapSqlParameterSource.class), any(RowCallbackHandler.class));
+        when(jdbc.update(anyString(), any(MapSqlParameterSource.class))).thenAnswer(invocation ->
+                ((List<?>) ((MapSqlParameterSource) invocation.getArgument(1)).getValue("ids")).size());
+    }
+}
@@ -0,0 +1,170 @@
+package com.hsz.service;
+
+import com.hsz.model.Cart;
+import com.hsz.repository.CartRepository;
+import com.hsz.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    private static final Long USER_ID = 7L;
+    private static final Long PRODUCT_ID = 42L;
+
+    private CartService cartService;
+    private ProductRepository productRepository;
+    private CartRepository cartRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        cartRepository = mock(CartRepository.class);
+        IdAllocator idAllocator = mock(IdAllocator.class);
+        AtomicLong ids = new AtomicLong();
+        when(idAllocator.next(any())).thenAnswer(invocation -> ids.incrementAndGet());
+        when(cartRepository.findLinesByUserId(anyLong())).thenReturn(new ArrayList<>());
+
+        cartService = new CartService();
+        ReflectionTestUtils.setField(cartService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(cartService, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(cartService, "idAllocator", idAllocator);
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ReflectionTestUtils.setField(cartService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(cartService, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(cartService, "idleEvictionMs", 1800000L);
+    }
+
+    @Test
+    void concurrentAddsForOneUserAndProductNeverExceedStock() throws Exception {
+        int stock = 100;
+        int threads = 200;
+        when(productRepository.findActiveStockById(PRODUCT_ID)).thenReturn(Optional.of(stock));
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CartService.Result>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return cartService.addItem(USER_ID, PRODUCT_ID, 1);
+            }));
+        }
+        start.countDown();
+
+        int ok = 0;
+        int rejected = 0;
+        for (Future<CartService.Result> result : results) {
+            CartService.Result outcome = result.get(10, TimeUnit.SECONDS);
+            if (outcome == CartService.Result.OK) {
+                ok++;
+            } else if (outcome == CartService.Result.INSUFFICIENT_STOCK) {
+                rejected++;
+            }
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(stock, ok);
+        assertEquals(threads - stock, rejected);
+        assertEquals(1, cartService.countItems(USER_ID));
+        assertEquals(stock, cartService.getQuantities(USER_ID).get(PRODUCT_ID));
+    }
+
+    @Test
+    void addingToAnExistingLineKeepsOneRow() {
+        when(productRepository.findActiveStockById(PRODUCT_ID)).thenReturn(Optional.of(5));
+
+        assertEquals(CartService.Result.OK, cartService.addItem(USER_ID, PRODUCT_ID, 2));
+        assertEquals(CartService.Result.OK, cartService.addItem(USER_ID, PRODUCT_ID, 3));
+        assertEquals(CartService.Result.INSUFFICIENT_STOCK, cartService.addItem(USER_ID, PRODUCT_ID, 1));
+
+        assertEquals(1, cartService.countItems(USER_ID));
+        assertEquals(5, cartService.getQuantities(USER_ID).get(PRODUCT_ID));
+    }
+
+    @Test
+    void unknownProductIsRejected() {
+        when(productRepository.findActiveStockById(PRODUCT_ID)).thenReturn(Optional.empty());
+
+        assertEquals(CartService.Result.PRODUCT_NOT_FOUND, cartService.addItem(USER_ID, PRODUCT_ID, 1));
+        assertEquals(0, cartService.countItems(USER_ID));
+    }
+
+    @Test
+    void flushFailureKeepsCartDirtyForTheNextCycle() {
+        when(productRepository.findActiveStockById(PRODUCT_ID)).thenReturn(Optional.of(5));
+        cartService.addItem(USER_ID, PRODUCT_ID, 2);
+
+        doThrow(new TransientDataAccessResourceException("database down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        cartService.flushDirtyCarts();
+        assertEquals(2, cartService.getQuantities(USER_ID).get(PRODUCT_ID));
+
+        reset(jdbcTemplate);
+        doReturn(new int[] {1}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        cartService.flushDirtyCarts();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+
+        // Acknowledged: nothing left to write
+        cartService.flushDirtyCarts();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void constraintViolationDropsOnlyTheOffendingLine() {
+        Long deletedProduct = 43L;
+        when(productRepository.findActiveStockById(PRODUCT_ID)).thenReturn(Optional.of(5));
+        when(productRepository.findActiveStockById(deletedProduct)).thenReturn(Optional.of(5));
+        cartService.addItem(USER_ID, PRODUCT_ID, 1);
+        cartService.addItem(USER_ID, deletedProduct, 1);
+
+        doThrow(new DataIntegrityViolationException("fk_cart_product"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        when(jdbcTemplate.update(anyString(), any(), any(), eq(deletedProduct), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("fk_cart_product"));
+        cartService.flushDirtyCarts();
+
+        assertEquals(1, cartService.countItems(USER_ID));
+        assertEquals(1, cartService.getQuantities(USER_ID).get(PRODUCT_ID));
+        verify(jdbcTemplate).update(anyString(), any(), any(), eq(PRODUCT_ID), any(), any());
+
+        reset(jdbcTemplate);
+        cartService.flushDirtyCarts();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
@@ -0,0 +1,206 @@
+package com.hsz.service;
+
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.model.Order;
+import com.hsz.model.User;
+import com.hsz.repository.OrderRepository;
+import com.hsz.repository.ProductRepository;
+import com.hsz.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 500 buyers check out the last 10 units of one saree at the same moment, through the real
+ * checkout, stock writer and claim code against an in-memory stand-in for the stock tables.
+ */
+class CheckoutServiceLoadTest {
+
+    private static final Long SAREE_ID = 11L;
+    private static final int UNITS = 10;
+    private static final int BUYERS = 500;
+
+    private InMemoryStockJdbc jdbc;
+    private StockWriter stockWriter;
+    private StockClaimService stockClaimService;
+    private CheckoutService checkoutService;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new InMemoryStockJdbc(200);
+        jdbc.setStock(SAREE_ID, UNITS);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        HotSkuInventoryService hotSkuInventoryService = mock(HotSkuInventoryService.class);
+
+        stockWriter = new StockWriter();
+        ReflectionTestUtils.setField(stockWriter, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(stockWriter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(stockWriter, "windowMillis", 2L);
+        ReflectionTestUtils.setField(stockWriter, "threads", 4);
+        stockWriter.init();
+
+        stockClaimService = new StockClaimService();
+        ReflectionTestUtils.setField(stockClaimService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(stockClaimService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(stockClaimService, "hotSkuInventoryService", hotSkuInventoryService);
+
+        CartService cartService = mock(CartService.class);
+        Map<Long, Integer> cart = new HashMap<>();
+        cart.put(SAREE_ID, 1);
+        when(cartService.getQuantities(anyLong())).thenReturn(cart);
+
+        // Holds are not the subject here: let every buyer through to the stock path
+        StockReservationService reservationService = mock(StockReservationService.class);
+        when(reservationService.reserve(anyLong(), anyMap())).thenAnswer(invocation ->
+                new StockReservationService.Reservation("r" + invocation.getArgument(0), invocation.getArgument(0),
+                        invocation.getArgument(1), Long.MAX_VALUE));
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        List<Object[]> pricing = new ArrayList<>();
+        pricing.add(new Object[] {SAREE_ID, "Kanchipuram Silk Saree", new BigDecimal("12500.00"), Boolean.TRUE});
+        when(productRepository.findPricingByIds(any())).thenReturn(pricing);
+
+        AtomicLong orderIds = new AtomicLong();
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(orderIds.incrementAndGet());
+            return order;
+        });
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.getReferenceById(anyLong())).thenReturn(new User());
+        IdAllocator idAllocator = mock(IdAllocator.class);
+        AtomicLong itemIds = new AtomicLong();
+        when(idAllocator.next(any())).thenAnswer(invocation -> itemIds.incrementAndGet());
+
+        checkoutService = new CheckoutService();
+        ReflectionTestUtils.setField(checkoutService, "cartService", cartService);
+        ReflectionTestUtils.setField(checkoutService, "pricingService", new PricingService());
+        ReflectionTestUtils.setField(checkoutService, "reservationService", reservationService);
+        ReflectionTestUtils.setField(checkoutService, "hotSkuInventoryService", hotSkuInventoryService);
+        ReflectionTestUtils.setField(checkoutService, "stockWriter", stockWriter);
+        ReflectionTestUtils.setField(checkoutService, "stockClaimService", stockClaimService);
+        ReflectionTestUtils.setField(checkoutService, "inventoryLedgerService", mock(InventoryLedgerService.class));
+        ReflectionTestUtils.setField(checkoutService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(checkoutService, "idAllocator", idAllocator);
+        ReflectionTestUtils.setField(checkoutService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(checkoutService, "couponRegistry", mock(CouponRegistry.class));
+        ReflectionTestUtils.setField(checkoutService, "redemptionService", mock(CouponRedemptionService.class));
+        ReflectionTestUtils.setField(checkoutService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(checkoutService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(checkoutService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(checkoutService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(checkoutService, "stockTimeoutMillis", 30000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stockWriter.shutdown();
+    }
+
+    @Test
+    void fiveHundredBuyersOfTenUnitsNeverOversell() throws Exception {
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(BUYERS);
+        for (int i = 0; i < BUYERS; i++) {
+            long userId = i + 1;
+            results.add(buyers.submit(() -> {
+                start.await();
+                try {
+                    checkoutService.checkout(userId, request());
+                    return true;
+                } catch (CheckoutException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int sold = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                sold++;
+            }
+        }
+        buyers.shutdown();
+        assertTrue(buyers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(UNITS, sold);
+        assertEquals(0, jdbc.getStock(SAREE_ID));
+        assertEquals(UNITS, jdbc.orderItems.get());
+        // Every claim was consumed by its order; nothing is left for the sweep
+        assertEquals(0, jdbc.claimedUnits(SAREE_ID));
+    }
+
+    @Test
+    void releasedClaimGivesUnitsBack() throws Exception {
+        String claimId = StockClaimService.newClaimId();
+        assertTrue(stockWriter.decrement(claimId, SAREE_ID, 3).get(5, TimeUnit.SECONDS));
+        assertEquals(UNITS - 3, jdbc.getStock(SAREE_ID));
+        assertEquals(3, jdbc.claimedUnits(SAREE_ID));
+
+        stockClaimService.release(claimId);
+        assertEquals(UNITS, jdbc.getStock(SAREE_ID));
+        assertEquals(0, jdbc.claimedUnits(SAREE_ID));
+
+        // Releasing twice, e.g. by the sweep after the request thread, changes nothing
+        stockClaimService.release(claimId);
+        assertEquals(UNITS, jdbc.getStock(SAREE_ID));
+    }
+
+    @Test
+    void stockWriteThatMissesTheDeadlineFailsCleanlyAndGivesUnitsBack() throws Exception {
+        ReflectionTestUtils.setField(stockWriter, "windowMillis", 300L);
+        ReflectionTestUtils.setField(checkoutService, "stockTimeoutMillis", 20L);
+
+        CheckoutException e = assertThrows(CheckoutException.class, () -> checkoutService.checkout(1L, request()));
+        assertTrue(e.getMessage().contains("busy"));
+
+        // The decrement still lands after the caller gave up, and is released right after
+        long until = System.currentTimeMillis() + 5000;
+        while ((jdbc.getStock(SAREE_ID) != UNITS || jdbc.stockStatements.get() < 2) && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertEquals(UNITS, jdbc.getStock(SAREE_ID));
+        assertEquals(0, jdbc.claimedUnits(SAREE_ID));
+        assertEquals(0, jdbc.orderItems.get());
+    }
+
+    private static CreateOrderRequest request() {
+        Map<String, String> address = new HashMap<>();
+        address.put("fullName", "Buyer");
+        address.put("addressLine1", "1 Temple Street");
+        address.put("city", "Madurai");
+        address.put("pincode", "625001");
+        address.put("phone", "9000000000");
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setShippingAddress(address);
+        return request;
+    }
+}
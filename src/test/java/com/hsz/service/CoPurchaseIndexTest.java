@@ -0,0 +1,77 @@
+package com.hsz.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoPurchaseIndexTest {
+
+    private static final long SAREE_ID = 1L;
+    private static final long BLOUSE_ID = 2L;
+    private static final long DUPATTA_ID = 3L;
+
+    private CoPurchaseIndex index;
+    private Runnable duringQuery = () -> { };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        index = new CoPurchaseIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+
+        // Order 5 bought a saree with a blouse; whatever duringQuery commits lands after the rows are read
+        ResultSet rows = mock(ResultSet.class);
+        when(rows.getLong(1)).thenReturn(5L);
+        when(rows.getLong(2)).thenReturn(SAREE_ID, BLOUSE_ID);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rows);
+            handler.processRow(rows);
+            duringQuery.run();
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void orderPaidDuringTheRebuildIsKept() {
+        duringQuery = () -> index.onSalesChanged(sareeWithDupatta(1));
+        index.rebuild();
+
+        assertArrayEquals(new long[] {BLOUSE_ID, DUPATTA_ID}, index.related(SAREE_ID, 10));
+        assertArrayEquals(new long[] {SAREE_ID}, index.related(DUPATTA_ID, 10));
+    }
+
+    @Test
+    void orderAfterTheRebuildCountsOnce() {
+        index.rebuild();
+        index.onSalesChanged(sareeWithDupatta(1));
+        index.onSalesChanged(sareeWithDupatta(1));
+        index.onSalesChanged(sareeWithDupatta(-1));
+
+        // One dupatta order remains, tying with the blouse; ties go to the lower product id
+        assertArrayEquals(new long[] {BLOUSE_ID, DUPATTA_ID}, index.related(SAREE_ID, 10));
+
+        index.onSalesChanged(sareeWithDupatta(-1));
+        assertArrayEquals(new long[] {BLOUSE_ID}, index.related(SAREE_ID, 10));
+        assertArrayEquals(new long[0], index.related(DUPATTA_ID, 10));
+    }
+
+    private static SalesChangedEvent sareeWithDupatta(int units) {
+        return new SalesChangedEvent(List.of(
+                new SalesChangedEvent.Line(9L, SAREE_ID, LocalDate.now(), units, units * 10000L),
+                new SalesChangedEvent.Line(9L, DUPATTA_ID, LocalDate.now(), units, units * 2000L)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.hsz.service;
+
+import com.hsz.dto.BulkCouponRequest;
+import com.hsz.model.Coupon;
+import com.hsz.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponGenerationServiceTest {
+
+    private final List<String> existing = new ArrayList<>();
+    private final List<String> inserted = new ArrayList<>();
+    private CouponRegistry couponRegistry;
+    private CouponGenerationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String code : existing) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(code);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT code FROM coupons"), any(RowCallbackHandler.class), any(Object.class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                inserted.add((String) row[0]);
+            }
+            return new int[rows.size()];
+        });
+
+        // Each code read back as the coupon the insert created
+        CouponRepository couponRepository = mock(CouponRepository.class);
+        when(couponRepository.findByCodeIn(any())).thenAnswer(invocation -> {
+            List<Coupon> coupons = new ArrayList<>();
+            for (String code : invocation.<Collection<String>>getArgument(0)) {
+                Coupon coupon = new Coupon();
+                coupon.setId((long) inserted.indexOf(code) + 1000);
+                coupon.setCode(code);
+                coupons.add(coupon);
+            }
+            return coupons;
+        });
+
+        couponRegistry = mock(CouponRegistry.class);
+        service = new CouponGenerationService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(service, "couponRegistry", couponRegistry);
+        ReflectionTestUtils.setField(service, "couponRepository", couponRepository);
+        ReflectionTestUtils.setField(service, "maxCount", 100000);
+    }
+
+    @Test
+    void codesAreUniqueAndSkipExistingOnes() {
+        // 256 possible codes, 200 of them already taken: most draws collide
+        for (int i = 0; i < 200; i++) {
+            existing.add("VIP-" + binary(i));
+        }
+
+        List<String> codes = service.generate(request("vip-", "AB", 8, 25));
+
+        assertEquals(25, codes.size());
+        assertEquals(25, new HashSet<>(codes).size());
+        for (String code : codes) {
+            assertTrue(code.matches("VIP-[AB]{8}"), code);
+            assertFalse(existing.contains(code), code);
+        }
+        assertEquals(codes, inserted);
+    }
+
+    @Test
+    void registersOnlyTheNewCoupons() {
+        existing.add("FEST-AAAAAA");
+
+        List<String> codes = service.generate(request("FEST-", "ABCDEFGH", 6, 2500));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Coupon>> registered = ArgumentCaptor.forClass(List.class);
+        verify(couponRegistry, times(3)).register(registered.capture());
+        Set<String> registeredCodes = new HashSet<>();
+        for (List<Coupon> batch : registered.getAllValues()) {
+            assertTrue(batch.size() <= 1000);
+            for (Coupon coupon : batch) {
+                registeredCodes.add(coupon.getCode());
+            }
+        }
+        assertEquals(new HashSet<>(codes), registeredCodes);
+        assertEquals(2500, registeredCodes.size());
+        assertFalse(registeredCodes.contains("FEST-AAAAAA"));
+        verify(couponRegistry, never()).reload();
+    }
+
+    private static BulkCouponRequest request(String prefix, String alphabet, int length, int count) {
+        BulkCouponRequest request = new BulkCouponRequest();
+        request.setPrefix(prefix);
+        request.setAlphabet(alphabet);
+        request.setLength(length);
+        request.setCount(count);
+        request.setDiscountPercent(new BigDecimal("15"));
+        return request;
+    }
+
+    // The i-th code of the A/B alphabet, A standing for 0
+    private static String binary(int i) {
+        StringBuilder code = new StringBuilder();
+        for (int bit = 7; bit >= 0; bit--) {
+            code.append((i >> bit & 1) == 0 ? 'A' : 'B');
+        }
+        return code.toString();
+    }
+}
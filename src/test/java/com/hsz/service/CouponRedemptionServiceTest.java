@@ -0,0 +1,124 @@
+package com.hsz.service;
+
+import com.hsz.model.Coupon;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CouponRedemptionServiceTest {
+
+    private static final Long COUPON_ID = 5L;
+    private static final int LIMIT = 10;
+    private static final int BUYERS = 200;
+
+    private InMemoryPaymentJdbc database;
+    private Coupon coupon;
+    private final AtomicLong orderIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        database = new InMemoryPaymentJdbc();
+        database.addCoupon(COUPON_ID, LIMIT);
+        coupon = new Coupon();
+        coupon.setId(COUPON_ID);
+        coupon.setUsageLimit(LIMIT);
+    }
+
+    @Test
+    void concurrentReservationsNeverOverspendTheLimit() throws Exception {
+        CouponRedemptionService earlier = newService();
+        redeem(earlier, 3);
+        earlier.flushCounts();
+
+        // A quarter of the winners fail to place their order and hand the use back
+        CouponRedemptionService service = newService();
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(BUYERS);
+        for (int i = 0; i < BUYERS; i++) {
+            long userId = i + 1;
+            results.add(buyers.submit(() -> {
+                start.await();
+                if (!service.tryReserve(coupon)) {
+                    return false;
+                }
+                if (userId % 4 == 0) {
+                    service.release(coupon);
+                    return false;
+                }
+                service.recordRedemption(orderIds.incrementAndGet(), coupon, userId);
+                return true;
+            }));
+        }
+        start.countDown();
+        int redeemed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                redeemed++;
+            }
+        }
+        buyers.shutdown();
+
+        int unused = drain(service);
+        assertEquals(LIMIT - 3, redeemed + unused);
+        assertEquals(3 + redeemed, database.redemptionCount());
+        service.flushCounts();
+        assertEquals(3 + redeemed, database.getUsedCount(COUPON_ID));
+    }
+
+    @Test
+    void restartSeedsFromUsedCountLessUncountedRedemptions() {
+        CouponRedemptionService before = newService();
+        redeem(before, 4);
+        before.flushCounts();
+        // Written, but the process stops before the next flush counts them
+        redeem(before, 2);
+        assertEquals(4, database.getUsedCount(COUPON_ID));
+
+        assertEquals(LIMIT - 6, drain(newService()));
+
+        // Startup folds the leftover rows into used_count without counting them twice
+        CouponRedemptionService after = newService();
+        after.init();
+        assertEquals(6, database.getUsedCount(COUPON_ID));
+        assertEquals(LIMIT - 6, drain(after));
+        assertFalse(after.hasRemaining(coupon));
+    }
+
+    private CouponRedemptionService newService() {
+        CouponRedemptionService service = new CouponRedemptionService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", database);
+        ReflectionTestUtils.setField(service, "namedParameterJdbcTemplate", database.named);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        return service;
+    }
+
+    private void redeem(CouponRedemptionService service, int uses) {
+        for (int i = 0; i < uses; i++) {
+            service.tryReserve(coupon);
+            service.recordRedemption(orderIds.incrementAndGet(), coupon, 1L);
+        }
+    }
+
+    // Takes every use still available and returns how many there were
+    private int drain(CouponRedemptionService service) {
+        int taken = 0;
+        while (service.tryReserve(coupon)) {
+            taken++;
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,117 @@
+package com.hsz.service;
+
+import com.hsz.model.Coupon;
+import com.hsz.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CouponRegistryTest {
+
+    private static final Long COUPON_ID = 3L;
+    private static final long HOUR = 3_600_000L;
+
+    private CouponRepository couponRepository;
+    private CouponRegistry registry;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = mock(CouponRepository.class);
+        CouponRedemptionService redemptionService = mock(CouponRedemptionService.class);
+        when(redemptionService.hasRemaining(any())).thenReturn(true);
+
+        registry = new CouponRegistry();
+        ReflectionTestUtils.setField(registry, "couponRepository", couponRepository);
+        ReflectionTestUtils.setField(registry, "redemptionService", redemptionService);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void couponMovesFromPendingToActiveToExpired() {
+        Coupon coupon = coupon(now.plusHours(1), now.plusHours(2), true);
+        when(couponRepository.findAll()).thenReturn(List.of(coupon));
+        registry.reload();
+        assertEquals(CouponRegistry.State.PENDING, registry.getState(COUPON_ID));
+        assertNull(registry.findValid("diwali10"));
+
+        advanceTo(now.plusHours(1));
+        assertEquals(CouponRegistry.State.ACTIVE, registry.getState(COUPON_ID));
+        assertSame(coupon, registry.findValid(" diwali10 "));
+        assertEquals(List.of(coupon), registry.getActiveCoupons());
+
+        // Valid through validTill itself
+        advanceTo(now.plusHours(2));
+        assertEquals(CouponRegistry.State.ACTIVE, registry.getState(COUPON_ID));
+        advance(millis(now.plusHours(2)) + 1);
+        assertEquals(CouponRegistry.State.EXPIRED, registry.getState(COUPON_ID));
+        assertNull(registry.findValid("DIWALI10"));
+        assertTrue(registry.getActiveCoupons().isEmpty());
+    }
+
+    @Test
+    void deactivatedCouponIgnoresItsOldActivation() {
+        when(couponRepository.findAll()).thenReturn(List.of(coupon(now.plusHours(1), now.plusHours(2), true)));
+        registry.reload();
+
+        registry.refresh(coupon(now.plusHours(1), now.plusHours(2), false));
+        assertEquals(CouponRegistry.State.EXPIRED, registry.getState(COUPON_ID));
+
+        advanceTo(now.plusHours(1));
+        assertEquals(CouponRegistry.State.EXPIRED, registry.getState(COUPON_ID));
+        assertNull(registry.findValid("DIWALI10"));
+    }
+
+    @Test
+    void extendedCouponIgnoresItsOldExpiry() {
+        when(couponRepository.findAll()).thenReturn(List.of(coupon(now.minusHours(1), now.plusHours(1), true)));
+        registry.reload();
+
+        Coupon extended = coupon(now.minusHours(1), now.plusHours(3), true);
+        registry.refresh(extended);
+
+        advance(millis(now.plusHours(1)) + HOUR);
+        assertEquals(CouponRegistry.State.ACTIVE, registry.getState(COUPON_ID));
+        assertSame(extended, registry.findValid("DIWALI10"));
+
+        advance(millis(now.plusHours(3)) + 1);
+        assertEquals(CouponRegistry.State.EXPIRED, registry.getState(COUPON_ID));
+    }
+
+    private static Coupon coupon(LocalDateTime validFrom, LocalDateTime validTill, boolean isActive) {
+        Coupon coupon = new Coupon();
+        coupon.setId(COUPON_ID);
+        coupon.setCode("DIWALI10");
+        coupon.setDiscountPercent(new BigDecimal("10"));
+        coupon.setValidFrom(validFrom);
+        coupon.setValidTill(validTill);
+        coupon.setIsActive(isActive);
+        return coupon;
+    }
+
+    // Runs the boundaries due by then, as tick() would once the clock gets there
+    private void advanceTo(LocalDateTime time) {
+        advance(millis(time));
+    }
+
+    private void advance(long millis) {
+        ReflectionTestUtils.invokeMethod(registry, "advance", millis);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,189 @@
+package com.hsz.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HotSkuInventoryServiceTest {
+
+    private static final Long SAREE_ID = 5L;
+    private static final Long DUPATTA_ID = 6L;
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private HotSkuInventoryService hotSku;
+    private Path journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = dir.resolve("hot-sku.journal");
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList("SELECT stock FROM products WHERE id = ?", Integer.class, SAREE_ID))
+                .thenReturn(List.of(10));
+        when(jdbcTemplate.queryForList("SELECT stock FROM products WHERE id = ?", Integer.class, DUPATTA_ID))
+                .thenReturn(List.of(1000));
+
+        hotSku = new HotSkuInventoryService();
+        ReflectionTestUtils.setField(hotSku, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(hotSku, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(hotSku, "journalPath", journal.toString());
+        ReflectionTestUtils.setField(hotSku, "compactBytes", 1048576L);
+    }
+
+    @Test
+    void decrementIsInTheJournalWhenItReturns() throws Exception {
+        hotSku.recover();
+        hotSku.enable(SAREE_ID);
+
+        assertTrue(hotSku.tryDecrement(SAREE_ID, 3));
+        assertTrue(Files.readAllLines(journal, StandardCharsets.UTF_8).contains("D 1 5 3"));
+        assertEquals(7, hotSku.getStock(SAREE_ID));
+    }
+
+    @Test
+    void concurrentSalesAreEachJournalledOnce() throws Exception {
+        hotSku.recover();
+        hotSku.enable(DUPATTA_ID);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> sales = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            sales.add(pool.submit(() -> {
+                start.await();
+                return hotSku.tryDecrement(DUPATTA_ID, 1);
+            }));
+        }
+        start.countDown();
+        for (Future<Boolean> sale : sales) {
+            assertTrue(sale.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(200, hotSku.getStock(DUPATTA_ID));
+        Set<String> entries = new HashSet<>();
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            if (line.startsWith("D ")) {
+                assertTrue(entries.add(line), line);
+            }
+        }
+        assertEquals(800, entries.size());
+    }
+
+    @Test
+    void failedJournalWriteGivesTheUnitsBack() throws Exception {
+        hotSku.recover();
+        hotSku.enable(SAREE_ID);
+        ((FileChannel) ReflectionTestUtils.getField(hotSku, "journal")).close();
+
+        assertThrows(UncheckedIOException.class, () -> hotSku.tryDecrement(SAREE_ID, 3));
+        assertEquals(10, hotSku.getStock(SAREE_ID));
+
+        // Nothing was sold, so nothing reaches products.stock
+        hotSku.reconcile();
+        verify(jdbcTemplate, never()).batchUpdate(eq("UPDATE products SET stock = stock - ? WHERE id = ?"), anyList());
+    }
+
+    @Test
+    void recoverySkipsAGroupWrittenTwice() throws Exception {
+        // The write of entries 1-2 failed after reaching the file and was repeated with entry 3
+        Files.write(journal, List.of("E 5", "D 1 5 2", "D 2 5 1", "D 1 5 2", "D 2 5 1", "D 3 5 4"), StandardCharsets.UTF_8);
+
+        hotSku.recover();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> replayed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE products SET stock = stock - ? WHERE id = ?"), replayed.capture());
+        assertArrayEquals(new Object[] {7, SAREE_ID}, replayed.getValue().get(0));
+    }
+
+    @Test
+    void restoreAfterDisableGoesToTheDatabase() throws Exception {
+        hotSku.recover();
+        hotSku.enable(SAREE_ID);
+        assertTrue(hotSku.tryDecrement(SAREE_ID, 3));
+        hotSku.disable(SAREE_ID);
+
+        hotSku.restore(SAREE_ID, 3);
+        verify(jdbcTemplate).update("UPDATE products SET stock = stock + ? WHERE id = ?", 3, SAREE_ID);
+    }
+
+    @Test
+    void recoverySkipsEntriesACommittedReseedSuperseded() throws Exception {
+        // Watermark at 1, re-seed committed at 2 but its "S" line never reached the journal
+        Files.write(journal, List.of("E 5", "D 1 5 2", "D 2 5 1", "D 3 5 4"), StandardCharsets.UTF_8);
+        when(jdbcTemplate.queryForList("SELECT last_seq FROM inventory_journal_state WHERE name = ?", Long.class, "hot-sku"))
+                .thenReturn(List.of(1L));
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("name", "hot-sku:reseed:5");
+        marker.put("last_seq", 2L);
+        when(jdbcTemplate.queryForList(startsWith("SELECT name, last_seq FROM inventory_journal_state")))
+                .thenReturn(List.of(marker));
+
+        hotSku.recover();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> replayed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE products SET stock = stock - ? WHERE id = ?"), replayed.capture());
+        assertEquals(1, replayed.getValue().size());
+        assertArrayEquals(new Object[] {4, SAREE_ID}, replayed.getValue().get(0));
+        assertTrue(hotSku.isHot(SAREE_ID));
+
+        // Numbering continues after everything already used
+        assertTrue(hotSku.tryDecrement(SAREE_ID, 1));
+        assertTrue(Files.readAllLines(journal, StandardCharsets.UTF_8).contains("D 4 5 1"));
+    }
+
+    @Test
+    void reseedWritesStockAndMarkerTogether() throws Exception {
+        hotSku.recover();
+        hotSku.enable(SAREE_ID);
+        assertTrue(hotSku.tryDecrement(SAREE_ID, 2));
+
+        int[] replaced = new int[1];
+        assertEquals(8, hotSku.reseed(SAREE_ID, 20, previous -> replaced[0] = previous));
+        assertEquals(8, replaced[0]);
+        verify(jdbcTemplate).update("UPDATE products SET stock = ? WHERE id = ?", 20, SAREE_ID);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO inventory_journal_state"), eq("hot-sku:reseed:5"), eq(2L));
+        assertEquals(20, hotSku.getStock(SAREE_ID));
+
+        // The superseded decrement is not reconciled on top of the new figure
+        hotSku.reconcile();
+        verify(jdbcTemplate, never()).batchUpdate(eq("UPDATE products SET stock = stock - ? WHERE id = ?"), anyList());
+    }
+}
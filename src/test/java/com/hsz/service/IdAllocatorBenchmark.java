@@ -0,0 +1,194 @@
+package com.hsz.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk order creation with ids reserved synchronously inside the order transaction (what the
+ * REQUIRES_NEW reservation and Hibernate's table generator did) against {@link IdAllocator}'s
+ * background prefetch. Each order holds one of 10 pooled connections for a simulated 300us of
+ * inserts and takes one order id and four item ids; reserving a block needs a connection of its
+ * own and holds the sequence row for 2ms.
+ *
+ * Run with: mvn test -Dtest=IdAllocatorBenchmark -Dbenchmarks=true
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class IdAllocatorBenchmark {
+
+    private static final int POOL_SIZE = 10;
+    private static final long ORDER_MICROS = 300;
+    private static final long RESERVE_MICROS = 2000;
+    private static final int ITEMS_PER_ORDER = 4;
+    private static final int ORDERS = 20000;
+    private static final int[] WRITERS = {1, 4, 8};
+
+    interface Ids {
+        long next(String sequence);
+    }
+
+    @Test
+    void inTransactionVersusPrefetch() throws Exception {
+        System.out.println();
+        System.out.printf("%-8s %-10s %10s %14s %12s %10s%n",
+                "writers", "mode", "orders/s", "avg latency ms", "peak conns", "waits");
+        double syncAtMax = 0;
+        double prefetchAtMax = 0;
+        for (int writers : WRITERS) {
+            double sync = run(writers, false);
+            double prefetch = run(writers, true);
+            if (writers == WRITERS[WRITERS.length - 1]) {
+                syncAtMax = sync;
+                prefetchAtMax = prefetch;
+            }
+        }
+        assertTrue(prefetchAtMax > syncAtMax, "prefetched blocks should out-scale in-transaction reservation");
+    }
+
+    private double run(int writers, boolean prefetch) throws Exception {
+        SimulatedDatabase database = new SimulatedDatabase();
+        Ids ids;
+        IdAllocator allocator = null;
+        if (prefetch) {
+            allocator = new IdAllocator() {
+                @Override
+                long reserveBlock(String sequence, int count) {
+                    return database.reserve(sequence, count);
+                }
+            };
+            allocator.start();
+            ids = allocator::next;
+        } else {
+            ids = new InTransactionAllocator(database);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> orderIds = ConcurrentHashMap.newKeySet();
+        Set<Long> itemIds = ConcurrentHashMap.newKeySet();
+        int perWriter = ORDERS / writers;
+        List<Future<Long>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                long latency = 0;
+                for (int i = 0; i < perWriter; i++) {
+                    long begin = System.nanoTime();
+                    database.acquire();
+                    try {
+                        orderIds.add(ids.next(IdAllocator.ORDERS));
+                        for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+                            itemIds.add(ids.next(IdAllocator.ORDER_ITEMS));
+                        }
+                        LockSupport.parkNanos(ORDER_MICROS * 1000);
+                    } finally {
+                        database.release();
+                    }
+                    latency += System.nanoTime() - begin;
+                }
+                return latency;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long totalLatency = 0;
+        for (Future<Long> result : results) {
+            totalLatency += result.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        int orders = perWriter * writers;
+        assertEquals(orders, orderIds.size());
+        assertEquals(orders * ITEMS_PER_ORDER, itemIds.size());
+        double throughput = orders / (elapsed / 1e9);
+        long waits = prefetch ? allocator.getWaits() : database.callerReservations.get();
+        System.out.printf("%-8d %-10s %10.0f %14.2f %12d %10d%n", writers, prefetch ? "prefetch" : "in-tx",
+                throughput, totalLatency / 1e6 / orders, database.peak.get(), waits);
+        if (allocator != null) {
+            allocator.shutdown();
+        }
+        return throughput;
+    }
+
+    // Connection pool, sequence rows and their locks
+    static final class SimulatedDatabase {
+        private final Semaphore connections = new Semaphore(POOL_SIZE);
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final AtomicInteger callerReservations = new AtomicInteger();
+        private final ConcurrentHashMap<String, Long> nextVal = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+
+        void acquire() throws InterruptedException {
+            if (!connections.tryAcquire(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Connection pool exhausted");
+            }
+            peak.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        }
+
+        void release() {
+            inUse.decrementAndGet();
+            connections.release();
+        }
+
+        long reserve(String sequence, int count) {
+            try {
+                acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            ReentrantLock row = rowLocks.computeIfAbsent(sequence, name -> new ReentrantLock());
+            row.lock();
+            try {
+                LockSupport.parkNanos(RESERVE_MICROS * 1000);
+                return nextVal.merge(sequence, (long) count + 1, (current, step) -> current + step - 1);
+            } finally {
+                row.unlock();
+                release();
+            }
+        }
+    }
+
+    // The previous allocator: a block is reserved by the caller, on a second connection, when it runs out
+    static final class InTransactionAllocator implements Ids {
+        private final SimulatedDatabase database;
+        private final ConcurrentHashMap<String, long[]> blocks = new ConcurrentHashMap<>();
+
+        InTransactionAllocator(SimulatedDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public long next(String sequence) {
+            long[] block = blocks.computeIfAbsent(sequence, name -> new long[2]);
+            synchronized (block) {
+                if (block[0] >= block[1]) {
+                    database.callerReservations.incrementAndGet();
+                    long end = database.reserve(sequence, IdAllocator.BLOCK_SIZE);
+                    block[0] = end - IdAllocator.BLOCK_SIZE;
+                    block[1] = end;
+                }
+                return block[0]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hsz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Nothing persisted: retries are answered from the in-memory entries
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenAnswer(invocation -> new ArrayList<>());
+
+        idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(idempotencyService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(idempotencyService, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 100);
+        ReflectionTestUtils.setField(idempotencyService, "waitMillis", 1_000L);
+        idempotencyService.init();
+    }
+
+    @Test
+    void retryWithTheSameBodyReplaysTheFirstResponse() {
+        ResponseEntity<?> first = execute("key-1", Map.of("productId", 7, "quantity", 2));
+        ResponseEntity<?> retry = execute("key-1", Map.of("quantity", 2, "productId", 7));
+
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals(200, retry.getStatusCode().value());
+        assertEquals("{\"run\":1}", retry.getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIsRejected() {
+        execute("key-1", Map.of("productId", 7, "quantity", 2));
+        ResponseEntity<?> reused = execute("key-1", Map.of("productId", 7, "quantity", 3));
+
+        assertEquals(422, reused.getStatusCode().value());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void nestedMapOrderDoesNotChangeTheRequest() {
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("city", "Madurai");
+        address.put("pincode", "625001");
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("pincode", "625001");
+        reordered.put("city", "Madurai");
+
+        execute("key-1", Map.of("shippingAddress", address));
+        ResponseEntity<?> retry = execute("key-1", Map.of("shippingAddress", reordered));
+
+        assertEquals(200, retry.getStatusCode().value());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void differentKeysRunSeparately() {
+        execute("key-1", Map.of("quantity", 1));
+        execute("key-2", Map.of("quantity", 2));
+
+        assertEquals(2, runs.get());
+    }
+
+    private ResponseEntity<?> execute(String key, Object request) {
+        return idempotencyService.execute("cart.add", 1L, key, request,
+                () -> ResponseEntity.ok(Map.of("run", runs.incrementAndGet())));
+    }
+}
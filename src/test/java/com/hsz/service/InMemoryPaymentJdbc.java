@@ -0,0 +1,399 @@
+package com.hsz.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stand-in for MySQL covering the statements of the online payment path: orders and their
+ * items, products.stock, payment_events, coupon_redemptions and coupons.used_count. Every
+ * statement runs under one lock, which is all the settlement workers need.
+ */
+class InMemoryPaymentJdbc extends JdbcTemplate {
+
+    static final BigDecimal PRICE = new BigDecimal("1000.00");
+
+    static final class OrderRow {
+        final long id;
+        final long userId;
+        final Map<Long, Integer> items;
+        final LocalDateTime orderDate;
+        String status = "PENDING";
+        String paymentStatus = "PENDING";
+        boolean stockTaken;
+        String gatewayOrderId;
+        String paymentId;
+
+        OrderRow(long id, long userId, Map<Long, Integer> items, LocalDateTime orderDate) {
+            this.id = id;
+            this.userId = userId;
+            this.items = items;
+            this.orderDate = orderDate;
+        }
+    }
+
+    private static final class Redemption {
+        private final long orderId;
+        private final long couponId;
+        private boolean counted;
+
+        private Redemption(long orderId, long couponId) {
+            this.orderId = orderId;
+            this.couponId = couponId;
+        }
+    }
+
+    private final Map<Long, OrderRow> orders = new LinkedHashMap<>();
+    private final Map<Long, Integer> stock = new HashMap<>();
+    private final Set<String> paymentEvents = new HashSet<>();
+    private final Map<Long, Redemption> redemptions = new LinkedHashMap<>();
+    private final Map<Long, int[]> coupons = new HashMap<>();
+    private long nextRedemptionId = 1;
+
+    final NamedParameterJdbcTemplate named = new Named(this);
+
+    synchronized void setStock(long productId, int units) {
+        stock.put(productId, units);
+    }
+
+    synchronized int getStock(long productId) {
+        return stock.get(productId);
+    }
+
+    synchronized void addOrder(OrderRow order) {
+        orders.put(order.id, order);
+    }
+
+    synchronized OrderRow getOrder(long orderId) {
+        return orders.get(orderId);
+    }
+
+    // A coupon as {usage_limit, used_count}
+    synchronized void addCoupon(long couponId, int usageLimit) {
+        coupons.put(couponId, new int[] {usageLimit, 0});
+    }
+
+    synchronized int getUsedCount(long couponId) {
+        return coupons.get(couponId)[1];
+    }
+
+    synchronized int redemptionCount() {
+        return redemptions.size();
+    }
+
+    // What CouponRedemptionService.flushCounts does
+    synchronized void countRedemptions() {
+        for (Redemption redemption : redemptions.values()) {
+            if (!redemption.counted) {
+                redemption.counted = true;
+                coupons.get(redemption.couponId)[1]++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized int update(String sql, Object... args) {
+        if (sql.startsWith("UPDATE orders SET razorpay_order_id = ? WHERE id = ?")) {
+            orders.get((Long) args[1]).gatewayOrderId = (String) args[0];
+            return 1;
+        }
+        if (sql.startsWith("UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?")) {
+            Long productId = (Long) args[1];
+            int quantity = (Integer) args[0];
+            if (stock.get(productId) < quantity) {
+                return 0;
+            }
+            stock.merge(productId, -quantity, Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE orders SET status = 'CANCELLED', payment_status = 'FAILED'")) {
+            OrderRow order = orders.get((Long) args[0]);
+            if (!order.status.equals("PENDING") || !order.paymentStatus.equals("PENDING") || order.stockTaken) {
+                return 0;
+            }
+            order.status = "CANCELLED";
+            order.paymentStatus = "FAILED";
+            return 1;
+        }
+        if (sql.startsWith("UPDATE orders SET status = 'CANCELLED' WHERE id = ?")) {
+            OrderRow order = orders.get((Long) args[0]);
+            if (!order.status.equals("PENDING")) {
+                return 0;
+            }
+            order.status = "CANCELLED";
+            return 1;
+        }
+        if (sql.startsWith("UPDATE orders SET payment_status = 'SUCCESS'")) {
+            return settle((String) args[1], (String) args[0], "SUCCESS", Set.of("PENDING", "FAILED"));
+        }
+        if (sql.startsWith("UPDATE orders SET payment_status = 'FAILED'")) {
+            return settle((String) args[1], (String) args[0], "FAILED", Set.of("PENDING"));
+        }
+        if (sql.startsWith("UPDATE orders SET stock_taken = 1 WHERE id = ?")) {
+            orders.get((Long) args[0]).stockTaken = true;
+            return 1;
+        }
+        if (sql.startsWith("INSERT INTO coupon_redemptions")) {
+            redemptions.put(nextRedemptionId++, new Redemption((Long) args[0], (Long) args[1]));
+            return 1;
+        }
+        if (sql.startsWith("UPDATE coupons SET used_count = COALESCE(used_count, 0) + ? WHERE id = ?")) {
+            coupons.get((Long) args[1])[1] += (Integer) args[0];
+            return 1;
+        }
+        if (sql.startsWith("UPDATE coupon_redemptions SET counted = TRUE WHERE id = ?")) {
+            redemptions.get((Long) args[0]).counted = true;
+            return 1;
+        }
+        if (sql.startsWith("UPDATE coupons SET used_count = GREATEST(COALESCE(used_count, 0) - ?, 0) WHERE id = ?")) {
+            int[] coupon = coupons.get((Long) args[1]);
+            coupon[1] = Math.max(coupon[1] - (Integer) args[0], 0);
+            return 1;
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    @Override
+    public synchronized int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        int[] counts = new int[batchArgs.size()];
+        for (int i = 0; i < batchArgs.size(); i++) {
+            Object[] args = batchArgs.get(i);
+            if (sql.startsWith("INSERT INTO payment_events")) {
+                if (!paymentEvents.add((String) args[0])) {
+                    throw new DuplicateKeyException("Duplicate event " + args[0]);
+                }
+                counts[i] = 1;
+            } else {
+                counts[i] = update(sql, args);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql) {
+        return queryForList(sql, new Object[0]);
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> queryForList(String sql, Object... args) {
+        if (sql.startsWith("SELECT id, razorpay_order_id, order_date, stock_taken = 0 AS held FROM orders")) {
+            LocalDateTime before = ((Timestamp) args[0]).toLocalDateTime();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            orders.values().stream()
+                    .filter(order -> order.paymentStatus.equals("PENDING") && order.status.equals("PENDING")
+                            && order.orderDate.isBefore(before))
+                    .sorted(Comparator.comparing(order -> order.orderDate))
+                    .limit((Integer) args[1])
+                    .forEach(order -> {
+                        Map<String, Object> row = new HashMap<>();
+                        row.put("id", order.id);
+                        row.put("razorpay_order_id", order.gatewayOrderId);
+                        row.put("order_date", Timestamp.valueOf(order.orderDate));
+                        row.put("held", order.stockTaken ? 0 : 1);
+                        rows.add(row);
+                    });
+            return rows;
+        }
+        if (sql.startsWith("SELECT id, coupon_id FROM coupon_redemptions WHERE counted = FALSE")) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            redemptions.forEach((id, redemption) -> {
+                if (!redemption.counted) {
+                    rows.add(Map.of("id", id, "coupon_id", redemption.couponId));
+                }
+            });
+            return rows;
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    @Override
+    public synchronized void query(String sql, RowCallbackHandler handler) {
+        if (sql.startsWith("SELECT o.id, o.user_id, oi.product_id, oi.quantity FROM orders o")) {
+            for (OrderRow order : orders.values()) {
+                if (order.paymentStatus.equals("PENDING") && order.status.equals("PENDING") && !order.stockTaken) {
+                    for (Map.Entry<Long, Integer> item : order.items.entrySet()) {
+                        ResultSet rs = row(Map.of("id", order.id, "user_id", order.userId,
+                                "product_id", item.getKey(), "quantity", item.getValue()));
+                        process(handler, rs);
+                    }
+                }
+            }
+            return;
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+        if (sql.startsWith("SELECT c.usage_limit - COALESCE(c.used_count, 0)")) {
+            long couponId = (Long) args[0];
+            int[] coupon = coupons.get(couponId);
+            long uncounted = redemptions.values().stream()
+                    .filter(redemption -> redemption.couponId == couponId && !redemption.counted).count();
+            return (T) Integer.valueOf(coupon[0] - coupon[1] - (int) uncounted);
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    private int settle(String gatewayOrderId, String paymentId, String to, Set<String> from) {
+        int changed = 0;
+        for (OrderRow order : orders.values()) {
+            if (gatewayOrderId.equals(order.gatewayOrderId) && from.contains(order.paymentStatus)) {
+                order.paymentStatus = to;
+                if (paymentId != null) {
+                    order.paymentId = paymentId;
+                }
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private synchronized <T> List<T> namedQueryForList(String sql, Collection<?> ids) {
+        List<Object> result = new ArrayList<>();
+        if (sql.startsWith("SELECT event_id FROM payment_events")) {
+            for (Object id : ids) {
+                if (paymentEvents.contains(id)) {
+                    result.add(id);
+                }
+            }
+        } else if (sql.startsWith("SELECT id FROM orders WHERE razorpay_order_id IN (:ids)")) {
+            for (OrderRow order : orders.values()) {
+                if (ids.contains(order.gatewayOrderId) && order.paymentStatus.equals("PENDING")
+                        && order.status.equals("PENDING") && !order.stockTaken) {
+                    result.add(order.id);
+                }
+            }
+        } else {
+            throw new UnsupportedOperationException(sql);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> typed = (List<T>) result;
+        return typed;
+    }
+
+    private synchronized void namedQuery(String sql, Collection<?> ids, RowCallbackHandler handler) {
+        if (sql.startsWith("SELECT o.id, o.user_id, o.status, o.stock_taken, oi.product_id")) {
+            for (OrderRow order : orders.values()) {
+                if (!ids.contains(order.gatewayOrderId)
+                        || !(order.paymentStatus.equals("PENDING") || order.paymentStatus.equals("FAILED"))) {
+                    continue;
+                }
+                for (Map.Entry<Long, Integer> item : order.items.entrySet()) {
+                    Map<String, Object> values = new HashMap<>();
+                    values.put("id", order.id);
+                    values.put("user_id", order.userId);
+                    values.put("status", order.status);
+                    values.put("stock_taken", order.stockTaken);
+                    values.put("product_id", item.getKey());
+                    values.put("order_date", Timestamp.valueOf(order.orderDate));
+                    values.put("quantity", item.getValue());
+                    values.put("price", PRICE);
+                    process(handler, row(values));
+                }
+            }
+        } else if (sql.startsWith("SELECT id, coupon_id, counted FROM coupon_redemptions")) {
+            for (Map.Entry<Long, Redemption> entry : redemptions.entrySet()) {
+                if (ids.contains(entry.getValue().orderId)) {
+                    process(handler, row(Map.of("id", entry.getKey(), "coupon_id", entry.getValue().couponId,
+                            "counted", entry.getValue().counted)));
+                }
+            }
+        } else {
+            throw new UnsupportedOperationException(sql);
+        }
+    }
+
+    private synchronized int namedUpdate(String sql, Collection<?> ids) {
+        if (sql.startsWith("DELETE FROM coupon_redemptions WHERE id IN (:ids)")) {
+            int deleted = 0;
+            for (Object id : ids) {
+                if (redemptions.remove(id) != null) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    private static void process(RowCallbackHandler handler, ResultSet rs) {
+        try {
+            handler.processRow(rs);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResultSet row(Map<String, Object> values) {
+        ResultSet rs = mock(ResultSet.class);
+        try {
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                String column = value.getKey();
+                Object v = value.getValue();
+                if (v instanceof Long l) {
+                    when(rs.getLong(column)).thenReturn(l);
+                } else if (v instanceof Integer i) {
+                    when(rs.getInt(column)).thenReturn(i);
+                } else if (v instanceof Boolean b) {
+                    when(rs.getBoolean(column)).thenReturn(b);
+                } else if (v instanceof Timestamp t) {
+                    when(rs.getTimestamp(column)).thenReturn(t);
+                } else if (v instanceof BigDecimal d) {
+                    when(rs.getBigDecimal(column)).thenReturn(d);
+                } else {
+                    when(rs.getString(column)).thenReturn((String) v);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return rs;
+    }
+
+    private static final class Named extends NamedParameterJdbcTemplate {
+        private final InMemoryPaymentJdbc database;
+
+        private Named(InMemoryPaymentJdbc database) {
+            super(database);
+            this.database = database;
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, SqlParameterSource params, Class<T> elementType) {
+            return database.namedQueryForList(sql, (Collection<?>) params.getValue("ids"));
+        }
+
+        @Override
+        public void query(String sql, SqlParameterSource params, RowCallbackHandler handler) {
+            database.namedQuery(sql, (Collection<?>) params.getValue("ids"), handler);
+        }
+
+        @Override
+        public int update(String sql, SqlParameterSource params) {
+            return database.namedUpdate(sql, (Collection<?>) params.getValue("ids"));
+        }
+    }
+}
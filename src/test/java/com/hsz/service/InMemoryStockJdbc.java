@@ -0,0 +1,166 @@
+package com.hsz.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stand-in for MySQL covering the statements of the checkout stock path: products.stock,
+ * stock_claims and the order writes. Statements that touch a product take that product's
+ * row lock and keep it until the surrounding transaction completes, as InnoDB does, and can
+ * be given a fixed latency to model the round-trip spent holding it.
+ */
+class InMemoryStockJdbc extends JdbcTemplate {
+
+    private final Map<Long, Integer> stock = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Integer>> claims = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<Long>> heldRows = ThreadLocal.withInitial(HashSet::new);
+    private final long statementNanos;
+
+    final AtomicLong stockStatements = new AtomicLong();
+    final AtomicLong orderItems = new AtomicLong();
+
+    InMemoryStockJdbc(long statementMicros) {
+        this.statementNanos = TimeUnit.MICROSECONDS.toNanos(statementMicros);
+    }
+
+    void setStock(Long productId, int units) {
+        stock.put(productId, units);
+    }
+
+    int getStock(Long productId) {
+        return stock.get(productId);
+    }
+
+    int claimedUnits(Long productId) {
+        int units = 0;
+        for (Map<Long, Integer> claim : claims.values()) {
+            units += claim.getOrDefault(productId, 0);
+        }
+        return units;
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+        if (sql.startsWith("UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?")) {
+            Long productId = (Long) args[1];
+            lockRow(productId);
+            int quantity = (Integer) args[0];
+            if (stock.get(productId) < quantity) {
+                return 0;
+            }
+            stock.merge(productId, -quantity, Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE products SET stock = stock - ? WHERE id = ?")) {
+            Long productId = (Long) args[1];
+            lockRow(productId);
+            stock.merge(productId, -(Integer) args[0], Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE products SET stock = stock + ? WHERE id = ?")) {
+            Long productId = (Long) args[1];
+            lockRow(productId);
+            stock.merge(productId, (Integer) args[0], Integer::sum);
+            return 1;
+        }
+        if (sql.startsWith("DELETE FROM stock_claims WHERE claim_id = ?")) {
+            Map<Long, Integer> claim = claims.remove((String) args[0]);
+            return claim == null ? 0 : claim.size();
+        }
+        return 1;
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        int[] counts = new int[batchArgs.size()];
+        for (int i = 0; i < batchArgs.size(); i++) {
+            Object[] args = batchArgs.get(i);
+            if (sql.startsWith("INSERT INTO stock_claims")) {
+                claims.computeIfAbsent((String) args[0], id -> new ConcurrentHashMap<>()).put((Long) args[1], (Integer) args[2]);
+                counts[i] = 1;
+            } else if (sql.startsWith("INSERT INTO order_items")) {
+                orderItems.incrementAndGet();
+                counts[i] = 1;
+            } else {
+                counts[i] = update(sql, args);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+        if (sql.startsWith("SELECT stock FROM products WHERE id = ? FOR UPDATE")) {
+            Long productId = (Long) args[0];
+            lockRow(productId);
+            Integer units = stock.get(productId);
+            return units == null ? new ArrayList<>() : (List<T>) List.of(units);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+        List<T> rows = new ArrayList<>();
+        if (sql.startsWith("SELECT product_id, quantity FROM stock_claims")) {
+            Map<Long, Integer> claim = claims.getOrDefault((String) args[0], new HashMap<>());
+            try {
+                for (Map.Entry<Long, Integer> entry : claim.entrySet()) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong("product_id")).thenReturn(entry.getKey());
+                    when(rs.getInt("quantity")).thenReturn(entry.getValue());
+                    rows.add(rowMapper.mapRow(rs, rows.size()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return rows;
+    }
+
+    // Takes the product's row lock for the rest of the transaction, or just this statement
+    private void lockRow(Long productId) {
+        stockStatements.incrementAndGet();
+        ReentrantLock lock = rowLocks.computeIfAbsent(productId, id -> new ReentrantLock());
+        lock.lock();
+        if (statementNanos > 0) {
+            LockSupport.parkNanos(statementNanos);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.unlock();
+            return;
+        }
+        if (!heldRows.get().add(productId)) {
+            lock.unlock();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                heldRows.get().remove(productId);
+                lock.unlock();
+            }
+        });
+    }
+}
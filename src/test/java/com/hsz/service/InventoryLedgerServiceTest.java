@@ -0,0 +1,103 @@
+package com.hsz.service;
+
+import com.hsz.model.InventoryMovement.MovementType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryLedgerServiceTest {
+
+    private static final Long SAREE_ID = 11L;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InventoryLedgerService ledger;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        HotSkuInventoryService hotSku = mock(HotSkuInventoryService.class);
+        when(hotSku.reseed(any(), any(Integer.class), any())).thenReturn(null);
+
+        ledger = new InventoryLedgerService();
+        ReflectionTestUtils.setField(ledger, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ledger, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(ledger, "hotSkuInventoryService", hotSku);
+        ReflectionTestUtils.setField(ledger, "snapshotLagMillis", 60000L);
+    }
+
+    @Test
+    void salesAreWrittenInTheCallersTransactionAndCountOnlyOnceCommitted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.recordSales(Map.of(SAREE_ID, 2), 900L);
+            verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO inventory_movements"), anyList());
+            assertEquals(0, ledger.getBalance(SAREE_ID));
+        });
+        assertEquals(-2, ledger.getBalance(SAREE_ID));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.recordSales(Map.of(SAREE_ID, 5), 901L);
+            status.setRollbackOnly();
+        });
+        assertEquals(-2, ledger.getBalance(SAREE_ID));
+    }
+
+    @Test
+    void adjustmentThatWouldGoNegativeRecordsNothing() {
+        when(jdbcTemplate.update(startsWith("UPDATE products SET stock = stock + ?"), eq(-3), eq(SAREE_ID), eq(-3)))
+                .thenReturn(0);
+
+        assertFalse(ledger.adjustStock(SAREE_ID, MovementType.ADJUSTMENT, -3, "Damaged"));
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO inventory_movements"), anyList());
+        assertEquals(0, ledger.getBalance(SAREE_ID));
+    }
+
+    @Test
+    void adjustmentRecordsTheMovementWithItsUpdate() {
+        when(jdbcTemplate.update(startsWith("UPDATE products SET stock = stock + ?"), eq(4), eq(SAREE_ID), eq(4)))
+                .thenReturn(1);
+
+        assertTrue(ledger.adjustStock(SAREE_ID, MovementType.RECEIPT, 4, "Restock"));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO inventory_movements"), anyList());
+        assertEquals(4, ledger.getBalance(SAREE_ID));
+    }
+
+    @Test
+    void absoluteStockRecordsTheDifference() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT stock FROM products"), eq(Integer.class), eq(SAREE_ID)))
+                .thenReturn(7);
+
+        ledger.setStock(SAREE_ID, 10, "Recount");
+        verify(jdbcTemplate).update("UPDATE products SET stock = ? WHERE id = ?", 10, SAREE_ID);
+        assertEquals(3, ledger.getBalance(SAREE_ID));
+    }
+
+    @Test
+    void snapshotRollsForwardOnlyToASettledMovement() {
+        ledger.snapshot();
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO inventory_snapshots"), any(), any(), any());
+
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM inventory_movements"), eq(Long.class), any()))
+                .thenReturn(List.of(42L));
+        ledger.snapshot();
+        verify(jdbcTemplate).update(startsWith("INSERT INTO inventory_snapshots"), eq(42L), any(), eq(42L));
+    }
+}
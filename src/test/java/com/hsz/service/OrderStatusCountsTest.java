@@ -0,0 +1,72 @@
+package com.hsz.service;
+
+import com.hsz.model.Order;
+import com.hsz.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderStatusCountsTest {
+
+    private OrderRepository orderRepository;
+    private OrderStatusCounts counts;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        counts = new OrderStatusCounts();
+        ReflectionTestUtils.setField(counts, "orderRepository", orderRepository);
+    }
+
+    @Test
+    void reconcileReplacesTheCounts() {
+        when(orderRepository.countGroupedByStatus()).thenReturn(rows(5L, 2L));
+        counts.reconcile();
+
+        assertEquals(5, counts.get(Order.OrderStatus.PENDING));
+        assertEquals(2, counts.get(Order.OrderStatus.CONFIRMED));
+        assertEquals(7, counts.total());
+    }
+
+    @Test
+    void changesDuringTheQueryAreKeptAfterTheSwap() {
+        // The query has read its rows when the change commits and its event arrives
+        when(orderRepository.countGroupedByStatus()).thenAnswer(invocation -> {
+            List<Object[]> rows = rows(5L, 2L);
+            counts.onStatusChanged(new OrderStatusChangedEvent(1L, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED));
+            counts.onStatusChanged(new OrderStatusChangedEvent(8L, null, Order.OrderStatus.PENDING));
+            return rows;
+        });
+        counts.reconcile();
+
+        assertEquals(5, counts.get(Order.OrderStatus.PENDING));
+        assertEquals(3, counts.get(Order.OrderStatus.CONFIRMED));
+        assertEquals(8, counts.total());
+    }
+
+    @Test
+    void changesAfterTheSwapAreNotCountedTwice() {
+        when(orderRepository.countGroupedByStatus()).thenReturn(rows(5L, 2L));
+        counts.reconcile();
+        counts.onStatusChanged(new OrderStatusChangedEvent(1L, Order.OrderStatus.PENDING, Order.OrderStatus.CONFIRMED));
+        counts.reconcile();
+
+        // The second query does not see the change either, so the count goes back to the rows
+        assertEquals(5, counts.get(Order.OrderStatus.PENDING));
+        assertEquals(2, counts.get(Order.OrderStatus.CONFIRMED));
+    }
+
+    private static List<Object[]> rows(long pending, long confirmed) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {Order.OrderStatus.PENDING, pending});
+        rows.add(new Object[] {Order.OrderStatus.CONFIRMED, confirmed});
+        return rows;
+    }
+}
@@ -0,0 +1,225 @@
+package com.hsz.service;
+
+import com.hsz.dto.CreateOrderRequest;
+import com.hsz.model.Coupon;
+import com.hsz.model.Order;
+import com.hsz.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+
+    private static final Long SAREE_ID = 11L;
+    private static final Long BLOUSE_ID = 12L;
+    private static final Long USER_ID = 7L;
+
+    private InMemoryPaymentJdbc database;
+    private StubPaymentGateway gateway;
+    private StockReservationService reservationService;
+    private CouponRedemptionService redemptionService;
+    private CheckoutService checkoutService;
+    private CartService cartService;
+    private PaymentService paymentService;
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        database = new InMemoryPaymentJdbc();
+        database.setStock(SAREE_ID, 10);
+        database.setStock(BLOUSE_ID, 10);
+        database.addCoupon(5L, 1);
+        coupon = new Coupon();
+        coupon.setId(5L);
+        coupon.setUsageLimit(1);
+
+        gateway = new StubPaymentGateway();
+        ReflectionTestUtils.setField(gateway, "secret", "stub_secret");
+        checkoutService = mock(CheckoutService.class);
+        cartService = mock(CartService.class);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        redemptionService = new CouponRedemptionService();
+        ReflectionTestUtils.setField(redemptionService, "jdbcTemplate", database);
+        ReflectionTestUtils.setField(redemptionService, "namedParameterJdbcTemplate", database.named);
+        ReflectionTestUtils.setField(redemptionService, "transactionTemplate", transactionTemplate);
+
+        startService();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        paymentService.shutdown();
+    }
+
+    @Test
+    void repeatedEventsApplyOnce() throws Exception {
+        String gatewayOrderId = placeOrder(1L, Map.of(SAREE_ID, 2), LocalDateTime.now(), false);
+        String signature = PaymentGateway.hmacSha256Hex("stub_secret", gatewayOrderId + "|pay_1");
+        assertTrue(paymentService.verifyPayment(gatewayOrderId, "pay_1", signature));
+        assertFalse(paymentService.verifyPayment(gatewayOrderId, "pay_2", signature));
+
+        // The widget confirmation, the gateway redelivering it, and the callback for the same payment
+        submitAndSettle(new PaymentService.Event("pay_1", gatewayOrderId, "pay_1", PaymentService.Outcome.CAPTURED));
+        submitAndSettle(new PaymentService.Event("pay_1", gatewayOrderId, "pay_1", PaymentService.Outcome.CAPTURED));
+        submitAndSettle(new PaymentService.Event("callback:pay_1", gatewayOrderId, "pay_1", PaymentService.Outcome.CAPTURED));
+
+        InMemoryPaymentJdbc.OrderRow order = database.getOrder(1L);
+        assertEquals("SUCCESS", order.paymentStatus);
+        assertEquals("pay_1", order.paymentId);
+        assertTrue(order.stockTaken);
+        assertEquals(8, database.getStock(SAREE_ID));
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+        verify(cartService, times(1)).removeProducts(eq(USER_ID), any());
+        assertEquals(2L, paymentService.getMetrics().get("settled"));
+        assertEquals(1L, paymentService.getMetrics().get("duplicates"));
+    }
+
+    @Test
+    void captureAfterCancelIsFlaggedAndTakesNoStock() throws Exception {
+        String gatewayOrderId = placeOrder(1L, Map.of(SAREE_ID, 2), LocalDateTime.now(), true);
+
+        submitAndSettle(new PaymentService.Event("fail_1", gatewayOrderId, "pay_1", PaymentService.Outcome.FAILED));
+        InMemoryPaymentJdbc.OrderRow order = database.getOrder(1L);
+        assertEquals("CANCELLED", order.status);
+        assertEquals("FAILED", order.paymentStatus);
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+        assertEquals(0, database.redemptionCount());
+        assertTrue(redemptionService.hasRemaining(coupon));
+
+        submitAndSettle(new PaymentService.Event("pay_2", gatewayOrderId, "pay_2", PaymentService.Outcome.CAPTURED));
+        assertEquals("CANCELLED", order.status);
+        assertFalse(order.stockTaken);
+        assertEquals(10, database.getStock(SAREE_ID));
+        assertEquals(1L, paymentService.getMetrics().get("capturedAfterCancel"));
+    }
+
+    @Test
+    void expiredOrderReleasesItsHoldAndCoupon() throws Exception {
+        placeOrder(1L, Map.of(SAREE_ID, 2), LocalDateTime.now().minusHours(2), true);
+        placeOrder(2L, Map.of(BLOUSE_ID, 1), LocalDateTime.now(), false);
+        // The redemption was already folded into used_count, which now has to come down
+        database.countRedemptions();
+        assertEquals(1, database.getUsedCount(5L));
+        assertFalse(redemptionService.hasRemaining(coupon));
+
+        paymentService.reconcile();
+        awaitSettled();
+
+        assertEquals("CANCELLED", database.getOrder(1L).status);
+        assertEquals("FAILED", database.getOrder(1L).paymentStatus);
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+        assertEquals(0, database.getUsedCount(5L));
+        assertEquals(0, database.redemptionCount());
+        assertTrue(redemptionService.tryReserve(coupon));
+
+        // Still inside its payment window
+        assertEquals("PENDING", database.getOrder(2L).status);
+        assertEquals(1, reservationService.getHeldQuantity(BLOUSE_ID));
+    }
+
+    @Test
+    void holdsAreTakenAgainAtStartup() throws Exception {
+        placeOrder(1L, Map.of(SAREE_ID, 2, BLOUSE_ID, 1), LocalDateTime.now(), false);
+        paymentService.shutdown();
+
+        startService();
+
+        assertEquals(2, reservationService.getHeldQuantity(SAREE_ID));
+        assertEquals(1, reservationService.getHeldQuantity(BLOUSE_ID));
+    }
+
+    // Fresh in-memory state, as after a restart; the database is kept
+    private void startService() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findStockByIds(any())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {SAREE_ID, database.getStock(SAREE_ID)});
+            rows.add(new Object[] {BLOUSE_ID, database.getStock(BLOUSE_ID)});
+            return rows;
+        });
+        HotSkuInventoryService hotSkuInventoryService = mock(HotSkuInventoryService.class);
+        reservationService = new StockReservationService();
+        ReflectionTestUtils.setField(reservationService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(reservationService, "hotSkuInventoryService", hotSkuInventoryService);
+        ReflectionTestUtils.setField(reservationService, "ttlSeconds", 900L);
+        ReflectionTestUtils.setField(reservationService, "tickMillis", 1L);
+        reservationService.init();
+
+        paymentService = new PaymentService();
+        ReflectionTestUtils.setField(paymentService, "checkoutService", checkoutService);
+        ReflectionTestUtils.setField(paymentService, "paymentGateway", gateway);
+        ReflectionTestUtils.setField(paymentService, "jdbcTemplate", database);
+        ReflectionTestUtils.setField(paymentService, "namedParameterJdbcTemplate", database.named);
+        ReflectionTestUtils.setField(paymentService, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(paymentService, "revenueRollupService", mock(RevenueRollupService.class));
+        ReflectionTestUtils.setField(paymentService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(paymentService, "reservationService", reservationService);
+        ReflectionTestUtils.setField(paymentService, "hotSkuInventoryService", hotSkuInventoryService);
+        ReflectionTestUtils.setField(paymentService, "inventoryLedgerService", mock(InventoryLedgerService.class));
+        ReflectionTestUtils.setField(paymentService, "cartService", cartService);
+        ReflectionTestUtils.setField(paymentService, "redemptionService", redemptionService);
+        ReflectionTestUtils.setField(paymentService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(paymentService, "workers", 1);
+        ReflectionTestUtils.setField(paymentService, "batchSize", 50);
+        ReflectionTestUtils.setField(paymentService, "reconcileMillis", 300_000L);
+        ReflectionTestUtils.setField(paymentService, "reconcileBatch", 500);
+        ReflectionTestUtils.setField(paymentService, "pendingTimeoutMillis", 1_800_000L);
+        paymentService.init();
+    }
+
+    // What checkoutForPayment leaves behind, then the gateway order opened for it
+    private String placeOrder(Long orderId, Map<Long, Integer> items, LocalDateTime orderDate, boolean withCoupon) {
+        database.addOrder(new InMemoryPaymentJdbc.OrderRow(orderId, USER_ID, items, orderDate));
+        reservationService.holdForOrder(orderId, USER_ID, items);
+        if (withCoupon) {
+            assertTrue(redemptionService.tryReserve(coupon));
+            redemptionService.recordRedemption(orderId, coupon, USER_ID);
+        }
+
+        Order order = new Order();
+        order.setId(orderId);
+        order.setTotalPrice(new BigDecimal("2000.00"));
+        when(checkoutService.checkoutForPayment(eq(USER_ID), any())).thenReturn(order);
+        Map<String, Object> response = paymentService.startPayment(USER_ID, new CreateOrderRequest());
+        assertEquals(200000L, response.get("amount"));
+        return (String) response.get("id");
+    }
+
+    private void submitAndSettle(PaymentService.Event event) throws InterruptedException {
+        assertTrue(paymentService.submit(event));
+        awaitSettled();
+    }
+
+    // Settled once nothing is queued and no event is still being applied
+    private void awaitSettled() throws InterruptedException {
+        Queue<?> queue = (Queue<?>) ReflectionTestUtils.getField(paymentService, "queue");
+        Set<?> inFlight = (Set<?>) ReflectionTestUtils.getField(paymentService, "inFlight");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!queue.isEmpty() || !inFlight.isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "payment events not settled in time");
+            Thread.sleep(5);
+        }
+    }
+}
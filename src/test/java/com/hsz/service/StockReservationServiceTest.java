@@ -0,0 +1,155 @@
+package com.hsz.service;
+
+import com.hsz.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockReservationServiceTest {
+
+    private static final Long SAREE_ID = 11L;
+    private static final Long BLOUSE_ID = 12L;
+
+    private StockReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findStockByIds(any())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {SAREE_ID, 10});
+            rows.add(new Object[] {BLOUSE_ID, 10});
+            return rows;
+        });
+
+        reservationService = new StockReservationService();
+        ReflectionTestUtils.setField(reservationService, "productRepository", productRepository);
+        HotSkuInventoryService hotSkuInventoryService = mock(HotSkuInventoryService.class);
+        when(hotSkuInventoryService.getStock(any())).thenReturn(null);
+        ReflectionTestUtils.setField(reservationService, "hotSkuInventoryService", hotSkuInventoryService);
+        ReflectionTestUtils.setField(reservationService, "ttlSeconds", 900L);
+        ReflectionTestUtils.setField(reservationService, "tickMillis", 1L);
+        reservationService.init();
+    }
+
+    @Test
+    void concurrentReservesByOneUserLeaveExactlyOneHold() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int quantity = 1 + i % 3;
+            results.add(pool.submit(() -> {
+                start.await();
+                return reservationService.reserve(1L, Map.of(SAREE_ID, quantity, BLOUSE_ID, 1));
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        StockReservationService.Reservation current = reservationService.getActiveReservation(1L);
+        assertNotNull(current);
+        assertEquals(current.getQuantities().get(SAREE_ID), reservationService.getHeldQuantity(SAREE_ID));
+        assertEquals(1, reservationService.getHeldQuantity(BLOUSE_ID));
+
+        reservationService.release(current.getId());
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+        assertEquals(0, reservationService.getHeldQuantity(BLOUSE_ID));
+    }
+
+    @Test
+    void holdsOfDifferentUsersNeverExceedStock() {
+        reservationService.reserve(1L, Map.of(SAREE_ID, 6));
+        assertThrows(CheckoutException.class, () -> reservationService.reserve(2L, Map.of(SAREE_ID, 5)));
+        // All-or-nothing: the blouse was not held by the failed attempt either
+        assertThrows(CheckoutException.class, () -> reservationService.reserve(2L, Map.of(BLOUSE_ID, 1, SAREE_ID, 5)));
+        assertEquals(0, reservationService.getHeldQuantity(BLOUSE_ID));
+        assertEquals(4, reservationService.getAvailableStock(SAREE_ID, 10));
+    }
+
+    @Test
+    void reservationExpiresAfterTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(reservationService, "ttlSeconds", 0L);
+        reservationService.reserve(1L, Map.of(SAREE_ID, 4));
+        Thread.sleep(5);
+
+        reservationService.expireReservations();
+        assertNull(reservationService.getActiveReservation(1L));
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+    }
+
+    @Test
+    void attachedHoldOutlivesTtlUntilTheOrderSettles() throws InterruptedException {
+        ReflectionTestUtils.setField(reservationService, "ttlSeconds", 0L);
+        StockReservationService.Reservation reservation = reservationService.reserve(1L, Map.of(SAREE_ID, 4));
+        reservationService.attach(reservation.getId(), 500L);
+        assertNull(reservationService.getActiveReservation(1L));
+        Thread.sleep(5);
+
+        reservationService.expireReservations();
+        assertEquals(4, reservationService.getHeldQuantity(SAREE_ID));
+
+        // A new checkout by the same user does not touch the order's hold
+        reservationService.reserve(1L, Map.of(SAREE_ID, 2));
+        assertEquals(6, reservationService.getHeldQuantity(SAREE_ID));
+
+        reservationService.releaseForOrder(500L);
+        assertEquals(2, reservationService.getHeldQuantity(SAREE_ID));
+    }
+
+    @Test
+    void attachingAnEndedReservationFails() {
+        StockReservationService.Reservation reservation = reservationService.reserve(1L, Map.of(SAREE_ID, 1));
+        reservationService.release(reservation.getId());
+
+        assertThrows(CheckoutException.class, () -> reservationService.attach(reservation.getId(), 500L));
+    }
+
+    @Test
+    void releasingAnAttachedHoldDropsItsOrder() {
+        StockReservationService.Reservation reservation = reservationService.reserve(1L, Map.of(SAREE_ID, 3));
+        reservationService.attach(reservation.getId(), 500L);
+
+        // What checkout does when the order transaction rolls back after attaching
+        reservationService.release(reservation.getId());
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+
+        // The order mapping went with it, so a later release for the order is a no-op
+        reservationService.reserve(2L, Map.of(SAREE_ID, 5));
+        reservationService.releaseForOrder(500L);
+        assertEquals(5, reservationService.getHeldQuantity(SAREE_ID));
+    }
+
+    @Test
+    void restoredOrderHoldsCountAgainstAvailability() {
+        reservationService.holdForOrder(500L, 1L, Map.of(SAREE_ID, 7));
+        reservationService.holdForOrder(500L, 1L, Map.of(SAREE_ID, 7));
+        assertEquals(7, reservationService.getHeldQuantity(SAREE_ID));
+        assertThrows(CheckoutException.class, () -> reservationService.reserve(2L, Map.of(SAREE_ID, 4)));
+
+        reservationService.convertForOrder(500L);
+        assertEquals(0, reservationService.getHeldQuantity(SAREE_ID));
+    }
+}
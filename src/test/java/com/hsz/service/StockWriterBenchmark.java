@@ -0,0 +1,116 @@
+package com.hsz.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Naive per-buyer conditional UPDATE against {@link StockWriter} group commit for one hot
+ * product, at 1, 16 and 128 concurrent buyers. Each statement on the product row holds its
+ * lock for a simulated 500us round-trip, which is what serializes the naive path.
+ *
+ * Run with: mvn test -Dtest=StockWriterBenchmark -Dbenchmarks=true
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class StockWriterBenchmark {
+
+    private static final Long PRODUCT_ID = 1L;
+    private static final long ROW_LOCK_MICROS = 500;
+    private static final int CHECKOUTS = 2048;
+    private static final int[] BUYERS = {1, 16, 128};
+
+    @Test
+    void naiveVersusGroupCommit() throws Exception {
+        System.out.println();
+        System.out.printf("%-8s %-8s %12s %14s %10s%n", "buyers", "mode", "checkouts/s", "avg latency ms", "row stmts");
+        double naiveAtMax = 0;
+        double groupAtMax = 0;
+        for (int buyers : BUYERS) {
+            double naive = run(buyers, false);
+            double group = run(buyers, true);
+            if (buyers == BUYERS[BUYERS.length - 1]) {
+                naiveAtMax = naive;
+                groupAtMax = group;
+            }
+        }
+        assertTrue(groupAtMax > naiveAtMax, "group commit should out-scale per-buyer updates under contention");
+    }
+
+    private double run(int buyers, boolean grouped) throws Exception {
+        InMemoryStockJdbc jdbc = new InMemoryStockJdbc(ROW_LOCK_MICROS);
+        jdbc.setStock(PRODUCT_ID, CHECKOUTS);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        StockWriter stockWriter = new StockWriter();
+        ReflectionTestUtils.setField(stockWriter, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(stockWriter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(stockWriter, "windowMillis", 2L);
+        ReflectionTestUtils.setField(stockWriter, "threads", 4);
+        stockWriter.init();
+
+        ExecutorService pool = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        int perBuyer = CHECKOUTS / buyers;
+        List<Future<Long>> results = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                long latency = 0;
+                for (int i = 0; i < perBuyer; i++) {
+                    String claimId = StockClaimService.newClaimId();
+                    long begin = System.nanoTime();
+                    boolean taken = grouped
+                            ? stockWriter.decrement(claimId, PRODUCT_ID, 1).get(30, TimeUnit.SECONDS)
+                            : naiveDecrement(jdbc, transactionTemplate, claimId);
+                    latency += System.nanoTime() - begin;
+                    assertTrue(taken);
+                }
+                return latency;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long totalLatency = 0;
+        for (Future<Long> result : results) {
+            totalLatency += result.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        stockWriter.shutdown();
+
+        int checkouts = perBuyer * buyers;
+        assertEquals(CHECKOUTS - checkouts, jdbc.getStock(PRODUCT_ID));
+        double throughput = checkouts / (elapsed / 1e9);
+        System.out.printf("%-8d %-8s %12.0f %14.2f %10d%n", buyers, grouped ? "group" : "naive", throughput,
+                totalLatency / 1e6 / checkouts, jdbc.stockStatements.get());
+        return throughput;
+    }
+
+    // What checkout did before group commit: one conditional UPDATE per buyer in its own transaction
+    private static boolean naiveDecrement(InMemoryStockJdbc jdbc, TransactionTemplate transactionTemplate, String claimId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (jdbc.update("UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?", 1, PRODUCT_ID, 1) != 1) {
+                return false;
+            }
+            List<Object[]> claim = new ArrayList<>();
+            claim.add(new Object[] {claimId, PRODUCT_ID, 1, Timestamp.valueOf(LocalDateTime.now())});
+            jdbc.batchUpdate(StockClaimService.INSERT_SQL, claim);
+            return true;
+        }));
+    }
+}
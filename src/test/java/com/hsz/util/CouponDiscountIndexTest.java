@@ -0,0 +1,110 @@
+package com.hsz.util;
+
+import com.hsz.model.Coupon;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CouponDiscountIndexTest {
+
+    @Test
+    void emptyIndexHasNoBestCoupon() {
+        CouponDiscountIndex index = new CouponDiscountIndex(List.of());
+
+        assertEquals(0, index.size());
+        assertNull(index.best(new BigDecimal("1000")));
+    }
+
+    @Test
+    void belowEveryMinimumNothingApplies() {
+        CouponDiscountIndex index = new CouponDiscountIndex(List.of(
+                coupon(1, "10", "500", null),
+                coupon(2, "20", "800", "100")));
+
+        assertNull(index.best(new BigDecimal("499.99")));
+    }
+
+    @Test
+    void capTurnsTheBestCouponOverAsTheAmountGrows() {
+        Coupon capped = coupon(1, "20", null, "100");
+        Coupon uncapped = coupon(2, "10", null, null);
+        CouponDiscountIndex index = new CouponDiscountIndex(List.of(capped, uncapped));
+
+        // 20% of 400 = 80 beats 10% = 40
+        assertSame(capped, index.best(new BigDecimal("400")));
+        // 20% of 2000 is capped at 100, 10% = 200
+        assertSame(uncapped, index.best(new BigDecimal("2000")));
+    }
+
+    @Test
+    void equalDiscountsGoToTheLowerId() {
+        Coupon later = coupon(7, "10", null, null);
+        Coupon earlier = coupon(3, "10", null, null);
+        CouponDiscountIndex index = new CouponDiscountIndex(List.of(later, earlier));
+
+        assertSame(earlier, index.best(new BigDecimal("250")));
+    }
+
+    @Test
+    void zeroDiscountIsNotABestCoupon() {
+        CouponDiscountIndex index = new CouponDiscountIndex(List.of(coupon(1, "0", null, null)));
+
+        assertNull(index.best(new BigDecimal("1000")));
+    }
+
+    @Test
+    void matchesScanningEveryCoupon() {
+        Random random = new Random(42);
+        List<Coupon> coupons = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            String percent = String.valueOf(1 + random.nextInt(50));
+            String minimum = random.nextInt(4) == 0 ? null : String.valueOf(random.nextInt(5000));
+            String cap = random.nextInt(3) == 0 ? null : String.valueOf(10 + random.nextInt(1000));
+            coupons.add(coupon(i, percent, minimum, cap));
+        }
+        CouponDiscountIndex index = new CouponDiscountIndex(coupons);
+
+        for (int i = 0; i < 2000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            Coupon expected = scan(coupons, amount);
+            Coupon actual = index.best(amount);
+            assertEquals(discount(expected, amount), discount(actual, amount), "amount " + amount);
+            assertSame(expected, actual, "amount " + amount);
+        }
+    }
+
+    private static Coupon scan(List<Coupon> coupons, BigDecimal amount) {
+        Coupon best = null;
+        Money bestDiscount = Money.ZERO;
+        for (Coupon coupon : coupons) {
+            Money discount = coupon.calculateDiscount(Money.of(amount));
+            if (discount.isGreaterThan(bestDiscount)
+                    || (best != null && discount.equals(bestDiscount) && coupon.getId() < best.getId())) {
+                best = coupon;
+                bestDiscount = discount;
+            }
+        }
+        return best;
+    }
+
+    private static Money discount(Coupon coupon, BigDecimal amount) {
+        return coupon == null ? Money.ZERO : coupon.calculateDiscount(Money.of(amount));
+    }
+
+    private static Coupon coupon(long id, String percent, String minimum, String cap) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setCode("C" + id);
+        coupon.setDiscountPercent(new BigDecimal(percent));
+        coupon.setMinOrderAmount(minimum == null ? null : new BigDecimal(minimum));
+        coupon.setMaxDiscountAmount(cap == null ? null : new BigDecimal(cap));
+        return coupon;
+    }
+}
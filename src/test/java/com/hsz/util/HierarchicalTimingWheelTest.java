@@ -0,0 +1,104 @@
+package com.hsz.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void firesAtItsDeadlineAndNotBefore() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 3, 0);
+        wheel.schedule("a", 45);
+
+        assertTrue(wheel.advance(40).isEmpty());
+        // Rounded up to the tick that contains the deadline
+        assertEquals(List.of("a"), wheel.advance(50));
+        assertTrue(wheel.advance(1000).isEmpty());
+    }
+
+    @Test
+    void deadlineInThePastFiresOnNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 3, 100);
+        wheel.schedule("late", 20);
+
+        assertEquals(List.of("late"), wheel.advance(110));
+    }
+
+    @Test
+    void cancelledTimeoutDoesNotFire() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, 3, 0);
+        HierarchicalTimingWheel.Timeout<String> kept = wheel.schedule("kept", 5);
+        HierarchicalTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 5);
+        cancelled.cancel();
+
+        assertEquals(List.of(kept.getTask()), wheel.advance(5));
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    void cascadesFromHigherLevelsOnTime() {
+        // 8 slots x 3 levels: 8 ticks on level 0, 64 on level 1, 512 on level 2
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, 3, 0);
+        wheel.schedule("level1", 30);
+        wheel.schedule("level2", 300);
+
+        assertTrue(wheel.advance(29).isEmpty());
+        assertEquals(List.of("level1"), wheel.advance(30));
+        assertTrue(wheel.advance(299).isEmpty());
+        assertEquals(List.of("level2"), wheel.advance(300));
+    }
+
+    @Test
+    void rejectsDeadlineBeyondRange() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, 2, 0);
+        wheel.schedule("edge", 63);
+
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule("beyond", 64));
+    }
+
+    @Test
+    void rejectsInvalidShape() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(1, 6, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<String>(0, 8, 2, 0));
+    }
+
+    @Test
+    void everyTimeoutFiresInTheAdvanceThatCoversItsTick() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1, 16, 3, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+        int next = 0;
+        List<Integer> fired = new ArrayList<>();
+
+        while (now < 20000) {
+            for (int i = 0; i < 5; i++) {
+                long deadline = now + 1 + random.nextInt(4000);
+                deadlines.put(next, deadline);
+                wheel.schedule(next++, deadline);
+            }
+            long target = now + 1 + random.nextInt(50);
+            for (Integer task : wheel.advance(target)) {
+                long deadline = deadlines.get(task);
+                assertTrue(deadline > now && deadline <= target,
+                        "task due at " + deadline + " fired in (" + now + ", " + target + "]");
+                fired.add(task);
+            }
+            now = target;
+        }
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            if (entry.getValue() <= now) {
+                assertTrue(fired.contains(entry.getKey()), "task " + entry.getKey() + " never fired");
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.hsz.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongIntHashMapTest {
+
+    @Test
+    void missingKeysCountZero() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(0, map.get(42));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void addReturnsTheNewCount() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(3, map.add(7, 3));
+        assertEquals(5, map.add(7, 2));
+        assertEquals(-4, map.add(-1, -4));
+        assertEquals(5, map.add(7, 0));
+        assertEquals(5, map.get(7));
+        assertEquals(-4, map.get(-1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void countReachingZeroRemovesTheKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.add(7, 3);
+
+        assertEquals(0, map.add(7, -3));
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(7));
+        assertEquals(1, map.add(7, 1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        for (long key = 1; key <= 10_000; key++) {
+            map.add(key * 1_000_003L, (int) key);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals((int) key, map.get(key * 1_000_003L));
+        }
+    }
+
+    @Test
+    void forEachAndAddAllVisitEveryEntry() {
+        LongIntHashMap first = new LongIntHashMap();
+        first.add(1, 2);
+        first.add(3, 4);
+        LongIntHashMap second = new LongIntHashMap();
+        second.add(3, -4);
+        second.add(5, 6);
+
+        first.addAll(second);
+        Map<Long, Integer> seen = new HashMap<>();
+        first.forEach(seen::put);
+
+        assertEquals(Map.of(1L, 2, 5L, 6), seen);
+        assertEquals(2, first.size());
+    }
+
+    @Test
+    void matchesAHashMapThroughAddsAndRemovals() {
+        // Few distinct keys in a small table, so probe runs are long and removals shift entries back
+        Random random = new Random(7);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(64) * 4096L;
+            int delta = random.nextInt(5) - 2;
+            int count = expected.getOrDefault(key, 0) + delta;
+            if (count == 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, count);
+            }
+
+            assertEquals(count, map.add(key, delta));
+            if (i % 97 == 0) {
+                assertEquals(expected.size(), map.size());
+                for (long probe = 0; probe < 64; probe++) {
+                    assertEquals(expected.getOrDefault(probe * 4096L, 0), map.get(probe * 4096L));
+                }
+            }
+        }
+        Map<Long, Integer> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+    }
+}
@@ -0,0 +1,125 @@
+package com.hsz.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cart pricing with BigDecimal (what PricingService did before {@link Money}) against long
+ * paise. Each cart line is priced as unit price times quantity and added to the subtotal; each
+ * cart then takes a 12.5% coupon and 18% GST, rounded HALF_UP to the paisa. Both modes price the
+ * same 10,000 carts of 1 to 8 lines and must produce the same grand total.
+ *
+ * Run with: mvn test -Dtest=MoneyBenchmark -Dbenchmarks=true
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class MoneyBenchmark {
+
+    private static final int CARTS = 10000;
+    private static final int MAX_LINES = 8;
+    private static final int WARMUP_PASSES = 50;
+    private static final int PASSES = 200;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal COUPON_PERCENT = new BigDecimal("12.5");
+    private static final BigDecimal GST_PERCENT = new BigDecimal("18");
+
+    interface Pricer {
+        long priceAll();
+    }
+
+    @Test
+    void bigDecimalVersusPaise() {
+        int[][] quantities = new int[CARTS][];
+        BigDecimal[][] decimalPrices = new BigDecimal[CARTS][];
+        Money[][] moneyPrices = new Money[CARTS][];
+        Random random = new Random(42);
+        int lines = 0;
+        for (int cart = 0; cart < CARTS; cart++) {
+            int size = 1 + random.nextInt(MAX_LINES);
+            quantities[cart] = new int[size];
+            decimalPrices[cart] = new BigDecimal[size];
+            moneyPrices[cart] = new Money[size];
+            for (int line = 0; line < size; line++) {
+                long paise = 19900 + random.nextInt(2500000);
+                quantities[cart][line] = 1 + random.nextInt(4);
+                decimalPrices[cart][line] = BigDecimal.valueOf(paise, 2);
+                moneyPrices[cart][line] = Money.ofPaise(paise);
+            }
+            lines += size;
+        }
+
+        Pricer decimal = () -> priceWithBigDecimal(decimalPrices, quantities);
+        Pricer money = () -> priceWithMoney(moneyPrices, quantities);
+
+        System.out.println();
+        System.out.printf("%-12s %14s %12s%n", "mode", "lines/s", "ns/line");
+        long decimalTotal = run("BigDecimal", decimal, lines);
+        long moneyTotal = run("Money", money, lines);
+        assertEquals(decimalTotal, moneyTotal, "both modes should price the carts identically");
+
+        double decimalNanos = time(decimal);
+        double moneyNanos = time(money);
+        assertTrue(moneyNanos < decimalNanos, "long paise should price lines faster than BigDecimal");
+    }
+
+    private static long run(String mode, Pricer pricer, int lines) {
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            pricer.priceAll();
+        }
+        long total = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            total = pricer.priceAll();
+        }
+        long elapsed = System.nanoTime() - begin;
+        long priced = (long) lines * PASSES;
+        System.out.printf("%-12s %14.0f %12.1f%n", mode, priced / (elapsed / 1e9), (double) elapsed / priced);
+        return total;
+    }
+
+    // A second, shorter timing of each mode for the assertion, after both have been warmed
+    private static double time(Pricer pricer) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < PASSES / 4; i++) {
+            pricer.priceAll();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static long priceWithBigDecimal(BigDecimal[][] prices, int[][] quantities) {
+        BigDecimal grandTotal = BigDecimal.ZERO;
+        for (int cart = 0; cart < prices.length; cart++) {
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (int line = 0; line < prices[cart].length; line++) {
+                subtotal = subtotal.add(prices[cart][line].multiply(BigDecimal.valueOf(quantities[cart][line])));
+            }
+            subtotal = subtotal.setScale(2, RoundingMode.HALF_UP);
+            BigDecimal discount = subtotal.multiply(COUPON_PERCENT).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            BigDecimal taxable = subtotal.subtract(discount);
+            BigDecimal tax = taxable.multiply(GST_PERCENT).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            grandTotal = grandTotal.add(taxable.add(tax));
+        }
+        return grandTotal.movePointRight(2).longValueExact();
+    }
+
+    private static long priceWithMoney(Money[][] prices, int[][] quantities) {
+        long grandTotal = 0;
+        for (int cart = 0; cart < prices.length; cart++) {
+            long subtotalPaise = 0;
+            for (int line = 0; line < prices[cart].length; line++) {
+                subtotalPaise = Math.addExact(subtotalPaise, prices[cart][line].times(quantities[cart][line]).getPaise());
+            }
+            Money subtotal = Money.ofPaise(subtotalPaise);
+            Money taxable = subtotal.minus(subtotal.percent(COUPON_PERCENT));
+            grandTotal = Math.addExact(grandTotal, taxable.plus(taxable.percent(GST_PERCENT)).getPaise());
+        }
+        return grandTotal;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hsz.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTest {
+
+    @Test
+    void convertsFromBigDecimalRoundingHalfUpToThePaisa() {
+        assertEquals(12345, Money.of(new BigDecimal("123.45")).getPaise());
+        assertEquals(12346, Money.of(new BigDecimal("123.455")).getPaise());
+        assertEquals(12345, Money.of(new BigDecimal("123.4549")).getPaise());
+        assertEquals(-12346, Money.of(new BigDecimal("-123.455")).getPaise());
+        assertEquals(50000, Money.of(new BigDecimal("5E+2")).getPaise());
+    }
+
+    @Test
+    void zeroIsShared() {
+        assertSame(Money.ZERO, Money.ofPaise(0));
+        assertSame(Money.ZERO, Money.of(new BigDecimal("0.004")));
+        assertTrue(Money.ofRupees(5).minus(Money.ofRupees(5)).isZero());
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money price = Money.of(new BigDecimal("0.10"));
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(price);
+        }
+
+        assertEquals(Money.ofRupees(1), total);
+        assertEquals(Money.of(new BigDecimal("2999.97")), Money.of(new BigDecimal("999.99")).times(3));
+        assertEquals(Money.of(new BigDecimal("-0.01")), Money.ZERO.minus(Money.ofPaise(1)));
+    }
+
+    @Test
+    void percentRoundsHalfUpToThePaisa() {
+        // 12.5% of 999.99 = 124.99875
+        assertEquals(Money.of(new BigDecimal("125.00")), Money.of(new BigDecimal("999.99")).percent(new BigDecimal("12.5")));
+        // 10% of 0.05 = 0.005
+        assertEquals(Money.ofPaise(1), Money.ofPaise(5).percent(BigDecimal.TEN));
+        assertEquals(Money.ZERO, Money.ofRupees(100).percent(BigDecimal.ZERO));
+    }
+
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        Money max = Money.ofPaise(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofPaise(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofPaise(Long.MIN_VALUE).minus(Money.ofPaise(1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.ofRupees(Long.MAX_VALUE / 10));
+    }
+
+    @Test
+    void maxAmountIsTheLargestConvertibleValue() {
+        assertEquals(Long.MAX_VALUE, Money.of(Money.MAX_AMOUNT).getPaise());
+        assertThrows(ArithmeticException.class, () -> Money.of(Money.MAX_AMOUNT.add(new BigDecimal("0.01"))));
+    }
+
+    @Test
+    void comparesByAmount() {
+        Money small = Money.of(new BigDecimal("10.00"));
+        Money large = Money.of(new BigDecimal("10.01"));
+
+        assertTrue(small.isLessThan(large));
+        assertTrue(large.isGreaterThan(small));
+        assertTrue(small.compareTo(large) < 0);
+        assertSame(small, small.min(large));
+        assertSame(large, small.max(large));
+        assertEquals(-1, Money.ofPaise(-3).signum());
+    }
+
+    @Test
+    void equalAmountsAreEqualRegardlessOfScale() {
+        Money a = Money.of(new BigDecimal("10"));
+        Money b = Money.of(new BigDecimal("10.000"));
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    void keepsTwoDecimalsInTextAndJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Money amount = Money.of(new BigDecimal("1499.5"));
+
+        assertEquals("1499.50", amount.toString());
+        assertEquals(new BigDecimal("1499.50"), amount.toBigDecimal());
+        assertEquals("1499.50", mapper.writeValueAsString(amount));
+        assertEquals(amount, mapper.readValue("1499.50", Money.class));
+    }
+}